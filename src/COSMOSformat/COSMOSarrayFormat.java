@@ -14,9 +14,9 @@
 
 package COSMOSformat;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import SmException.FormatException;
 
@@ -39,6 +39,8 @@ abstract class COSMOSarrayFormat {
     private int valsPerLine; // number of values packed per 80-char line 
     private int fieldWidth;  // number of characters for each numeric value
     private int precision;  // number of places after decimal point (reals)
+    private int lineOffset;  // file line number of the first line of the text
+    private static final int MAX_PACKED_LENGTH = 128; // initial line buffer size
     
     /**
      * Constructor for this class simply initializes the instance variables
@@ -50,6 +52,7 @@ abstract class COSMOSarrayFormat {
         this.valsPerLine = 0;
         this.fieldWidth = 0;
         this.precision = 0;
+        this.lineOffset = 0;
     }
     /**
      * This method is to be defined for each array type, to extract numeric
@@ -73,13 +76,6 @@ abstract class COSMOSarrayFormat {
     public void parseNumberFormatLine( String line) 
                                 throws FormatException {
          
-        //at start of line, skip over any whitespace and pick up all digits
-        String getDigitsRegex = "^((\\s*)(\\d+))";
-        //pick up (xxx) for the number format
-        String formatRegex = "\\((\\d+)([A-Za-z]+)(\\d+)(\\.*)(\\d*)\\)";
-        //look for groups of digits in the number format
-        String fieldRegex = "(\\d+)";
-        
         ArrayList<String> formatter;
         
         //set the copy of the header format line
@@ -87,29 +83,22 @@ abstract class COSMOSarrayFormat {
         
         try {
         
-            //get the number of values at the start of the line
-            Pattern regDigits = Pattern.compile( getDigitsRegex );
-            Matcher m = regDigits.matcher( line );
-            if (m.find(0)){
-                this.numVals = Integer.parseInt(m.group().trim());
+            //at start of line, skip over any whitespace and pick up all digits
+            int count = COSMOSheaderLexer.findLeadingCount(line);
+            if (count >= 0){
+                this.numVals = count;
             } else {
                 throw new FormatException("Could not find number of values in " + line);
             }
-            //get the format as text
-            Pattern regFormat = Pattern.compile(formatRegex);
-            m = regFormat.matcher(line);
-            if (m.find(0)){
-                this.numberFormat = m.group().trim();
+            //get the format as text, such as (10I8)
+            String format = COSMOSheaderLexer.findNumberFormat(line);
+            if (format != null){
+                this.numberFormat = format;
             } else {
                 throw new FormatException("Could not find number format in " + line);
             }
             //get field width and optional precision (if real vals)
-            Pattern regField = Pattern.compile(fieldRegex);
-            m = regField.matcher( this.numberFormat );
-            formatter = new ArrayList<>();
-            while (m.find()) {
-                formatter.add(m.group());
-            }
+            formatter = COSMOSheaderLexer.findFormatFields(this.numberFormat);
             if ((formatter.size() == 2) && 
                     ((this.numberFormat.contains("I")) || (this.numberFormat.contains("i")))){
                 this.valsPerLine = Integer.parseInt(formatter.get(0));
@@ -156,11 +145,13 @@ abstract class COSMOSarrayFormat {
         while (total < this.numVals){
             current++;
             if (infile.length <= current) {
-                throw new FormatException("Unexpected end-of-file at line " + current);
+                throw new FormatException("Unexpected end-of-file at line " 
+                                                        + (current + lineOffset));
             }
             line = infile[current];
             if (line.length() < this.fieldWidth) {
-                throw new FormatException("Could not extract number from line " + current);
+                throw new FormatException("Could not extract number from line " 
+                                                        + (current + lineOffset));
             }
             for (int j = 0; j <= line.length()- this.fieldWidth; j = j + this.fieldWidth) {
                 String num = line.substring(j, j + this.fieldWidth).trim();
@@ -176,6 +167,97 @@ abstract class COSMOSarrayFormat {
         }
         return holdNumbers;
     }
+    /**
+     * This method converts each value in the numeric block directly from the
+     * input lines, without making a string for each value.  It steps through
+     * the lines in the same way as extractNumericVals, trimming each field in
+     * place and passing its position in the line to storeValue for conversion.
+     * The count of values is checked before any conversion problem is
+     * reported, as when the values are extracted first and then converted.
+     * @param startLine line number in input file contents where array begins
+     * @param infile text file contents in an array of strings
+     * @return true if all values were converted, false if any field could not
+     * be converted to a number
+     * @throws FormatException if unpacked values from the format line are not 
+     * valid, if the end-of-file is reached before all values extracted, or if
+     * the number of values found does not match the format line
+     */
+    protected boolean parseNumericVals(int startLine, String[] infile) 
+                                                        throws FormatException {
+        int current = startLine;
+        String line;
+        int total = 0;
+        int found = 0;
+        boolean converted = true;
+        
+        //do some initial error checking
+        if ((this.numVals <= 0) || (this.fieldWidth <= 0)) {
+            throw new FormatException("Invalid number of values: " + this.numVals 
+            + " or field width: " + this.fieldWidth);
+        }
+        //size the array by the fields the remaining lines can hold, so a bad
+        //value count fails on the text instead of on a huge allocation
+        long room = 0;
+        for (int k = startLine + 1; (k < infile.length) && (room < this.numVals); k++) {
+            room += infile[k].length() / this.fieldWidth;
+        }
+        allocateValues((int)Math.min(this.numVals, room));
+        while (total < this.numVals){
+            current++;
+            if (infile.length <= current) {
+                throw new FormatException("Unexpected end-of-file at line " 
+                                                        + (current + lineOffset));
+            }
+            line = infile[current];
+            if (line.length() < this.fieldWidth) {
+                throw new FormatException("Could not extract number from line " 
+                                                        + (current + lineOffset));
+            }
+            for (int j = 0; j <= line.length()- this.fieldWidth; j = j + this.fieldWidth) {
+                int begin = j;
+                int end = j + this.fieldWidth;
+                while ((begin < end) && (line.charAt(begin) <= ' ')) {
+                    begin++;
+                }
+                while ((end > begin) && (line.charAt(end - 1) <= ' ')) {
+                    end--;
+                }
+                if (begin < end) {
+                    if (converted && (found < this.numVals)) {
+                        try {
+                            storeValue(line, begin, end, found);
+                        } catch (NumberFormatException err) {
+                            converted = false;
+                        }
+                    }
+                    found++;
+                }
+                total++;
+            }
+        }
+        if (this.numVals != found) {
+            throw new FormatException("Expected " + this.numVals + 
+                            " values in array but found " + found);
+        }
+        return converted;
+    }
+    /**
+     * This method is to be defined for each array type, to create the numeric
+     * array before the values are converted.
+     * @param count the number of values the array needs to hold
+     */
+    protected abstract void allocateValues(int count);
+    /**
+     * This method is to be defined for each array type, to convert one field
+     * of the numeric block and store it in the numeric array.
+     * @param line the input line holding the field
+     * @param begin index of the first non-blank character of the field
+     * @param end index after the last non-blank character of the field
+     * @param index index into the numeric array for the value
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    protected abstract void storeValue(String line, int begin, int end, int index)
+                                                    throws NumberFormatException;
     /**
      * This method uses the number of data values and the number of values per
      * line extracted from the format line to calculate the number of lines of
@@ -204,40 +286,85 @@ abstract class COSMOSarrayFormat {
      * number in the array
      */
     public abstract ArrayList<String> arrayToText();
+    /**
+     * This method is defined for each array type to create the formatter for
+     * the array's output field format.
+     * @return the field formatter
+     */
+    protected abstract FixedFieldFormatter makeFormatter();
+    /**
+     * This method is defined for each array type to format one value of the
+     * array and append it to the output line.
+     * @param formatter the field formatter from makeFormatter
+     * @param index index into the array for the value
+     * @param line the output line to append to
+     */
+    protected abstract void appendValue(FixedFieldFormatter formatter, int index,
+                                                            StringBuilder line);
     /**
      * This method converts the array and its format line into text
-     * strings to be written to a file.  It calls arrayToText, which is defined
-     * in each individual array type's methods, to convert each numeric value 
-     * into a text string according to the output format.  This method then
-     * packs each text string into a line.  It puts the format line at the
+     * strings to be written to a file.  Each numeric value is formatted 
+     * according to the output format straight into its line, with the lines
+     * packed according to the values per line.  It puts the format line at the
      * start and returns a string array ready to be appended to the text output.
      * 
      * @return array of strings ready for text file output
      */
     public String[] numberSectionToText() {
-        int valsToPack = 0;
         int current = 0;
         int totalLength = 1 + this.numLines;
         String[] newText = new String[totalLength];
         newText[0] = this.getFormatLine();
-        ArrayList<String> textVals = this.arrayToText();
+        FixedFieldFormatter formatter = makeFormatter();
+        StringBuilder line = new StringBuilder(MAX_PACKED_LENGTH);
         
-        //pack each text value into a line according to the values per line
         for (int i=0; i<this.numLines; i++) {
-            StringBuilder line = new StringBuilder();
-            //calculate the number of vals to pack into a single line
-            //use valsPerLine unless the last line has fewer
-            valsToPack = ((this.numVals-current) >= this.valsPerLine) ? 
-                                this.valsPerLine : (this.numVals - current);
-            for (int next=0; next < valsToPack; next++){
-                line.append(textVals.get(current));
-                current++;
-            }
+            current = packLine(formatter, current, line);
             newText[i+1] = line.toString();
         }
-        textVals.clear();
         return newText;
     }
+    /**
+     * This method writes the array and its format line to the writer, one
+     * packed line at a time, ending each line with the line separator.  The
+     * text is the same as from numberSectionToText, without holding the text
+     * of the whole array.
+     * @param out the writer for the output text
+     * @throws IOException if unable to write to the writer
+     */
+    public void writeNumberSection(Writer out) throws IOException {
+        String newline = System.lineSeparator();
+        int current = 0;
+        FixedFieldFormatter formatter = makeFormatter();
+        StringBuilder line = new StringBuilder(MAX_PACKED_LENGTH);
+        
+        out.write(this.getFormatLine());
+        out.write(newline);
+        for (int i=0; i<this.numLines; i++) {
+            current = packLine(formatter, current, line);
+            line.append(newline);
+            out.append(line);
+        }
+    }
+    /**
+     * This method formats the values for one output line into the line buffer
+     * @param formatter the field formatter from makeFormatter
+     * @param current index of the first value for the line
+     * @param line the line buffer, cleared before use
+     * @return index of the first value for the next line
+     */
+    private int packLine(FixedFieldFormatter formatter, int current, StringBuilder line) {
+        //calculate the number of vals to pack into a single line
+        //use valsPerLine unless the last line has fewer
+        int valsToPack = ((this.numVals-current) >= this.valsPerLine) ? 
+                                this.valsPerLine : (this.numVals - current);
+        line.setLength(0);
+        for (int next=0; next < valsToPack; next++){
+            appendValue(formatter, current, line);
+            current++;
+        }
+        return current;
+    }
     /**
      * This getter returns the full format line for the array
      * @return string containing the array's format line
@@ -337,4 +464,20 @@ abstract class COSMOSarrayFormat {
     public void setPrecision( int precision ) {
         this.precision = precision;
     }
+    /**
+     * Sets the line number in the input file of the first line of the text
+     * given to parseValues, so that error messages give the line number in the
+     * file when the text holds only part of the file
+     * @param offset the file line number of the first line of the text
+     */
+    public void setLineOffset(int offset) {
+        this.lineOffset = offset;
+    }
+    /**
+     * Getter for the file line number of the first line of the parsed text
+     * @return the line offset
+     */
+    public int getLineOffset() {
+        return this.lineOffset;
+    }
 }
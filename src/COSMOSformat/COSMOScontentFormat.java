@@ -19,11 +19,11 @@ import static SmConstants.VFileConstants.*;
 import SmException.FormatException;
 import SmException.SmException;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 
 import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * This is the base class for the COSMOS Strong Motion Data Format.  It extracts
@@ -49,6 +49,7 @@ public class COSMOScontentFormat {
     protected String endOfData;  // Holds the end-of-data line 
     protected String fileName; // holds the original file name 
     protected File stationDir; // holds the station directory for this record 
+    protected int lineOffset; // file line number of the first line of the text
     /**
      * Default constructor
      * @param procType defines the data type of raw accel., uncorrected accel., 
@@ -65,6 +66,7 @@ public class COSMOScontentFormat {
         this.eventID = "";
         this.fileName = "";
         this.stationDir = null;
+        this.lineOffset = 0;
     }
     /**
      * This method extracts the current component/channel from the input file. 
@@ -91,6 +93,7 @@ public class COSMOScontentFormat {
         //get integer header values !!channelNum no longer used, just set channel to ""
         channel = "";
         intHeader = new VIntArray();    
+        intHeader.setLineOffset(lineOffset);
         current = intHeader.parseValues( current, infile);
 //        channelNum = intHeader.getIntValue(STATION_CHANNEL_NUMBER);
 //        if (channelNum != noIntVal) {
@@ -100,6 +103,7 @@ public class COSMOScontentFormat {
 //        }
         //get real header values
         realHeader = new VRealArray();     
+        realHeader.setLineOffset(lineOffset);
         current = realHeader.parseValues( current, infile);
          
         //store commments
@@ -146,21 +150,14 @@ public class COSMOScontentFormat {
         String line;
         String[] numbers;
         int numHeaderLines = 0;
-        //look for num. of text lines
-        String matchRegex = "(?i)(with \\d\\d text lines)";
         
         try {
             //get the first header line and extract the number of lines in the header
             line = infile[current];
-            Pattern regField = Pattern.compile(matchRegex);
-            Matcher m = regField.matcher( line );
-            if (m.find()) {
-                String[] num = m.group().split(" ");
-                numHeaderLines = Integer.parseInt(num[1]);
-            }
-            else {
+            numHeaderLines = COSMOSheaderLexer.findTextHeaderCount(line);
+            if (numHeaderLines < 0) {
                 throw new FormatException("Unable to find number of text header lines at line " + 
-                                                                        (current+1));
+                                                            (current+1+lineOffset));
             }
             //verify that the header lines are in the array, then extract NoData vals
             if ((numHeaderLines > 0) && (infile.length > (startLine + numHeaderLines))) {
@@ -173,7 +170,7 @@ public class COSMOScontentFormat {
                     noRealVal = Double.parseDouble(numbers[1].trim());
                 } else {
                     throw new FormatException("Unable to extract NoData values at line " + 
-                                                        (current + NODATA_LINE + 1));
+                                            (current + NODATA_LINE + 1 + lineOffset));
                 }
             }
             else {
@@ -194,10 +191,6 @@ public class COSMOScontentFormat {
     private int parseComments(int startLine, String[] infile) 
                                                         throws FormatException {
 
-        //at start of line, skip over any whitespace and pick up all digits
-        String getDigitsRegex = "^((\\s*)(\\d+))";
-        String commentRegex = "(?i).*comment.*";
-        
         int current = startLine;
         int numComments = 0;
         String line = "";
@@ -207,22 +200,20 @@ public class COSMOScontentFormat {
             line = infile[current];
         } else {
             throw new FormatException("EOF found before comments at line " 
-                                                                    + (current+1));
+                                                        + (current+1+lineOffset));
         }
         try {
             //Make sure it's the comment section
-            if (line.matches(commentRegex)) {
+            if (COSMOSheaderLexer.isCommentLine(line)) {
                 //get the number of values at the start of the line
-                Pattern regDigits = Pattern.compile( getDigitsRegex );
-                Matcher m = regDigits.matcher( line );
-                if (m.find(0)){
-                    numComments = Integer.parseInt(m.group().trim());
-                } else {
+                numComments = COSMOSheaderLexer.findLeadingCount(line);
+                if (numComments < 0) {
                     throw new FormatException("Could not find number of comment lines at " + 
-                                                                        (current+1));
+                                                            (current+1+lineOffset));
                 }
             } else {
-                throw new FormatException("Could not find comments at " + (current+1));
+                throw new FormatException("Could not find comments at " 
+                                                        + (current+1+lineOffset));
             }
 
             //verify that the comment lines are in the array
@@ -248,23 +239,20 @@ public class COSMOScontentFormat {
     private int parseEndOfData( int startLine, String[] infile) throws FormatException {
         String line;
         int current = startLine;
-        //at start of line, skip over any whitespace and look for end-of-data,
-        // case insensitive
-        String endOfDataRegex = "^((\\s*)(?i)(End-of-data))";
 
         if (infile.length > current) {
             line = infile[current];        
-            Pattern regDigits = Pattern.compile( endOfDataRegex );
-            Matcher m = regDigits.matcher( line );
-            if (m.find(0)){
+            //at start of line, skip over any whitespace and look for end-of-data,
+            // case insensitive
+            if (COSMOSheaderLexer.isEndOfData(line)){
                 this.endOfData = line;
             } else {
                 throw new FormatException("Could not find End-of-data at line " + 
-                                                                    (current+1));
+                                                        (current+1+lineOffset));
             }            
         } else {
             throw new FormatException("End-of-file found before end-of-data at line " + 
-                                                                        (current+1));
+                                                        (current+1+lineOffset));
         }
         return (current + 1);
     }
@@ -278,6 +266,32 @@ public class COSMOScontentFormat {
         System.err.println("method VrecToText must be overridden");
         return temp;
     }
+    /**
+     * This method writes the V component in its COSMOS text format to the
+     * writer, with each line ended by the line separator.  The text is the
+     * same as from VrecToText.  Each extending class overrides it to write
+     * the numeric sections straight to the writer, without first building the
+     * text of the whole record.
+     * @param out the writer for the output text
+     * @throws IOException if unable to write to the writer
+     */
+    public void writeVrec(Writer out) throws IOException {
+        writeLines(out, VrecToText());
+    }
+    /**
+     * This method writes the text lines to the writer, ending each line with
+     * the line separator
+     * @param out the writer for the output text
+     * @param lines the text lines
+     * @throws IOException if unable to write to the writer
+     */
+    protected static void writeLines(Writer out, String... lines) throws IOException {
+        String newline = System.lineSeparator();
+        for (String line : lines) {
+            out.write(line);
+            out.write(newline);
+        }
+    }
     /**
      * This method checks line 7 of the text header to see if it contains the 
      * record id, and checks the comments for the Authorization tag.  If either
@@ -290,20 +304,15 @@ public class COSMOScontentFormat {
         String[] segments;
         
         //Get the record id if available
-        String matchRegex = "(RcrdId:)";
-        Pattern regField = Pattern.compile(matchRegex);
-        Matcher m = regField.matcher( line );
-        rcrdId = (m.find()) ? line.substring(m.end()) : "";
+        String idTag = "RcrdId:";
+        int found = line.indexOf(idTag);
+        rcrdId = (found >= 0) ? line.substring(found + idTag.length()) : "";
         
-        String findRegex = "(?i)(see co??m??me??nt)";
-//        String findRegex = "(?i)(see comment)";
-        Pattern findField = Pattern.compile(findRegex);
-        Matcher f = findField.matcher( rcrdId );
-        if (f.find()) {
+        if (COSMOSheaderLexer.isSeeComment(rcrdId)) {
             for (String each : this.comments) {
-                m = regField.matcher( each);
-                if (m.find()) {
-                    rcrdId = each.substring(m.end()).trim();
+                found = each.indexOf(idTag);
+                if (found >= 0) {
+                    rcrdId = each.substring(found + idTag.length()).trim();
                     break;
                 }
             }
@@ -313,24 +322,19 @@ public class COSMOScontentFormat {
             eventID = (segments.length > 3 ) ? segments[1] : "";
         }
         //Look for the SCNL and Auth tags and save if found
-        String authRegex = "(<AUTH>)";
-        Pattern authfield = Pattern.compile(authRegex);
         for (String each : this.comments) {
-            m = authfield.matcher(each);
-            if (m.find()) {
+            if (each.contains("<AUTH>")) {
                 SCNLauth = each.substring(1);
                 break;                
             }
         }
         //Get the channel code if no channel number defined
-        String scnlRegex = "(<SCNL>)(\\S+)";
-        Pattern scnlfield = Pattern.compile(scnlRegex);
         if (!SCNLauth.isEmpty()) {
-            m = scnlfield.matcher( SCNLauth );
-            if (m.find()) {
-                this.SCNLcode = m.group(2).trim();
+            String code = COSMOSheaderLexer.findSCNLcode(SCNLauth);
+            if (code != null) {
+                this.SCNLcode = code.trim();
                 if (channel.isEmpty()) {
-                    segments = m.group(2).split("\\.");
+                    segments = code.split("\\.");
                     this.setChannel(segments[1] + "." + segments[3]);
                 }
             }
@@ -347,19 +351,13 @@ public class COSMOScontentFormat {
        if (line.isEmpty()) {
             return stationname;
         }
-        Matcher m;
-        String matchRegex = "(Station Name:)";
-        Pattern regField = Pattern.compile(matchRegex);
+        String nameTag = "Station Name:";
         
-        String findRegex = "(?i)(see co??m??me??nt)";
-//        String findRegex = "(?i)(see comment)";
-        Pattern findField = Pattern.compile(findRegex);
-        Matcher f = findField.matcher( line );
-        if (f.find()) {
+        if (COSMOSheaderLexer.isSeeComment(line)) {
             for (String each : this.comments) {
-                m = regField.matcher( each);
-                if (m.find()) {
-                    stationname = each.substring(m.end()).trim();
+                int found = each.indexOf(nameTag);
+                if (found >= 0) {
+                    stationname = each.substring(found + nameTag.length()).trim();
                     break;
                 }
             }
@@ -382,31 +380,20 @@ public class COSMOScontentFormat {
         String group = "";
         String result = "";
         StringBuilder sb = new StringBuilder();
-        String endOfDataRegex1 = "^(?i)(\\s*End-of-data\\s+for\\s+Chan\\s+\\S+)";
-        String endOfDataRegex2 = "^(?i)(\\s*End-of-data\\s+for\\s+\\S+)";
         
-        if (dtype.matches(UNCORACC) || (dtype.matches(CORACC))) {
+        if (dtype.equals(UNCORACC) || (dtype.equals(CORACC))) {
             end = "acceleration";
-        } else if (dtype.matches(VELOCITY)) {
+        } else if (dtype.equals(VELOCITY)) {
             end = "velocity";
-        } else if (dtype.matches(DISPLACE)) {
+        } else if (dtype.equals(DISPLACE)) {
             end = "displacement";
         } else {
             end = "response spectra";
         }
 //        System.out.println("dtype: " + dtype);
-        Pattern reg1 = Pattern.compile( endOfDataRegex1 );
-        Pattern reg2 = Pattern.compile( endOfDataRegex2 );
-        Matcher m1 = reg1.matcher( line );
-        Matcher m2 = reg2.matcher( line );
-        if (m1.find(0)){
-            group = m1.group(0);
-//            System.out.println("1st group: " + group);
-            result = sb.append(group).append(" ").append(end).toString();
-        } else if (m2.find(0)) {
-            group = m2.group(0);
+        group = COSMOSheaderLexer.findEndOfDataLabel(line);
+        if (group != null){
             result = sb.append(group).append(" ").append(end).toString();
-//            System.out.println("2nd group: " + group);
         } else {
             StringBuilder sb2 = new StringBuilder();
             result = sb2.append("End-of-data for Chan ").append(channel)
@@ -617,6 +604,15 @@ public class COSMOScontentFormat {
     public void setFileName( String inName ) {
         fileName = inName;
     }
+    /**
+     * Setter for the line number in the input file of the first line of the
+     * text given to loadComponent.  When the text holds only this record, the
+     * offset keeps the line numbers in error messages relative to the file.
+     * @param offset the file line number of the first line of the text
+     */
+    public void setLineOffset( int offset ) {
+        lineOffset = offset;
+    }
     /**
      * Getter for the station directory for this channel
      * @return station directory
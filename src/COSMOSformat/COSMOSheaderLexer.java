@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Name: Java class COSMOSheaderLexer.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package COSMOSformat;
+
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class recognizes the header pieces of the COSMOS V0 - V3 files: the
+ * number of text header lines, the number format lines, the comment count
+ * line, the record id and SCNL tags, and the End-of-data line.  The lines
+ * that are checked for every record are scanned by hand in a single pass,
+ * and the few patterns that remain are compiled once for all records.  Each
+ * method gives the same result as the regular expression noted with it.
+ * Letters are compared without regard to case for the US-ASCII letters only,
+ * the same as a regular expression with the (?i) flag, and white space is the
+ * regular expression white space of space, tab, newline, vertical tab, form
+ * feed, and carriage return.
+ * @author jmjones
+ */
+public final class COSMOSheaderLexer {
+    // (?i)(see co??m??me??nt)
+    private static final Pattern SEE_COMMENT = Pattern.compile("(?i)(see co??m??me??nt)");
+    // (<SCNL>)(\S+)
+    private static final Pattern SCNL_TAG = Pattern.compile("(<SCNL>)(\\S+)");
+    // ^(?i)(\s*End-of-data\s+for\s+Chan\s+\S+)
+    private static final Pattern EOD_CHANNEL = 
+                Pattern.compile("^(?i)(\\s*End-of-data\\s+for\\s+Chan\\s+\\S+)");
+    // ^(?i)(\s*End-of-data\s+for\s+\S+)
+    private static final Pattern EOD_LABEL = 
+                Pattern.compile("^(?i)(\\s*End-of-data\\s+for\\s+\\S+)");
+    
+    private static final String WITH = "with ";
+    private static final String TEXT_LINES = " text lines";
+    private static final String COMMENT = "comment";
+    private static final String END_OF_DATA = "end-of-data";
+    
+    private COSMOSheaderLexer() {
+    }
+    /**
+     * Finds the number of text header lines in the first line of the header,
+     * given as "with nn text lines".  Regex: (?i)(with \d\d text lines)
+     * @param line the first line of the text header
+     * @return the number of text header lines, or -1 if not found
+     */
+    public static int findTextHeaderCount(String line) {
+        int last = line.length() - (WITH.length() + 2 + TEXT_LINES.length());
+        for (int i = 0; i <= last; i++) {
+            int digits = i + WITH.length();
+            if (matchesWord(line, i, WITH) && isDigit(line.charAt(digits)) &&
+                        isDigit(line.charAt(digits + 1)) && 
+                                    matchesWord(line, digits + 2, TEXT_LINES)) {
+                return (line.charAt(digits) - '0') * 10 + (line.charAt(digits + 1) - '0');
+            }
+        }
+        return -1;
+    }
+    /**
+     * Finds the count at the start of a line, after any leading white space.
+     * Regex: ^((\s*)(\d+))
+     * @param line the line starting with a count
+     * @return the count, or -1 if the line does not start with a count
+     * @throws NumberFormatException if the count is too large for an int
+     */
+    public static int findLeadingCount(String line) {
+        int begin = skipSpace(line, 0);
+        int end = skipDigits(line, begin);
+        return (end > begin) ? Integer.parseInt(line.substring(begin, end)) : -1;
+    }
+    /**
+     * Checks if the line is the start of the comment section.
+     * Regex: (?i).*comment.*
+     * @param line the line to check
+     * @return true if the line contains the word comment
+     */
+    public static boolean isCommentLine(String line) {
+        return containsIgnoreCase(line, COMMENT) && !hasLineTerminator(line);
+    }
+    /**
+     * Checks if the line is the End-of-data line.
+     * Regex: ^((\s*)(?i)(End-of-data))
+     * @param line the line to check
+     * @return true if the line starts with End-of-data
+     */
+    public static boolean isEndOfData(String line) {
+        return matchesWord(line, skipSpace(line, 0), END_OF_DATA);
+    }
+    /**
+     * Finds the number format, such as (10I8) or (8F10.3), in a number format
+     * line.  Regex: \((\d+)([A-Za-z]+)(\d+)(\.*)(\d*)\)
+     * @param line the number format line
+     * @return the number format with its parentheses, or null if not found
+     */
+    public static String findNumberFormat(String line) {
+        for (int begin = line.indexOf('('); begin >= 0; 
+                                        begin = line.indexOf('(', begin + 1)) {
+            int pos = begin + 1;
+            int next = skipDigits(line, pos);
+            if (next == pos) {
+                continue;
+            }
+            pos = next;
+            while ((next < line.length()) && isLetter(line.charAt(next))) {
+                next++;
+            }
+            if (next == pos) {
+                continue;
+            }
+            pos = next;
+            next = skipDigits(line, pos);
+            if (next == pos) {
+                continue;
+            }
+            while ((next < line.length()) && (line.charAt(next) == '.')) {
+                next++;
+            }
+            next = skipDigits(line, next);
+            if ((next < line.length()) && (line.charAt(next) == ')')) {
+                return line.substring(begin, next + 1);
+            }
+        }
+        return null;
+    }
+    /**
+     * Splits the number format into its groups of digits, such as 8, 10, and
+     * 3 for (8F10.3).  Regex: (\d+), repeated
+     * @param format the number format
+     * @return the digit groups in the order found
+     */
+    public static ArrayList<String> findFormatFields(String format) {
+        ArrayList<String> fields = new ArrayList<>(3);
+        int pos = 0;
+        while (pos < format.length()) {
+            int end = skipDigits(format, pos);
+            if (end > pos) {
+                fields.add(format.substring(pos, end));
+                pos = end;
+            } else {
+                pos++;
+            }
+        }
+        return fields;
+    }
+    /**
+     * Checks if the text refers to the comments, as in "see comment".
+     * Regex: (?i)(see co??m??me??nt)
+     * @param text the text to check
+     * @return true if the text refers to the comments
+     */
+    public static boolean isSeeComment(String text) {
+        return SEE_COMMENT.matcher(text).find();
+    }
+    /**
+     * Finds the SCNL code in the authorization line.  Regex: (<SCNL>)(\S+)
+     * @param auth the authorization line
+     * @return the SCNL code, or null if not found
+     */
+    public static String findSCNLcode(String auth) {
+        if (!auth.contains("<SCNL>")) {
+            return null;
+        }
+        Matcher m = SCNL_TAG.matcher(auth);
+        return (m.find()) ? m.group(2) : null;
+    }
+    /**
+     * Finds the start of the End-of-data line up to its channel or data label,
+     * such as "End-of-data for Chan  1".
+     * Regex: ^(?i)(\s*End-of-data\s+for\s+Chan\s+\S+), or if not found, 
+     * ^(?i)(\s*End-of-data\s+for\s+\S+)
+     * @param line the End-of-data line
+     * @return the start of the line, or null if not found
+     */
+    public static String findEndOfDataLabel(String line) {
+        if (!isEndOfData(line)) {
+            return null;
+        }
+        Matcher m = EOD_CHANNEL.matcher(line);
+        if (m.find(0)) {
+            return m.group(0);
+        }
+        m = EOD_LABEL.matcher(line);
+        return (m.find(0)) ? m.group(0) : null;
+    }
+    /**
+     * Checks if the line contains the word, ignoring the case of US-ASCII
+     * letters.  Regex: (?s).*(?i)word.*
+     * @param line the line to check
+     * @param word the word to look for, in lower case
+     * @return true if the word is found
+     */
+    public static boolean containsIgnoreCase(String line, String word) {
+        int last = line.length() - word.length();
+        for (int i = 0; i <= last; i++) {
+            if (matchesWord(line, i, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Checks if the word is found in the line at the given position, ignoring
+     * the case of US-ASCII letters
+     * @param line the line to check
+     * @param offset the position in the line
+     * @param word the word to match, in lower case
+     * @return true if the word is at the position
+     */
+    private static boolean matchesWord(String line, int offset, String word) {
+        if (line.length() - offset < word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = line.charAt(offset + i);
+            if ((c >= 'A') && (c <= 'Z')) {
+                c += 'a' - 'A';
+            }
+            if (c != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    private static int skipSpace(String line, int pos) {
+        while ((pos < line.length()) && isSpace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+    private static int skipDigits(String line, int pos) {
+        while ((pos < line.length()) && isDigit(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+    private static boolean isSpace(char c) {
+        return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B') || 
+                                                    (c == '\f') || (c == '\r');
+    }
+    private static boolean isDigit(char c) {
+        return (c >= '0') && (c <= '9');
+    }
+    private static boolean isLetter(char c) {
+        return ((c >= 'A') && (c <= 'Z')) || ((c >= 'a') && (c <= 'z'));
+    }
+    /**
+     * Checks for the characters that the regular expression . does not match
+     * @param line the line to check
+     * @return true if the line holds a line terminator
+     */
+    private static boolean hasLineTerminator(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if ((c == '\n') || (c == '\r') || (c == '\u0085') || 
+                                        (c == '\u2028') || (c == '\u2029')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
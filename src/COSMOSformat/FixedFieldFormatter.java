@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Name: Java class FixedFieldFormatter.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package COSMOSformat;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * This class formats numbers into the fixed-width fields of the COSMOS
+ * numeric blocks, giving the same text as String.format with the %Wd, %W.Pf
+ * or %W.Pe format for the field width W and precision P.  Each value is built
+ * in a reusable character buffer and appended to the output line, without
+ * creating a string for each value.
+ * <p>
+ * String.format rounds the shortest decimal representation of a double, so
+ * a real value is converted here only when its scaled value is far enough
+ * from a rounding boundary that the rounding cannot differ.  Values close to
+ * a boundary, values too large or too small to scale exactly, and any value
+ * when the default locale does not use plain ASCII digits and '.' are all
+ * passed to String.format.
+ * @author jmjones
+ */
+final class FixedFieldFormatter {
+    //powers of ten that can be held exactly in a double
+    private static final double[] POWERS_OF_TEN = {
+        1.0e0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7, 1.0e8,
+        1.0e9, 1.0e10, 1.0e11, 1.0e12, 1.0e13, 1.0e14, 1.0e15, 1.0e16,
+        1.0e17, 1.0e18, 1.0e19, 1.0e20, 1.0e21, 1.0e22
+    };
+    private static final int MAX_POWER = 22;
+    //largest precision formatted here, keeping the scaled value in a long
+    private static final int MAX_PRECISION = 15;
+    //largest scaled value formatted here, well within exact long conversion
+    private static final double MAX_SCALED = 1.0e15;
+    //distance from a rounding boundary, in ulps of the scaled value, that
+    //covers both the scaling error and the gap to the shortest decimal
+    private static final double ULP_MARGIN = 4.0;
+    //room for the sign, the digits of a long, point, and exponent
+    private static final int MAX_DIGITS = 48;
+
+    private final int width;
+    private final int precision;
+    private final boolean exponential;
+    private final String format;
+    private final boolean plainLocale;
+    private final char[] buf;
+    /**
+     * Constructor for an integer field formatter, matching %Wd
+     * @param width the field width
+     */
+    FixedFieldFormatter(int width) {
+        this.width = width;
+        this.precision = 0;
+        this.exponential = false;
+        this.format = "%" + width + "d";
+        this.plainLocale = isPlainLocale();
+        this.buf = new char[Math.max(width, MAX_DIGITS)];
+    }
+    /**
+     * Constructor for a real field formatter, matching %W.Pf or %W.Pe
+     * @param width the field width
+     * @param precision the number of digits after the decimal point
+     * @param exponential true for the E format, false for the F format
+     */
+    FixedFieldFormatter(int width, int precision, boolean exponential) {
+        this.width = width;
+        this.precision = precision;
+        this.exponential = exponential;
+        this.format = "%" + width + "." + precision + (exponential ? "e" : "f");
+        this.plainLocale = isPlainLocale();
+        this.buf = new char[Math.max(width, MAX_DIGITS + Math.max(precision, 0))];
+    }
+    /**
+     * Appends the integer value, right justified in the field
+     * @param value the value to format
+     * @param out the line to append to
+     */
+    void appendInt(int value, StringBuilder out) {
+        if (!plainLocale) {
+            out.append(String.format(format, value));
+            return;
+        }
+        int pos = buf.length;
+        long num = Math.abs((long)value);
+        do {
+            buf[--pos] = (char)('0' + (num % 10));
+            num /= 10;
+        } while (num > 0);
+        if (value < 0) {
+            buf[--pos] = '-';
+        }
+        pad(pos, out);
+    }
+    /**
+     * Appends the real value, right justified in the field
+     * @param value the value to format
+     * @param out the line to append to
+     */
+    void appendReal(double value, StringBuilder out) {
+        int pos = (plainLocale) ? formatReal(value) : -1;
+        if (pos < 0) {
+            out.append(String.format(format, value));
+            return;
+        }
+        pad(pos, out);
+    }
+    /**
+     * Builds the real value at the end of the buffer
+     * @param value the value to format
+     * @return the buffer index of the first character, or -1 if the value
+     * needs to be formatted by String.format
+     */
+    private int formatReal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) ||
+                        (precision < 0) || (precision > MAX_PRECISION)) {
+            return -1;
+        }
+        //the sign bit gives the sign of -0.0 and of values rounding to zero
+        boolean negative = (Double.doubleToRawLongBits(value) < 0);
+        double mag = Math.abs(value);
+        int exponent = 0;
+        long digits;
+        if (!exponential) {
+            digits = roundScaled(mag * POWERS_OF_TEN[precision]);
+        } else if (mag == 0.0) {
+            digits = 0;
+        } else {
+            //scale to precision + 1 significant digits, adjusting the
+            //estimated exponent if it is off by one
+            exponent = (int)Math.floor(Math.log10(mag));
+            double scaled = scale(mag, precision - exponent);
+            if (scaled < POWERS_OF_TEN[precision]) {
+                exponent--;
+                scaled = scale(mag, precision - exponent);
+            } else if (scaled >= POWERS_OF_TEN[precision + 1]) {
+                exponent++;
+                scaled = scale(mag, precision - exponent);
+            }
+            if (!(scaled >= POWERS_OF_TEN[precision]) ||
+                                !(scaled < POWERS_OF_TEN[precision + 1])) {
+                return -1;
+            }
+            digits = roundScaled(scaled);
+            if (digits == (long)POWERS_OF_TEN[precision + 1]) {
+                digits = (long)POWERS_OF_TEN[precision];
+                exponent++;
+            }
+        }
+        if (digits < 0) {
+            return -1;
+        }
+        int pos = buf.length;
+        if (exponential) {
+            int expmag = Math.abs(exponent);
+            do {
+                buf[--pos] = (char)('0' + (expmag % 10));
+                expmag /= 10;
+            } while ((expmag > 0) || (pos > buf.length - 2));
+            buf[--pos] = (exponent < 0) ? '-' : '+';
+            buf[--pos] = 'e';
+        }
+        for (int i = 0; i < precision; i++) {
+            buf[--pos] = (char)('0' + (digits % 10));
+            digits /= 10;
+        }
+        if (precision > 0) {
+            buf[--pos] = '.';
+        }
+        do {
+            buf[--pos] = (char)('0' + (digits % 10));
+            digits /= 10;
+        } while (digits > 0);
+        if (negative) {
+            buf[--pos] = '-';
+        }
+        return pos;
+    }
+    /**
+     * Scales the value by a power of ten with a single rounding
+     * @param mag the value
+     * @param power the power of ten
+     * @return the scaled value, or NaN if the power is out of range
+     */
+    private static double scale(double mag, int power) {
+        if ((power > MAX_POWER) || (power < -MAX_POWER)) {
+            return Double.NaN;
+        }
+        return (power >= 0) ? mag * POWERS_OF_TEN[power] : mag / POWERS_OF_TEN[-power];
+    }
+    /**
+     * Rounds the scaled value to the nearest integer, if it is far enough
+     * from the halfway point that the rounding is certain
+     * @param scaled the scaled value
+     * @return the rounded value, or -1 if it needs to be formatted by
+     * String.format
+     */
+    private static long roundScaled(double scaled) {
+        if (!(scaled < MAX_SCALED)) {
+            return -1;
+        }
+        long whole = (long)scaled;
+        double frac = scaled - whole;
+        if (Math.abs(frac - 0.5) <= ULP_MARGIN * Math.ulp(scaled)) {
+            return -1;
+        }
+        return (frac > 0.5) ? whole + 1 : whole;
+    }
+    /**
+     * Appends the text at the end of the buffer, right justified in the field
+     * @param pos the buffer index of the first character
+     * @param out the line to append to
+     */
+    private void pad(int pos, StringBuilder out) {
+        for (int i = buf.length - pos; i < width; i++) {
+            out.append(' ');
+        }
+        out.append(buf, pos, buf.length - pos);
+    }
+    /**
+     * Checks if the default format locale writes numbers with ASCII digits,
+     * '-' and '.', as the numbers are built here
+     * @return true if the numbers can be built here
+     */
+    private static boolean isPlainLocale() {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(
+                                    Locale.getDefault(Locale.Category.FORMAT));
+        return (symbols.getZeroDigit() == '0') && (symbols.getDecimalSeparator() == '.')
+                                                && (symbols.getMinusSign() == '-');
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Name: Java class NumericFieldParser.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package COSMOSformat;
+
+/**
+ * This class converts a numeric field within a line of text directly to an
+ * int or double, without first copying the field out into its own string.
+ * The results and the accepted text are the same as for Integer.parseInt and
+ * Double.parseDouble on the trimmed field.  Plain decimal values, which make
+ * up the numeric blocks in COSMOS files, are converted here, and anything
+ * else, such as a value with too many significant digits to convert exactly,
+ * is passed on to the Java conversion.  As with the Java methods, a
+ * NumberFormatException is thrown for text that is not a valid number.
+ * @author jmjones
+ */
+final class NumericFieldParser {
+    //largest mantissa that can be held exactly in a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    //powers of ten that can be held exactly in a double
+    private static final double[] POWERS_OF_TEN = {
+        1.0e0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7, 1.0e8,
+        1.0e9, 1.0e10, 1.0e11, 1.0e12, 1.0e13, 1.0e14, 1.0e15, 1.0e16,
+        1.0e17, 1.0e18, 1.0e19, 1.0e20, 1.0e21, 1.0e22
+    };
+    //number of decimal digits that always fit in a long
+    private static final int MAX_LONG_DIGITS = 18;
+    //largest exponent digit count handled here
+    private static final int MAX_EXPONENT_DIGITS = 3;
+    /**
+     * Default constructor, not used since all methods are static
+     */
+    private NumericFieldParser() {
+    }
+    /**
+     * Converts the text between begin and end in the line to an integer.  The
+     * text is expected to have been trimmed of leading and trailing blanks.
+     * @param line the line holding the field
+     * @param begin index of the first character of the field
+     * @param end index after the last character of the field
+     * @return the integer value
+     * @throws NumberFormatException if the text is not a valid integer
+     */
+    static int parseInt(String line, int begin, int end) throws NumberFormatException {
+        int i = begin;
+        boolean negative = false;
+        if (i >= end) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+        char first = line.charAt(i);
+        if ((first == '-') || (first == '+')) {
+            negative = (first == '-');
+            i++;
+            if (i == end) {
+                return Integer.parseInt(line.substring(begin, end));
+            }
+        }
+        //accumulate negatively, as Integer.parseInt does, to reach MIN_VALUE
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multmin = limit / 10;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if ((digit < 0) || (digit > 9) || (result < multmin)) {
+                return Integer.parseInt(line.substring(begin, end));
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return Integer.parseInt(line.substring(begin, end));
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+    /**
+     * Converts the text between begin and end in the line to a double.  The
+     * text is expected to have been trimmed of leading and trailing blanks.
+     * A value with up to 18 significant digits whose scaled mantissa and power
+     * of ten can both be held exactly in a double is converted with a single
+     * multiply or divide, which gives the same correctly rounded result as
+     * Double.parseDouble.  All other text is passed to Double.parseDouble.
+     * @param line the line holding the field
+     * @param begin index of the first character of the field
+     * @param end index after the last character of the field
+     * @return the double value
+     * @throws NumberFormatException if the text is not a valid number
+     */
+    static double parseDouble(String line, int begin, int end) throws NumberFormatException {
+        int i = begin;
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean sawDigit = false;
+        boolean sawPoint = false;
+        char c = 0;
+        if (i < end) {
+            c = line.charAt(i);
+            if ((c == '-') || (c == '+')) {
+                negative = (c == '-');
+                i++;
+            }
+        }
+        for (; i < end; i++) {
+            c = line.charAt(i);
+            if ((c >= '0') && (c <= '9')) {
+                sawDigit = true;
+                if ((mantissa == 0) && (c == '0')) {
+                    //leading zeros add no significant digits
+                    scale -= sawPoint ? 1 : 0;
+                    continue;
+                }
+                if (++digits > MAX_LONG_DIGITS) {
+                    return Double.parseDouble(line.substring(begin, end));
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                scale -= sawPoint ? 1 : 0;
+            } else if ((c == '.') && !sawPoint) {
+                sawPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (!sawDigit) {
+            return Double.parseDouble(line.substring(begin, end));
+        }
+        if (i < end) {
+            //only an exponent may follow the digits
+            if ((c != 'e') && (c != 'E')) {
+                return Double.parseDouble(line.substring(begin, end));
+            }
+            i++;
+            boolean negexp = false;
+            if ((i < end) && ((line.charAt(i) == '-') || (line.charAt(i) == '+'))) {
+                negexp = (line.charAt(i) == '-');
+                i++;
+            }
+            int expdigits = end - i;
+            if ((expdigits == 0) || (expdigits > MAX_EXPONENT_DIGITS)) {
+                return Double.parseDouble(line.substring(begin, end));
+            }
+            int exponent = 0;
+            for (; i < end; i++) {
+                int digit = line.charAt(i) - '0';
+                if ((digit < 0) || (digit > 9)) {
+                    return Double.parseDouble(line.substring(begin, end));
+                }
+                exponent = exponent * 10 + digit;
+            }
+            scale += negexp ? -exponent : exponent;
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if ((mantissa >= MAX_EXACT_MANTISSA) || (scale < -22) || (scale > 22)) {
+            return Double.parseDouble(line.substring(begin, end));
+        }
+        double value = (scale < 0) ? mantissa / POWERS_OF_TEN[-scale]
+                                   : mantissa * POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+}
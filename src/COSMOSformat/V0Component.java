@@ -23,7 +23,10 @@ import static SmConstants.VFileConstants.MSEC_TO_SEC;
 import SmException.FormatException;
 import SmException.SmException;
 import SmUtilities.ConfigReader;
+import SmUtilities.SmProcessingContext;
 import static SmUtilities.SmConfigConstants.OUT_ARRAY_FORMAT;
+import java.io.IOException;
+import java.io.Writer;
 
 /**
  * This class extends the COSMOScontentFormat base class to define a V0 record.
@@ -57,6 +60,7 @@ public class V0Component extends COSMOScontentFormat {
         int current = startLine;
         
         V0Data = new VIntArray();
+        V0Data.setLineOffset(lineOffset);
         current = V0Data.parseValues( current, infile);
         return current;
     }
@@ -100,6 +104,21 @@ public class V0Component extends COSMOScontentFormat {
         outText[totalLength-1] = this.endOfData;
         return outText;
     }
+    /**
+     * This method writes the V0 component to the writer in COSMOS format, one
+     * section at a time, without building the full text of the record.
+     * @param out the writer for the output text
+     * @throws IOException if unable to write to the writer
+     */
+    @Override
+    public void writeVrec(Writer out) throws IOException {
+        writeLines(out, this.textHeader);
+        this.intHeader.writeNumberSection(out);
+        this.realHeader.writeNumberSection(out);
+        writeLines(out, this.comments);
+        this.V0Data.writeNumberSection(out);
+        writeLines(out, this.endOfData);
+    }
     /**
      * Updates certain parameters for the V0 file to facilitate its rewrite out
      * as single channel.  The array output format is checked in the configuration
@@ -111,9 +130,21 @@ public class V0Component extends COSMOScontentFormat {
      * @throws SmException if unable to build the new format line
      */
     public void updateV0(String inname) throws FormatException, SmException {
+        updateV0(inname, new SmProcessingContext());
+    }
+    /**
+     * Updates the V0 record for output, getting the array output format from
+     * the configuration values in the given processing context
+     * @param inname the file name for this record
+     * @param context the processing context for this record
+     * @throws FormatException if field width is invalid
+     * @throws SmException if unable to build the new format line
+     */
+    public void updateV0(String inname, SmProcessingContext context) 
+                                        throws FormatException, SmException {
         //Get the array output format of single column per channel or packed
         VFileConstants.SmArrayStyle packtype;
-        ConfigReader config = ConfigReader.INSTANCE;
+        ConfigReader config = context.getConfig();
         
         String arrformat = config.getConfigValue(OUT_ARRAY_FORMAT);
         arrformat = (arrformat == null) ? DEFAULT_ARRAY_STYLE : arrformat;
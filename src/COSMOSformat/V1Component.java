@@ -26,6 +26,8 @@ import static SmUtilities.SmConfigConstants.OUT_ARRAY_FORMAT;
 import static SmUtilities.SmConfigConstants.PROC_AGENCY_ABBREV;
 import static SmUtilities.SmConfigConstants.PROC_AGENCY_CODE;
 import SmUtilities.SmTimeFormatter;
+import java.io.IOException;
+import java.io.Writer;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 
@@ -100,6 +102,7 @@ public class V1Component extends COSMOScontentFormat {
         int current = startLine;
         
         V1Data = new VRealArray();
+        V1Data.setLineOffset(lineOffset);
         current = V1Data.parseValues( current, infile);
         return current;
     }
@@ -144,7 +147,7 @@ public class V1Component extends COSMOScontentFormat {
         String realformat = "%8.3f";
 
         SmTimeFormatter proctime = new SmTimeFormatter();
-        ConfigReader config = ConfigReader.INSTANCE;
+        ConfigReader config = inVvals.getProcessingContext().getConfig();
         
         this.realHeader.setFieldWidth(DEFAULT_REAL_FIELDWIDTH);
         this.realHeader.buildArrayParams( SmArrayStyle.PACKED );
@@ -273,6 +276,21 @@ public class V1Component extends COSMOScontentFormat {
         outText[totalLength-1] = this.endOfData;
         return outText;
     }
+    /**
+     * This method writes the V1 component to the writer in COSMOS format, one
+     * section at a time, without building the full text of the record.
+     * @param out the writer for the output text
+     * @throws IOException if unable to write to the writer
+     */
+    @Override
+    public void writeVrec(Writer out) throws IOException {
+        writeLines(out, this.textHeader);
+        this.intHeader.writeNumberSection(out);
+        this.realHeader.writeNumberSection(out);
+        writeLines(out, this.comments);
+        this.V1Data.writeNumberSection(out);
+        writeLines(out, this.endOfData);
+    }
     /**
      * This method is used by the GUI review tool during the trim process. After
      * an uncorrected acceleration array is trimmed, the array is updated and
@@ -26,9 +26,9 @@ import static SmUtilities.SmConfigConstants.OUT_ARRAY_FORMAT;
 import static SmUtilities.SmConfigConstants.PROC_AGENCY_ABBREV;
 import static SmUtilities.SmConfigConstants.PROC_AGENCY_CODE;
 import SmUtilities.SmTimeFormatter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * This class extends the COSMOScontentFormat base class to define a V2 record.
@@ -104,6 +104,7 @@ public class V2Component extends COSMOScontentFormat {
         int current = startLine;
         
         V2Data = new VRealArray();
+        V2Data.setLineOffset(lineOffset);
         current = V2Data.parseValues( current, infile);
         return current;
     }
@@ -163,7 +164,7 @@ public class V2Component extends COSMOScontentFormat {
         int unitscode;
 
         SmTimeFormatter proctime = new SmTimeFormatter();
-        ConfigReader config = ConfigReader.INSTANCE;
+        ConfigReader config = inVvals.getProcessingContext().getConfig();
         
         double delta_t;
         double dtime;
@@ -317,7 +318,8 @@ public class V2Component extends COSMOScontentFormat {
             this.comments = super.updateComments(this.comments, processSteps);
         } else {
             if (inVvals.getQCStatus() == V2Status.GOOD) {
-                ProcessStepsRecorder2 stepRec = ProcessStepsRecorder2.INSTANCE;
+                ProcessStepsRecorder2 stepRec = 
+                                inVvals.getProcessingContext().getStepRecorder();
                 ArrayList<String> psteps = stepRec.formatSteps();
                 this.comments = super.updateComments(this.comments, psteps);
                 psteps.clear();
@@ -386,17 +388,29 @@ public class V2Component extends COSMOScontentFormat {
         outText[totalLength-1] = this.endOfData;
         return outText;
     }
+    /**
+     * This method writes the V2 component to the writer in COSMOS format, one
+     * section at a time, without building the full text of the record.
+     * @param out the writer for the output text
+     * @throws IOException if unable to write to the writer
+     */
+    @Override
+    public void writeVrec(Writer out) throws IOException {
+        writeLines(out, this.textHeader);
+        this.intHeader.writeNumberSection(out);
+        this.realHeader.writeNumberSection(out);
+        writeLines(out, this.comments);
+        this.V2Data.writeNumberSection(out);
+        writeLines(out, this.endOfData);
+    }
     public double extractEONSETfromComments() throws SmException {
-        String matchRegex = "(<EONSET>)";
         double etime = 0.0;
         if (this.comments.length < 2) {
             return etime;
         }
         try {
             for (String each : this.comments) {
-                Pattern eField = Pattern.compile(matchRegex);
-                Matcher m = eField.matcher( each );
-                if (m.find()) {
+                if (each.contains("<EONSET>")) {
                     String[] vals = each.split(" ");
                     etime = Double.parseDouble(vals[vals.length-1]);
                     break;
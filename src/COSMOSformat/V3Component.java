@@ -26,6 +26,8 @@ import static SmUtilities.SmConfigConstants.OUT_ARRAY_FORMAT;
 import static SmUtilities.SmConfigConstants.PROC_AGENCY_ABBREV;
 import static SmUtilities.SmConfigConstants.PROC_AGENCY_CODE;
 import SmUtilities.SmTimeFormatter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 
 /**
@@ -105,14 +107,17 @@ public class V3Component extends COSMOScontentFormat {
         int current = startLine;
         V3DampingValues = infile[current++];
         VRealArray Periods = new VRealArray();
+        Periods.setLineOffset(lineOffset);
         current = Periods.parseValues(current, infile);
         V3Data.add(Periods);
         VRealArray fftVals = new VRealArray();
+        fftVals.setLineOffset(lineOffset);
         current = fftVals.parseValues(current, infile);
         V3Data.add(fftVals);
         VRealArray spectra;
         for (int i = 0; i < NUM_V3_SPECTRA_ARRAYS; i++) {
             spectra = new VRealArray();
+            spectra.setLineOffset(lineOffset);
             current = spectra.parseValues(current, infile);
             V3Data.add(spectra);
         }
@@ -157,7 +162,7 @@ public class V3Component extends COSMOScontentFormat {
         String freqformat53 = "%5.3f";
 
         SmTimeFormatter proctime = new SmTimeFormatter();
-        ConfigReader config = ConfigReader.INSTANCE;
+        ConfigReader config = inVvals.getProcessingContext().getConfig();
         
         this.realHeader.setFieldWidth(DEFAULT_REAL_FIELDWIDTH);
         this.realHeader.buildArrayParams( VFileConstants.SmArrayStyle.PACKED );
@@ -376,4 +381,22 @@ public class V3Component extends COSMOScontentFormat {
         outText[totalLength-1] = this.endOfData;
         return outText;
     }
+    /**
+     * This method writes the V3 component to the writer in COSMOS format, one
+     * section at a time, without building the full text of the record.
+     * @param out the writer for the output text
+     * @throws IOException if unable to write to the writer
+     */
+    @Override
+    public void writeVrec(Writer out) throws IOException {
+        writeLines(out, this.textHeader);
+        this.intHeader.writeNumberSection(out);
+        this.realHeader.writeNumberSection(out);
+        writeLines(out, this.comments);
+        writeLines(out, V3DampingValues);
+        for (VRealArray each :  V3Data) {
+            each.writeNumberSection(out);
+        }
+        writeLines(out, this.endOfData);
+    }
 }
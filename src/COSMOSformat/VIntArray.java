@@ -73,27 +73,42 @@ public class VIntArray extends COSMOSarrayFormat {
     public int parseValues( int startLine, String[] infile) 
                                                         throws FormatException {
         int current = startLine;
-        int next = 0;
-        ArrayList<String> holdNumbers;
         
         //Check for EOF before parsing format line
         if (infile.length <= current) {
-            throw new FormatException("Unexpected EOF encountered at line " + current);
+            throw new FormatException("Unexpected EOF encountered at line " 
+                                                    + (current + getLineOffset()));
         }
-        try {
-            this.parseNumberFormatLine(infile[current]);
-            holdNumbers =  this.extractNumericVals( current, infile);
-            intVals = new int[holdNumbers.size()];
-            for (String each: holdNumbers){
-                intVals[next++] = Integer.parseInt(each);
-            }
-        } catch (NumberFormatException err) {
+        this.parseNumberFormatLine(infile[current]);
+        if (!this.parseNumericVals( current, infile)) {
             throw new FormatException("Unable to convert text to numeric at line " 
-                                                                        + current);
+                                                    + (current + getLineOffset()));
         }
         //add 1 to account for the integer header format line
         return (current + calculateNumLines() + 1);
     }
+    /**
+     * This method creates the integer array to hold the converted values
+     * @param count the number of values in the array
+     */
+    @Override
+    protected void allocateValues(int count) {
+        intVals = new int[count];
+    }
+    /**
+     * This method converts one field of the numeric block and stores it in
+     * the integer array
+     * @param line the input line holding the field
+     * @param begin index of the first non-blank character of the field
+     * @param end index after the last non-blank character of the field
+     * @param index index into the integer array for the value
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    @Override
+    protected void storeValue(String line, int begin, int end, int index)
+                                                throws NumberFormatException {
+        intVals[index] = NumericFieldParser.parseInt(line, begin, end);
+    }
     /**
      * This getter returns a value from the integer array at the given index
      * @param index index into the integer array
@@ -155,14 +170,36 @@ public class VIntArray extends COSMOSarrayFormat {
      */
     @Override
     public ArrayList<String> arrayToText() {
-        String formatting = "%" + String.valueOf(this.getFieldWidth()) + "d";
+        FixedFieldFormatter formatter = makeFormatter();
+        StringBuilder text = new StringBuilder();
         ArrayList <String> textVals = new ArrayList<>();
         
         for (int each : intVals){
-            textVals.add(String.format(formatting, each));
+            text.setLength(0);
+            formatter.appendInt(each, text);
+            textVals.add(text.toString());
         }
         return textVals;
     }
+    /**
+     * This method creates the formatter for the integer field width
+     * @return the field formatter
+     */
+    @Override
+    protected FixedFieldFormatter makeFormatter() {
+        return new FixedFieldFormatter(this.getFieldWidth());
+    }
+    /**
+     * This method formats one value of the integer array into the line
+     * @param formatter the field formatter from makeFormatter
+     * @param index index into the integer array for the value
+     * @param line the output line to append to
+     */
+    @Override
+    protected void appendValue(FixedFieldFormatter formatter, int index,
+                                                            StringBuilder line) {
+        formatter.appendInt(intVals[index], line);
+    }
     /**
      * Getter for the displayType field,i.e. "I", for type integer
      * @return the display type
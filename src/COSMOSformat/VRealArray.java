@@ -75,29 +75,44 @@ public class VRealArray extends COSMOSarrayFormat {
     public int parseValues( int startLine, String[] infile) 
                                                     throws FormatException {
         int current = startLine;
-        int next = 0;
-        ArrayList<String> holdNumbers;
         
         //Check for EOF before parsing format line
         if (infile.length <= current) {
-            throw new FormatException("Unexpected EOF encountered at line " + current);
+            throw new FormatException("Unexpected EOF encountered at line " 
+                                                    + (current + getLineOffset()));
         }
-        try {
-            super.parseNumberFormatLine(infile[current]);
-            String numformat = super.getNumberFormat();
-            this.displayType = ((numformat.contains("F")) || (numformat.contains("f"))) ? "F" : "E";
-            holdNumbers =  this.extractNumericVals( current, infile);        
-            realVals = new double[holdNumbers.size()];
-            for (String each: holdNumbers){
-                realVals[next++] = Double.parseDouble(each);
-            }
-        } catch (NumberFormatException err) {
+        super.parseNumberFormatLine(infile[current]);
+        String numformat = super.getNumberFormat();
+        this.displayType = ((numformat.contains("F")) || (numformat.contains("f"))) ? "F" : "E";
+        if (!this.parseNumericVals( current, infile)) {
             throw new FormatException("Unable to convert text to numeric at line " 
-                                                                        + current);
+                                                    + (current + getLineOffset()));
         }
         //add 1 to account for the real header format line
         return (current + calculateNumLines() + 1);
     }
+    /**
+     * This method creates the real array to hold the converted values
+     * @param count the number of values in the array
+     */
+    @Override
+    protected void allocateValues(int count) {
+        realVals = new double[count];
+    }
+    /**
+     * This method converts one field of the numeric block and stores it in
+     * the real array
+     * @param line the input line holding the field
+     * @param begin index of the first non-blank character of the field
+     * @param end index after the last non-blank character of the field
+     * @param index index into the real array for the value
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    @Override
+    protected void storeValue(String line, int begin, int end, int index)
+                                                throws NumberFormatException {
+        realVals[index] = NumericFieldParser.parseDouble(line, begin, end);
+    }
     /**
      * This getter returns a value from the real array at the given index
      * @param index index into the real array
@@ -168,17 +183,39 @@ public class VRealArray extends COSMOSarrayFormat {
      */
     @Override
     public ArrayList<String> arrayToText() {
-        String outType = ("e".equalsIgnoreCase(this.displayType)) ? "e" : "f";
-        //!!!update this line for floating pt. format
-        String formatting = "%" + String.valueOf(this.getFieldWidth()) + "." +
-                                String.valueOf(this.getPrecision())+ outType;
+        FixedFieldFormatter formatter = makeFormatter();
+        StringBuilder text = new StringBuilder();
         ArrayList <String> textVals = new ArrayList<>();
         
         for (double each : realVals){
-            textVals.add(String.format(formatting, each));
+            text.setLength(0);
+            formatter.appendReal(each, text);
+            textVals.add(text.toString());
         }
         return textVals;
     }
+    /**
+     * This method creates the formatter for the real field width, precision,
+     * and display type
+     * @return the field formatter
+     */
+    @Override
+    protected FixedFieldFormatter makeFormatter() {
+        boolean exponential = "e".equalsIgnoreCase(this.displayType);
+        return new FixedFieldFormatter(this.getFieldWidth(), this.getPrecision(),
+                                                                exponential);
+    }
+    /**
+     * This method formats one value of the real array into the line
+     * @param formatter the field formatter from makeFormatter
+     * @param index index into the real array for the value
+     * @param line the output line to append to
+     */
+    @Override
+    protected void appendValue(FixedFieldFormatter formatter, int index,
+                                                            StringBuilder line) {
+        formatter.appendReal(realVals[index], line);
+    }
     /**
      * Getter for the displayType field,i.e. "F", for floating point
      * @return the display type
@@ -182,6 +182,9 @@ public final class VFileConstants {
     public enum BaselineType{ BESTFIT, ABC };
     public enum CorrectionType{ AUTO, MANUAL };
     public enum CorrectionOrder{ MEAN, ORDER1, ORDER2, ORDER3, SPLINE };
+    public enum SpectraEngine{ SCALAR, BLOCKED };
+    public enum ResamplingMode{ FFT, POLYPHASE, NATIVE };
+    public enum ABCSearchMode{ EXHAUSTIVE, COARSE_TO_FINE, COMPARE };
     
     //event onset constants
     public static final double DEFAULT_EVENT_ONSET_BUFFER = 0.0;
@@ -198,6 +201,7 @@ public final class VFileConstants {
     public static final int DEFAULT_1ST_POLY_ORD_UPPER = 2;
     public static final int DEFAULT_3RD_POLY_ORD_LOWER = 1;
     public static final int DEFAULT_3RD_POLY_ORD_UPPER = 3;
+    public static final ABCSearchMode DEFAULT_ABC_SEARCH_MODE = ABCSearchMode.EXHAUSTIVE;
     
     //QC check constants
     public static final double DEFAULT_QA_INITIAL_VELOCITY = 0.1;
@@ -207,10 +211,35 @@ public final class VFileConstants {
     //differentiation order
     public static final int DEFAULT_DIFFORDER = 5;
     
+    //response spectra engine, one oscillator at a time or a block of
+    //oscillators advanced together
+    public static final SpectraEngine DEFAULT_SPECTRA_ENGINE = SpectraEngine.SCALAR;
+    
+    //resampling of low sample rate records, in the frequency domain or with
+    //a polyphase interpolator in the time domain
+    public static final ResamplingMode DEFAULT_RESAMPLING_MODE = ResamplingMode.FFT;
+    
     public static final String DEBUG_TO_LOG_ON = "On";
     public static final String BASELINE_WRITE_ON = "On";
     public static final String DELETE_INPUT_V0 = "Yes";
     
+    //batch execution, number of files processed concurrently
+    public static final int DEFAULT_NUM_WORKERS = 1;
+    public static final int MAX_NUM_WORKERS = 256;
+    
+    //batch pipeline, threads in the read and write stages and the number of
+    //files that can wait between stages
+    public static final int DEFAULT_PIPELINE_READERS = 1;
+    public static final int DEFAULT_PIPELINE_WRITERS = 1;
+    public static final int DEFAULT_PIPELINE_QUEUE_SIZE = 4;
+    
+    //watch folder mode, time a new file must be unchanged before processing,
+    //the interval for checking the folder, and the time to wait for the files
+    //in progress to finish on shutdown, in milliseconds
+    public static final long WATCH_STABLE_MSEC = 2000;
+    public static final long WATCH_POLL_MSEC = 500;
+    public static final long WATCH_SHUTDOWN_MSEC = 60000;
+    
     //V3 processing
     public static final int NUM_COEF_VALS = 6;
     public static final double[] V3_DAMPING_VALUES = {0.00, 0.02, 0.05, 0.10, 0.20};
@@ -15,15 +15,24 @@
 
 package SmControl;
 
-import SmConstants.VFileConstants;
-import static SmConstants.VFileConstants.RAWACC;
+import static SmConstants.VFileConstants.DEFAULT_NUM_WORKERS;
+import static SmConstants.VFileConstants.DEFAULT_PIPELINE_QUEUE_SIZE;
+import static SmConstants.VFileConstants.DEFAULT_PIPELINE_READERS;
+import static SmConstants.VFileConstants.DEFAULT_PIPELINE_WRITERS;
+import static SmConstants.VFileConstants.MAX_NUM_WORKERS;
 import SmException.FormatException;
 import SmException.SmException;
+import SmUtilities.APKtableCollector;
 import SmUtilities.ConfigReader;
 import SmUtilities.PrismLogger;
 import SmUtilities.PrismXMLReader;
 import SmUtilities.SmConfigConstants;
+import static SmUtilities.SmConfigConstants.NUMBER_OF_WORKERS;
+import static SmUtilities.SmConfigConstants.PIPELINE_QUEUE_SIZE;
+import static SmUtilities.SmConfigConstants.PIPELINE_READERS;
+import static SmUtilities.SmConfigConstants.PIPELINE_WRITERS;
 import SmUtilities.SmDebugLogger;
+import SmUtilities.SmRunJournal;
 import SmUtilities.SmTimeFormatter;
 import java.io.*;
 import java.lang.reflect.Field;
@@ -33,6 +42,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.xml.parsers.ParserConfigurationException;
 import org.xml.sax.SAXException;
 
@@ -43,18 +54,36 @@ import org.xml.sax.SAXException;
  * reads in *.V0 files in the folder and then processes each file in turn.
  * Processing involves reading in the file and parsing into record(s), running
  * the waveform processing algorithms to create the data products, and then
- * writing out the data in the different formats.
+ * writing out the data in the different formats.  If more than one worker is
+ * requested, either in the configuration file or with the --workers=N command
+ * line option, the input files are processed by a staged pipeline, see
+ * SmPipeline, with the workers in the processing stage, and the channels
+ * within each file are processed concurrently on a shared channel pool.
+ * With the --watch option, PRISM keeps running and processes each new file as
+ * it arrives in the input folder, see SmFolderWatcher.  Each completed file is
+ * recorded in the run journal in the Logs folder, and with the --resume option
+ * the files already completed in an earlier run are skipped.  The apktable
+ * rows for the run are collected in memory and written out together.
  * @author jmjones
  */
 public class Prism {
     private final String inFolder;
     private final String outFolder;
     private String configFile;
+    private int cmdWorkers;
+    private int numWorkers;
+    private boolean watchMode;
+    private boolean resumeMode;
+    private SmRunJournal journal;
+    private APKtableCollector apktable;
+    private static final String WORKERS_OPTION = "--workers=";
+    private static final String WATCH_OPTION = "--watch";
+    private static final String RESUME_OPTION = "--resume";
+    private static final String INPUT_FILE_GLOB = "*.[vV]0*";
 
     // data structures for the controller
     private File[] inVList;
-    private SmQueue smqueue;
-    private SmProduct Vproduct;
+    private ExecutorService channelPool;
     /**
      * Constructor for PRISM main
      * @param args input arguments
@@ -62,19 +91,35 @@ public class Prism {
      */
     public Prism (String[] args) throws SmException {
         this.configFile = "";
-        if (args.length > 1) {
-            File inDir = new File(args[0]);
-            File outDir = new File(args[1]);
+        this.cmdWorkers = 0;
+        this.numWorkers = DEFAULT_NUM_WORKERS;
+        this.watchMode = false;
+        this.resumeMode = false;
+        ArrayList<String> params = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(WORKERS_OPTION)) {
+                this.cmdWorkers = parseWorkerCount(arg.substring(WORKERS_OPTION.length()));
+            } else if (arg.equals(WATCH_OPTION)) {
+                this.watchMode = true;
+            } else if (arg.equals(RESUME_OPTION)) {
+                this.resumeMode = true;
+            } else {
+                params.add(arg);
+            }
+        }
+        if (params.size() > 1) {
+            File inDir = new File(params.get(0));
+            File outDir = new File(params.get(1));
             if (inDir.isDirectory() && outDir.isDirectory()) {
-                this.inFolder = args[0];
-                this.outFolder = args[1]; 
+                this.inFolder = params.get(0);
+                this.outFolder = params.get(1); 
             } else {
                 throw new SmException("Input and output directories are not recognized.");
             }
-            if (args.length == 3) {
-                Path configval = Paths.get(args[2]);
+            if (params.size() == 3) {
+                Path configval = Paths.get(params.get(2));
                 if (Files.isReadable(configval)) {
-                    this.configFile = args[2];
+                    this.configFile = params.get(2);
                 } else {
                     throw new SmException("Unable to read configuration file.");
                 }
@@ -88,14 +133,17 @@ public class Prism {
      * reads in all .v0 or .v0c file names in the input folder, processes each file
      * in turn, and then deletes the input file.
      * @param args input string arguments, input folder, output folder, optional
-     * configuration file (full path names)
+     * configuration file (full path names), the optional --workers=N
+     * number of files to process concurrently, the optional --watch to
+     * keep running and process new files as they arrive in the input folder,
+     * and the optional --resume to skip the files recorded as complete in the
+     * run journal
      * @throws SmException if a fatal error occurs during processing
      * @throws IOException if unable to read in the files or file names
      */
     public static void main(String[] args) throws SmException, IOException, Exception { 
         String config = "";
         int lineCount = 0; 
-        int recordCount = 0;
         // 
         try {
             Prism smc = new Prism( args ); 
@@ -111,16 +159,27 @@ public class Prism {
                 log.initializeLogger(smc.outFolder, logtime);
                 log.writeToLog(startLog);
                 errlog.initializeLogger(smc.outFolder, logtime);
+                smc.journal = new SmRunJournal(log.getLogFolder());
+                smc.journal.open(logtime);
+                smc.apktable = new APKtableCollector(log.getLogFolder(), logtime);
             } 
             catch (IOException err) {
                 throw new SmException("Unable to open the log files: " + err.getMessage());
             }
             //get the list of filenames in the input directory
+            //in watch mode the input folder may start out empty
             try {
-                smc.inVList = smc.getFileList( smc.inFolder, "*.[vV]0*" );
+                smc.inVList = smc.getFileList( smc.inFolder, INPUT_FILE_GLOB );
             }
             catch (IOException err) {
-                throw new SmException("Unable to access V0 file list: " + err.getMessage());
+                if (!smc.watchMode) {
+                    throw new SmException("Unable to access V0 file list: " + err.getMessage());
+                }
+                smc.inVList = new File[0];
+            }
+            //on resume, skip the files completed in an earlier run
+            if (smc.resumeMode) {
+                smc.inVList = smc.removeCompletedFiles(smc.inVList, log);
             }
             //get the configuration file
             if ( !smc.configFile.isEmpty()  ) {
@@ -132,35 +191,43 @@ public class Prism {
                     throw new SmException("Unable to access configuration file parameters for logging");
                 }
             }
+            //Get the number of workers, from the command line if given there,
+            //otherwise from the configuration file.
+            smc.numWorkers = smc.resolveWorkerCount();
+            
             //Get each filename, read in, parse, process, write it out. When  
             //going through the list of input files, report any problems 
             //with an individual file and move directly to the next file.  
             //Attempt to process all the files in the list.
-            for (File each: smc.inVList){
-                smc.smqueue = new SmQueue( each, logtime, log.getLogFolder() );
-                smc.Vproduct = new SmProduct(smc.outFolder);
-                try {
-                    smc.smqueue.readInFile( each );
-                    
-                    // parse the raw acceleration file into channel record(s)
-                    recordCount = smc.smqueue.parseVFile( RAWACC );
-                    
-                    //process the records, then write out results
-                    smc.smqueue.processQueueContents(smc.Vproduct);
-
-                    String[] outlist = smc.Vproduct.writeOutProducts("");
-                    log.writeToLog(outlist);
-                    String[] troublelist = smc.Vproduct.buildTroubleLog(outlist);
-                    if (troublelist.length > 0) {
-                        errlog.writeToLog(troublelist, VFileConstants.LogType.TROUBLE);
+            //With more than one worker, the channels within each file are
+            //also processed concurrently on a pool shared by all the files.
+            if (smc.numWorkers > 1) {
+                smc.channelPool = Executors.newFixedThreadPool(smc.numWorkers);
+            }
+            try {
+                if (smc.watchMode) {
+                    SmFolderWatcher watcher = new SmFolderWatcher(smc, 
+                                    smc.inFolder, INPUT_FILE_GLOB, logtime);
+                    watcher.watch();
+                } else if ((smc.numWorkers > 1) && (smc.inVList.length > 1)) {
+                    smc.processFilesConcurrently(logtime);
+                } else {
+                    for (File each: smc.inVList){
+                        smc.processFile(each, logtime);
                     }
-                    smc.Vproduct.deleteV0AfterProcessing(each);
                 }
-                catch (FormatException | IOException | SmException err) {
-                    String[] logtxt = new String[2];
-                    logtxt[0] = "Unable to process file " + each.toString();
-                    logtxt[1] = "\t" + err.getMessage();
-                    log.writeToLog(logtxt);
+            } finally {
+                if (smc.channelPool != null) {
+                    smc.channelPool.shutdownNow();
+                }
+                try {
+                    smc.apktable.flush();
+                } finally {
+                    try {
+                        smc.journal.close();
+                    } finally {
+                        log.close();
+                    }
                 }
             }
         } 
@@ -170,6 +237,105 @@ public class Prism {
         }
 
 
+    }
+    /**
+     * Reads in, parses, processes, and writes out the products for one input
+     * file. Any problems with the file are reported in the log and the method
+     * returns normally so that processing can move on to the next file.  This
+     * method is called by each worker when files are processed concurrently.
+     * @param each the input file
+     * @param logtime the start time of the run, used for the log file names
+     * @throws IOException if unable to write to the logs
+     * @throws Exception if an unexpected error occurs during processing
+     */
+    public void processFile( File each, String logtime ) throws IOException, Exception {
+        SmFileJob job = new SmFileJob(each, logtime, this.outFolder, 
+                                    this.channelPool, this.journal, this.apktable);
+        try {
+            job.read();
+
+            //process the records, then write out results
+            job.process();
+            job.write();
+        }
+        catch (FormatException | IOException | SmException err) {
+            job.logFailure(err);
+        }
+    }
+    /**
+     * Processes the input file list with the staged pipeline.  The read and
+     * write stages use the thread counts from the configuration file and the
+     * process stage uses the number of workers.  Each file keeps the same error
+     * handling as in sequential processing.  If a stage stops with an
+     * unexpected error, the remaining files are not processed and the error is
+     * passed on, just as the sequential loop would stop at that file.  The
+     * stage statistics are written to the log at the end.
+     * @param logtime the start time of the run, used for the log file names
+     * @throws SmException if the pipeline settings are invalid or the stages
+     * are interrupted
+     * @throws Exception if an unexpected error occurs during processing
+     */
+    public void processFilesConcurrently( final String logtime ) throws SmException, Exception {
+        ConfigReader config = ConfigReader.INSTANCE;
+        int readers = resolveStageCount(config.getConfigValue(PIPELINE_READERS), 
+                                                    DEFAULT_PIPELINE_READERS);
+        int writers = resolveStageCount(config.getConfigValue(PIPELINE_WRITERS), 
+                                                    DEFAULT_PIPELINE_WRITERS);
+        int queueSize = resolveStageCount(config.getConfigValue(PIPELINE_QUEUE_SIZE), 
+                                                    DEFAULT_PIPELINE_QUEUE_SIZE);
+        SmPipeline pipeline = new SmPipeline(this.inVList, logtime, this.outFolder,
+                this.channelPool, readers, this.numWorkers, writers, queueSize,
+                this.journal, this.apktable);
+        try {
+            pipeline.run();
+        } finally {
+            PrismLogger.INSTANCE.writeToLog(pipeline.getStageReport());
+        }
+    }
+    /**
+     * Gets a pipeline stage setting from the configuration file value, using
+     * the default if the value is not present.
+     * @param value the configuration file value, or null
+     * @param defval the default value
+     * @return the stage setting
+     * @throws SmException if the value is not a number or is out of range
+     */
+    private static int resolveStageCount( String value, int defval ) throws SmException {
+        return (value == null) ? defval : parseWorkerCount(value);
+    }
+    /**
+     * Determines the number of workers for batch processing.  A value given on
+     * the command line takes precedence over the configuration file value, and
+     * the default is used if neither is present.
+     * @return the number of workers
+     * @throws SmException if the configuration file value is invalid
+     */
+    public int resolveWorkerCount() throws SmException {
+        if (this.cmdWorkers > 0) {
+            return this.cmdWorkers;
+        }
+        ConfigReader config = ConfigReader.INSTANCE;
+        String workers = config.getConfigValue(NUMBER_OF_WORKERS);
+        return (workers == null) ? DEFAULT_NUM_WORKERS : parseWorkerCount(workers);
+    }
+    /**
+     * Parses and validates the number of workers
+     * @param value the text value for the number of workers
+     * @return the number of workers
+     * @throws SmException if the value is not a number or is out of range
+     */
+    private static int parseWorkerCount( String value ) throws SmException {
+        int count;
+        try {
+            count = Integer.parseInt(value.trim());
+        } catch (NumberFormatException err) {
+            throw new SmException("Invalid number of workers: " + value);
+        }
+        if ((count < 1) || (count > MAX_NUM_WORKERS)) {
+            throw new SmException("Number of workers must be between 1 and " 
+                                                        + MAX_NUM_WORKERS);
+        }
+        return count;
     }
     /**
      * Reads in the configuration file and parses the xml
@@ -220,6 +386,27 @@ public class Prism {
         String[] cfarr = new String[cflist.size()];
         log.writeToLog(cflist.toArray(cfarr));
     }
+    /**
+     * Removes the files recorded as complete in the run journal from the input
+     * file list and writes the number of files skipped to the log
+     * @param files the input file list
+     * @param log the logger for writing
+     * @return the files still to be processed
+     * @throws IOException if unable to write to the log
+     */
+    public File[] removeCompletedFiles(File[] files, PrismLogger log) throws IOException {
+        ArrayList<File> remaining = new ArrayList<>();
+        for (File each : files) {
+            if (!this.journal.isCompleted(each)) {
+                remaining.add(each);
+            }
+        }
+        String[] msg = new String[1];
+        msg[0] = "Resume: skipping " + (files.length - remaining.size()) 
+                            + " file(s) already completed in an earlier run";
+        log.writeToLog(msg);
+        return remaining.toArray(new File[remaining.size()]);
+    }
     /**
      * Gets the list of v0 files in the input folder and returns an array of
      * file names
@@ -269,20 +456,44 @@ public class Prism {
         return this.configFile;
     }
     /**
-     * Gets the list of input files
-     * @return the list of input files
+     * Gets the run journal
+     * @return the run journal
      */
-    public File[] getInVList()
+    public SmRunJournal getJournal()
     {
-        return this.inVList;
+        return this.journal;
     }
     /**
-     * Gets the processing queue
-     * @return the processing queue
+     * Gets the apktable collector for the run
+     * @return the apktable collector
      */
-    public SmQueue getSmqueue()
+    public APKtableCollector getApkTable()
     {
-        return this.smqueue;
+        return this.apktable;
+    }
+    /**
+     * Checks if files completed in an earlier run are to be skipped
+     * @return true if resuming an earlier run
+     */
+    public boolean isResumeMode()
+    {
+        return this.resumeMode;
+    }
+    /**
+     * Gets the number of workers used for batch processing
+     * @return the number of workers
+     */
+    public int getNumWorkers()
+    {
+        return this.numWorkers;
+    }
+    /**
+     * Gets the list of input files
+     * @return the list of input files
+     */
+    public File[] getInVList()
+    {
+        return this.inVList;
     }
     /**
      * Sets the input file list to the given list
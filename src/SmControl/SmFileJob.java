@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Name: Java class SmFileJob.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmControl;
+
+import SmConstants.VFileConstants;
+import static SmConstants.VFileConstants.RAWACC;
+import SmException.FormatException;
+import SmException.SmException;
+import SmUtilities.APKtableCollector;
+import SmUtilities.PrismLogger;
+import SmUtilities.SmDebugLogger;
+import SmUtilities.SmRunJournal;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * This class holds one input V0 file as it moves through the processing steps:
+ * reading and parsing the file into channel records, processing the records
+ * into the V1 - V3 products, and writing the products out.  The steps can be
+ * called one after the other by a single thread, or by the different stages
+ * of the processing pipeline.  Once the products have been written, or the
+ * failure has been logged, the job lets go of the records of the file.
+ * @author jmjones
+ */
+public class SmFileJob {
+    private final File inFile;
+    private final String logtime;
+    private final String outFolder;
+    private final ExecutorService channelPool;
+    private final SmRunJournal journal;
+    private final APKtableCollector apktable;
+    private SmQueue queue;
+    private SmProduct product;
+    private long inLength;
+    private long inModified;
+    /**
+     * Constructor for the file job
+     * @param inFile the input V0 file
+     * @param logtime the start time of the run, used for the log file names
+     * @param outFolder the top level output folder
+     * @param channelPool the pool for processing channels concurrently, or
+     * null to process the channels in sequence
+     * @param journal the run journal to record the completed file in, or null
+     * @param apktable the collector for the apktable rows of the batch, or
+     * null to write each row as it is built
+     */
+    public SmFileJob(File inFile, String logtime, String outFolder,
+                        ExecutorService channelPool, SmRunJournal journal,
+                        APKtableCollector apktable) {
+        this.inFile = inFile;
+        this.logtime = logtime;
+        this.outFolder = outFolder;
+        this.channelPool = channelPool;
+        this.journal = journal;
+        this.apktable = apktable;
+    }
+    /**
+     * Reads in the input file one record at a time and parses it into channel
+     * records
+     * @throws IOException if unable to read the file
+     * @throws FormatException if unable to parse the file due to unexpected formatting
+     * @throws SmException if unable to parse the file
+     */
+    public void read() throws IOException, FormatException, SmException {
+        this.queue = new SmQueue( inFile, logtime, PrismLogger.INSTANCE.getLogFolder() );
+        this.product = new SmProduct(outFolder);
+        queue.setChannelPool(channelPool);
+        queue.setApkTable(apktable);
+        this.inLength = inFile.length();
+        this.inModified = inFile.lastModified();
+        // read and parse the raw acceleration file into channel record(s)
+        queue.streamVFile( RAWACC );
+    }
+    /**
+     * Processes the channel records and hands the results to the product object
+     * @throws FormatException if unable to format, such as text to numerics
+     * @throws SmException if a processing error was found
+     * @throws IOException if unable to create directories, etc.
+     * @throws Exception if an unexpected error occurs during processing
+     */
+    public void process() throws FormatException, SmException, IOException, Exception {
+        queue.processQueueContents(product);
+    }
+    /**
+     * Writes out the products, updates the logs, and deletes the input file if
+     * requested in the configuration file.  The file is then recorded as
+     * complete in the run journal.  With an apktable collector, the journal
+     * entry is held by the collector and recorded with the flush that writes
+     * the file's apktable rows, so a file is never recorded as complete while
+     * its rows could still be lost.
+     * @throws IOException if unable to write out the products or logs
+     */
+    public void write() throws IOException {
+        PrismLogger log = PrismLogger.INSTANCE;
+        SmDebugLogger errlog = SmDebugLogger.INSTANCE;
+        String[] outlist = product.writeOutProducts("");
+        log.writeToLog(outlist);
+        String[] troublelist = product.buildTroubleLog(outlist);
+        if (troublelist.length > 0) {
+            errlog.writeToLog(troublelist, VFileConstants.LogType.TROUBLE);
+        }
+        product.deleteV0AfterProcessing(inFile);
+        if ((journal != null) && (apktable != null)) {
+            final long length = inLength;
+            final long modified = inModified;
+            apktable.runAfterRowsWritten(new APKtableCollector.RowsWritten() {
+                @Override
+                public void rowsWritten() throws IOException {
+                    journal.recordDone(inFile, length, modified);
+                }
+            });
+        } else if (journal != null) {
+            journal.recordDone(inFile, inLength, inModified);
+        }
+        release();
+    }
+    /**
+     * Writes the reason the file could not be processed to the log
+     * @param err the error that stopped the processing of the file
+     * @throws IOException if unable to write to the log
+     */
+    public void logFailure(Exception err) throws IOException {
+        String[] logtxt = new String[2];
+        logtxt[0] = "Unable to process file " + inFile.toString();
+        logtxt[1] = "\t" + err.getMessage();
+        PrismLogger.INSTANCE.writeToLog(logtxt);
+        if (journal != null) {
+            journal.recordFailed(inFile, err.getMessage());
+        }
+        release();
+    }
+    /**
+     * Drops the records and products of the file, which are no longer needed
+     * once the file is finished
+     */
+    private void release() {
+        this.queue = null;
+        this.product = null;
+    }
+    /**
+     * Getter for the input file
+     * @return the input file
+     */
+    public File getInFile() {
+        return inFile;
+    }
+    /**
+     * Getter for the processing queue, available after the file has been read
+     * and until it has been written out or its failure logged
+     * @return the processing queue
+     */
+    public SmQueue getQueue() {
+        return queue;
+    }
+    /**
+     * Getter for the product object, available after the file has been read
+     * and until it has been written out or its failure logged
+     * @return the product object
+     */
+    public SmProduct getProduct() {
+        return product;
+    }
+}
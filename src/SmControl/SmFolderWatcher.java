@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Name: Java class SmFolderWatcher.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmControl;
+
+import static SmConstants.VFileConstants.WATCH_POLL_MSEC;
+import static SmConstants.VFileConstants.WATCH_SHUTDOWN_MSEC;
+import static SmConstants.VFileConstants.WATCH_STABLE_MSEC;
+import SmException.SmException;
+import SmUtilities.PrismLogger;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class runs PRISM as a long-running process that watches the input folder
+ * for new V0 files and processes each one as soon as it has been completely
+ * written.  A file is considered complete when its size and modification time
+ * have not changed for WATCH_STABLE_MSEC, so files that are still being copied
+ * into the folder are skipped until the copy is done.  Files already in the
+ * folder when the watch starts are processed the same way.  On shutdown the
+ * watcher stops accepting new files and waits up to WATCH_SHUTDOWN_MSEC for
+ * the files already handed to the workers to finish before the process exits.
+ * Files still in progress after that are interrupted, and since they are not
+ * recorded as complete in the run journal they are picked up again on resume.
+ * @author jmjones
+ */
+public class SmFolderWatcher {
+    private final Prism prism;
+    private final String logtime;
+    private final Path inDir;
+    private final PathMatcher matcher;
+    private final int numWorkers;
+    private final Map<Path, FileState> pending;
+    private final Map<Path, Long> processed;
+    private final CountDownLatch stopped;
+    private volatile boolean running;
+    /**
+     * Constructor for the folder watcher
+     * @param prism the batch controller that processes each file
+     * @param inFolder the input folder to watch
+     * @param glob the file name pattern for the input files
+     * @param logtime the start time of the run, used for the log file names
+     */
+    public SmFolderWatcher(Prism prism, String inFolder, String glob, String logtime) {
+        this.prism = prism;
+        this.logtime = logtime;
+        this.inDir = new File(inFolder).toPath();
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        this.numWorkers = prism.getNumWorkers();
+        this.pending = new LinkedHashMap<>();
+        this.processed = new ConcurrentHashMap<>();
+        this.stopped = new CountDownLatch(1);
+        this.running = false;
+    }
+    /**
+     * Watches the input folder until the process is shut down.  Stable input
+     * files are handed to a pool of workers, sized by the number of workers for
+     * batch processing.  A shutdown hook stops the watch and waits here for the
+     * workers to drain before letting the process exit.
+     * @throws IOException if unable to watch the input folder
+     * @throws SmException if unable to write to the log
+     */
+    public void watch() throws IOException, SmException {
+        PrismLogger log = PrismLogger.INSTANCE;
+        ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+        running = true;
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                running = false;
+                try {
+                    stopped.await();
+                } catch (InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            inDir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            log.writeToLog(new String[]{"Watching folder " + inDir.toString()});
+            scanFolder();
+            while (running) {
+                WatchKey key = watcher.poll(WATCH_POLL_MSEC, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            pruneProcessed();
+                            scanFolder();
+                        } else {
+                            Path name = (Path)event.context();
+                            if (event.kind() == ENTRY_DELETE) {
+                                processed.remove(inDir.resolve(name));
+                                continue;
+                            }
+                            if (event.kind() == ENTRY_CREATE) {
+                                processed.remove(inDir.resolve(name));
+                            }
+                            addCandidate(inDir.resolve(name));
+                        }
+                    }
+                    if (!key.reset()) {
+                        throw new SmException("Input folder " + inDir.toString()
+                                                    + " is no longer accessible");
+                    }
+                }
+                submitStableFiles(pool, System.currentTimeMillis());
+                prism.getApkTable().flushIfDue();
+            }
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        } finally {
+            //finish the files already handed to the workers before exiting,
+            //but do not hold up the shutdown for longer than the time limit
+            pool.shutdown();
+            try {
+                if (!pool.awaitTermination(WATCH_SHUTDOWN_MSEC, TimeUnit.MILLISECONDS)) {
+                    pool.shutdownNow();
+                }
+            } catch (InterruptedException err) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            try {
+                prism.getApkTable().flush();
+            } finally {
+                try {
+                    log.writeToLog(new String[]{"Stopped watching folder " + inDir.toString()});
+                    log.close();
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        }
+    }
+    /**
+     * Adds all the input files currently in the folder to the candidates
+     * @throws IOException if unable to read the folder contents
+     */
+    private void scanFolder() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inDir)) {
+            for (Path entry : stream) {
+                addCandidate(entry);
+            }
+        }
+    }
+    /**
+     * Removes the processed files that are no longer in the folder.  Deleted
+     * files are normally removed as their delete events come in, so this is
+     * only needed when events were lost.
+     */
+    private void pruneProcessed() {
+        Iterator<Path> iter = processed.keySet().iterator();
+        while (iter.hasNext()) {
+            if (!Files.exists(iter.next())) {
+                iter.remove();
+            }
+        }
+    }
+    /**
+     * Adds an input file to the candidates waiting to become stable.  Files
+     * that do not match the input file pattern, or that were already processed
+     * and have not changed since, are ignored, as are the files completed in
+     * an earlier run when resuming.
+     * @param file the file to add
+     */
+    private void addCandidate(Path file) {
+        if (!matcher.matches(file.getFileName()) || pending.containsKey(file)) {
+            return;
+        }
+        Long done = processed.get(file);
+        if ((done != null) && (done == file.toFile().lastModified())) {
+            return;
+        }
+        if (prism.isResumeMode() && prism.getJournal().isCompleted(file.toFile())) {
+            return;
+        }
+        pending.put(file, new FileState());
+    }
+    /**
+     * Checks each candidate file and hands the ones that have not changed for
+     * the stability interval to the workers.  Files that have disappeared are
+     * dropped from the candidates.
+     * @param pool the worker pool
+     * @param now the current time in milliseconds
+     */
+    private void submitStableFiles(ExecutorService pool, long now) {
+        Iterator<Map.Entry<Path, FileState>> iter = pending.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Path, FileState> entry = iter.next();
+            final File file = entry.getKey().toFile();
+            FileState state = entry.getValue();
+            if (!file.isFile()) {
+                iter.remove();
+            } else if (state.isStable(file.length(), file.lastModified(), now)) {
+                iter.remove();
+                processed.put(entry.getKey(), state.modified);
+                pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        processFile(file);
+                    }
+                });
+            }
+        }
+    }
+    /**
+     * Processes one input file.  Any unexpected error is logged and the watch
+     * continues with the next file.
+     * @param file the input file
+     */
+    private void processFile(File file) {
+        try {
+            prism.processFile(file, logtime);
+        } catch (Exception err) {
+            try {
+                PrismLogger.INSTANCE.writeToLog(new String[]{
+                            "Unable to process file " + file.toString(),
+                            "\t" + err.getMessage()});
+            } catch (IOException logerr) {
+                System.err.println(err.getMessage());
+            }
+        }
+    }
+    /**
+     * Tracks the size and modification time of a candidate file and how long
+     * they have been unchanged.
+     */
+    private static class FileState {
+        private long size = -1;
+        private long modified = -1;
+        private long since = 0;
+        /**
+         * Updates the state with the current size and modification time and
+         * checks if the file has been unchanged for the stability interval.
+         * @param cursize the current file size
+         * @param curmodified the current modification time
+         * @param now the current time in milliseconds
+         * @return true if the file is stable and ready for processing
+         */
+        private boolean isStable(long cursize, long curmodified, long now) {
+            if ((cursize != size) || (curmodified != modified)) {
+                size = cursize;
+                modified = curmodified;
+                since = now;
+                return false;
+            }
+            return (size > 0) && (now - since >= WATCH_STABLE_MSEC);
+        }
+    }
+}
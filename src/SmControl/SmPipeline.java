@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * Name: Java class SmPipeline.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmControl;
+
+import SmException.FormatException;
+import SmException.SmException;
+import SmUtilities.APKtableCollector;
+import SmUtilities.SmRunJournal;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class runs the batch processing as a pipeline of three stages: a read
+ * stage that reads and parses the input files, a process stage that runs the
+ * V1 - V3 processing, and a write stage that writes out the products and logs.
+ * Each stage has its own number of threads, and the stages hand the files on
+ * through bounded queues, so that reading, processing, and writing can all be
+ * busy at the same time while a slow stage holds back the stages before it.
+ * A file with a processing problem is logged and dropped from the pipeline at
+ * the stage where the problem occurred.  An unexpected error, including an
+ * Error such as running out of memory, stops any further work and is passed
+ * on once the pipeline has emptied.  The queue depth and
+ * throughput of each stage can be checked while the pipeline runs and are
+ * reported in the log at the end.  The file jobs are created as the files are
+ * queued for the read stage and are only held by the stage queues, so the
+ * records of a file can be freed as soon as it leaves the write stage.
+ * @author jmjones
+ */
+public class SmPipeline {
+    //marks the end of the input for the stage threads
+    private static final SmFileJob END_OF_INPUT = new SmFileJob(null, null, null, null, null, null);
+
+    private final File[] files;
+    private final String logtime;
+    private final String outFolder;
+    private final ExecutorService channelPool;
+    private final SmRunJournal journal;
+    private final APKtableCollector apktable;
+    private final PipelineStage readStage;
+    private final PipelineStage processStage;
+    private final PipelineStage writeStage;
+    private final AtomicReference<Throwable> failure;
+    private long startTime;
+    /**
+     * Constructor for the pipeline
+     * @param files the input files to process
+     * @param logtime the start time of the run, used for the log file names
+     * @param outFolder the top level output folder
+     * @param channelPool the pool for processing channels concurrently, or null
+     * @param readers the number of threads in the read stage
+     * @param workers the number of threads in the process stage
+     * @param writers the number of threads in the write stage
+     * @param queueSize the maximum number of files waiting between stages
+     * @param journal the run journal to record completed files in, or null
+     * @param apktable the collector for the apktable rows of the batch, or null
+     */
+    public SmPipeline(File[] files, String logtime, String outFolder,
+                                ExecutorService channelPool, int readers,
+                                int workers, int writers, int queueSize,
+                                SmRunJournal journal, APKtableCollector apktable) {
+        this.files = files;
+        this.logtime = logtime;
+        this.outFolder = outFolder;
+        this.channelPool = channelPool;
+        this.journal = journal;
+        this.apktable = apktable;
+        //the read stage queue holds all of the files from the start
+        this.readStage = new PipelineStage("read", readers,
+                    new ArrayBlockingQueue<SmFileJob>(files.length + readers));
+        this.processStage = new PipelineStage("process", workers,
+                    new ArrayBlockingQueue<SmFileJob>(queueSize));
+        this.writeStage = new PipelineStage("write", writers,
+                    new ArrayBlockingQueue<SmFileJob>(queueSize));
+        this.failure = new AtomicReference<>();
+    }
+    /**
+     * Runs all the input files through the pipeline and waits for the pipeline
+     * to empty.
+     * @throws SmException if interrupted while waiting
+     * @throws Exception the first unexpected error that occurred in a stage,
+     * or the Error itself if the first unexpected error was an Error
+     */
+    public void run() throws SmException, Exception {
+        startTime = System.nanoTime();
+        int threads = readStage.threads + processStage.threads + writeStage.threads;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (File file : files) {
+                readStage.addJob(createJob(file));
+            }
+            readStage.finishInput();
+            readStage.start(pool, processStage);
+            processStage.start(pool, writeStage);
+            writeStage.start(pool, null);
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new SmException("Batch processing was interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+        Throwable err = failure.get();
+        if (err instanceof Error) {
+            throw (Error)err;
+        } else if (err instanceof Exception) {
+            throw (Exception)err;
+        } else if (err != null) {
+            throw new SmException("Unexpected error in batch processing: " + err);
+        }
+    }
+    /**
+     * Builds the end of run report on each stage, with the number of files
+     * handled, the largest number of files waiting in the stage queue, and
+     * the throughput in files per second.
+     * @return the report text
+     */
+    public String[] getStageReport() {
+        PipelineStage[] stages = getStages();
+        String[] report = new String[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            PipelineStage stage = stages[i];
+            report[i] = String.format("Pipeline stage %s: threads %d, files %d, "
+                    + "max queue depth %d, throughput %.2f files/sec, busy %.2f sec",
+                    stage.getName(), stage.getThreads(), stage.getFilesDone(),
+                    stage.getMaxQueueDepth(), stage.getThroughput(),
+                    stage.getBusySeconds());
+        }
+        return report;
+    }
+    /**
+     * Getter for the pipeline stages, in processing order
+     * @return the read, process, and write stages
+     */
+    public PipelineStage[] getStages() {
+        return new PipelineStage[]{readStage, processStage, writeStage};
+    }
+    /**
+     * Creates the job that carries one input file through the pipeline
+     * @param file the input file
+     * @return the file job
+     */
+    protected SmFileJob createJob(File file) {
+        return new SmFileJob(file, logtime, outFolder, channelPool, journal, apktable);
+    }
+    /**
+     * Runs one stage step on a file.  Problems with the file are written to the
+     * log and the file goes no further in the pipeline.
+     * @param stage the stage running the step
+     * @param job the file
+     * @return true if the file should be passed on to the next stage
+     * @throws Exception if an unexpected error occurs
+     */
+    private boolean runStep(PipelineStage stage, SmFileJob job) throws Exception {
+        try {
+            if (stage == readStage) {
+                job.read();
+            } else if (stage == processStage) {
+                job.process();
+            } else {
+                job.write();
+            }
+            return true;
+        } catch (FormatException | IOException | SmException err) {
+            job.logFailure(err);
+            return false;
+        }
+    }
+    /**
+     * This class is one stage of the pipeline, with its input queue, its
+     * threads, and the counts for its queue depth and throughput.
+     */
+    public class PipelineStage {
+        private final String name;
+        private final int threads;
+        private final BlockingQueue<SmFileJob> input;
+        private final AtomicInteger active;
+        private final AtomicInteger depth;
+        private final AtomicInteger filesDone;
+        private final AtomicInteger maxDepth;
+        private final AtomicLong busyNanos;
+        private volatile long lastDone;
+        /**
+         * Constructor for the stage
+         * @param name the stage name for the report
+         * @param threads the number of threads for the stage
+         * @param input the queue of files waiting for the stage
+         */
+        private PipelineStage(String name, int threads, BlockingQueue<SmFileJob> input) {
+            this.name = name;
+            this.threads = threads;
+            this.input = input;
+            this.active = new AtomicInteger(threads);
+            this.depth = new AtomicInteger(0);
+            this.filesDone = new AtomicInteger(0);
+            this.maxDepth = new AtomicInteger(0);
+            this.busyNanos = new AtomicLong(0);
+            this.lastDone = 0;
+        }
+        /**
+         * Starts the stage threads on the pool
+         * @param pool the thread pool for the pipeline
+         * @param next the next stage, or null for the last stage
+         */
+        private void start(ExecutorService pool, final PipelineStage next) {
+            for (int i = 0; i < threads; i++) {
+                pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        runStage(next);
+                    }
+                });
+            }
+        }
+        /**
+         * Takes files from the stage queue until the end of the input, runs the
+         * stage step on each, and passes the successful ones on to the next
+         * stage.  After an unexpected error in any stage the remaining files are
+         * only drained from the queue, so that no stage is left waiting on a
+         * full queue.  The last thread of the stage to finish marks the end of
+         * the input for the next stage.
+         * @param next the next stage, or null for the last stage
+         */
+        private void runStage(PipelineStage next) {
+            try {
+                while (true) {
+                    SmFileJob job = input.take();
+                    if (job == END_OF_INPUT) {
+                        break;
+                    }
+                    depth.decrementAndGet();
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    boolean passOn;
+                    try {
+                        passOn = runStep(this, job);
+                    } catch (Throwable err) {
+                        failure.compareAndSet(null, err);
+                        passOn = false;
+                    }
+                    busyNanos.addAndGet(System.nanoTime() - start);
+                    filesDone.incrementAndGet();
+                    lastDone = System.nanoTime();
+                    if (passOn && (next != null)) {
+                        next.addJob(job);
+                    }
+                }
+            } catch (InterruptedException err) {
+                failure.compareAndSet(null, new SmException("Batch processing was interrupted"));
+                Thread.currentThread().interrupt();
+            } catch (Throwable err) {
+                failure.compareAndSet(null, err);
+                drainInput();
+            } finally {
+                if ((active.decrementAndGet() == 0) && (next != null)) {
+                    next.finishInput();
+                }
+            }
+        }
+        /**
+         * Takes the remaining files from the stage queue without running them,
+         * up to this thread's end of the input
+         */
+        private void drainInput() {
+            try {
+                while (input.take() != END_OF_INPUT) {
+                    depth.decrementAndGet();
+                }
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        /**
+         * Adds a file to the stage queue, waiting for space if the queue is full
+         * @param job the file
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private void addJob(SmFileJob job) throws InterruptedException {
+            updateMaxDepth(depth.incrementAndGet());
+            input.put(job);
+        }
+        /**
+         * Marks the end of the input for each of the stage threads
+         */
+        private void finishInput() {
+            for (int i = 0; i < threads; i++) {
+                try {
+                    input.put(END_OF_INPUT);
+                } catch (InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                    input.offer(END_OF_INPUT);
+                }
+            }
+        }
+        /**
+         * Records the largest queue depth seen by the stage
+         * @param newDepth the current queue depth
+         */
+        private void updateMaxDepth(int newDepth) {
+            int current = maxDepth.get();
+            while ((newDepth > current) && !maxDepth.compareAndSet(current, newDepth)) {
+                current = maxDepth.get();
+            }
+        }
+        /**
+         * Getter for the stage name
+         * @return the stage name
+         */
+        public String getName() {
+            return name;
+        }
+        /**
+         * Getter for the number of threads in the stage
+         * @return the number of threads
+         */
+        public int getThreads() {
+            return threads;
+        }
+        /**
+         * Getter for the number of files currently waiting for the stage.  A
+         * file being added to a full queue is already counted as waiting.
+         * @return the current queue depth
+         */
+        public int getQueueDepth() {
+            return depth.get();
+        }
+        /**
+         * Getter for the largest number of files seen waiting for the stage
+         * @return the largest queue depth
+         */
+        public int getMaxQueueDepth() {
+            return maxDepth.get();
+        }
+        /**
+         * Getter for the number of files the stage has handled
+         * @return the number of files handled
+         */
+        public int getFilesDone() {
+            return filesDone.get();
+        }
+        /**
+         * Getter for the total time the stage threads spent working on files
+         * @return the busy time in seconds
+         */
+        public double getBusySeconds() {
+            return busyNanos.get() * 1.0e-9;
+        }
+        /**
+         * Getter for the stage throughput, the number of files handled per
+         * second from the start of the pipeline to the last file handled
+         * @return the throughput in files per second
+         */
+        public double getThroughput() {
+            long end = lastDone;
+            double elapsed = (end - startTime) * 1.0e-9;
+            return (end == 0 || elapsed <= 0.0) ? 0.0 : filesDone.get() / elapsed;
+        }
+    }
+}
@@ -14,6 +14,7 @@
 
 package SmControl;
 
+import COSMOSformat.COSMOScontentFormat;
 import COSMOSformat.V0Component;
 import COSMOSformat.V1Component;
 import COSMOSformat.V2Component;
@@ -21,10 +22,14 @@ import COSMOSformat.V3Component;
 import static SmConstants.VFileConstants.DELETE_INPUT_V0;
 import SmUtilities.ConfigReader;
 import static SmUtilities.SmConfigConstants.DELETE_V0;
-import SmUtilities.TextFileWriter;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -39,6 +44,7 @@ import java.util.regex.Pattern;
  * @author jmjones
  */
 public class SmProduct extends SmProductFormat {
+    private static final int WRITE_BUFFER_SIZE = 65536; // chars buffered per product
     private boolean deleteInputFiles;
     
     /**
@@ -66,21 +72,17 @@ public class SmProduct extends SmProductFormat {
      */
     @Override
     public String[] writeOutProducts(String inDir) throws IOException {
-        TextFileWriter textout;
         Iterator iter;
         Path outName = null;
-        String[] contents;
         String chanvalue;
         //write out V0s
         iter = super.V0List.iterator();
         while (iter.hasNext()) {
             V0Component rec0 = (V0Component)iter.next();
-            contents = rec0.VrecToText();
             chanvalue = (super.V0List.size() > 1) ? rec0.getChannel() : "";
             outName = buildFilename(rec0.getStationDir(),super.V0DIR, rec0.getFileName(),
                                                     "V0c", chanvalue, "");
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeProduct(rec0, outName);
             super.loglist.add(outName.toString());
         }
         super.V0List.clear();
@@ -88,12 +90,10 @@ public class SmProduct extends SmProductFormat {
         iter = super.V1List.iterator();
         while (iter.hasNext()) {
             V1Component rec1 = (V1Component)iter.next();
-            contents = rec1.VrecToText();
             chanvalue = (super.V1List.size() > 1) ? rec1.getChannel() : "";
             outName = buildFilename(rec1.getStationDir(),super.V1DIR, rec1.getFileName(),
                                                     "V1c", chanvalue, "");
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeProduct(rec1, outName);
             super.loglist.add(outName.toString());
         }
         super.V1List.clear();
@@ -101,12 +101,10 @@ public class SmProduct extends SmProductFormat {
         iter = super.V2List.iterator();
         while (iter.hasNext()) {
             V2Component rec2 = (V2Component)iter.next();
-            contents = rec2.VrecToText();
             chanvalue = (super.V2List.size() > 3) ? rec2.getChannel() : "";
             outName = buildFilename(rec2.getStationDir(),super.V2DIR, rec2.getFileName(),
                                                   "V2c", chanvalue, "acc");
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeProduct(rec2, outName);
             super.loglist.add(outName.toString());
             
             //get velocity and write to file
@@ -114,9 +112,7 @@ public class SmProduct extends SmProductFormat {
                 rec2 = (V2Component)iter.next();
                 outName = buildFilename(rec2.getStationDir(),super.V2DIR, rec2.getFileName(),
                                                     "V2c",chanvalue, "vel");
-                contents = rec2.VrecToText();
-                textout = new TextFileWriter(outName, contents);
-                textout.writeOutToFile();
+                writeProduct(rec2, outName);
                 super.loglist.add(outName.toString());
             }
             //get displacement and write to file
@@ -124,9 +120,7 @@ public class SmProduct extends SmProductFormat {
                 rec2 = (V2Component)iter.next();
                 outName = buildFilename(rec2.getStationDir(),super.V2DIR, rec2.getFileName(),
                                                     "V2c", chanvalue, "dis");
-                contents = rec2.VrecToText();
-                textout = new TextFileWriter(outName, contents);
-                textout.writeOutToFile();
+                writeProduct(rec2, outName);
                 super.loglist.add(outName.toString());
             }
         }
@@ -138,9 +132,7 @@ public class SmProduct extends SmProductFormat {
             chanvalue = (super.V3List.size() > 1) ? rec3.getChannel() : "";
             outName = buildFilename(rec3.getStationDir(), super.V3DIR, rec3.getFileName(),
                                                    "V3c", chanvalue, "");
-            contents = rec3.VrecToText();
-            textout = new TextFileWriter(outName, contents);
-            textout.writeOutToFile();
+            writeProduct(rec3, outName);
             super.loglist.add(outName.toString());
         }
         super.V3List.clear();
@@ -150,6 +142,29 @@ public class SmProduct extends SmProductFormat {
         super.loglist.clear();
         return outlist;
     }
+    /**
+     * Writes one product out to its file.  The record is written section by
+     * section through a buffered writer, so the full text of the product is
+     * never held in memory.  The output directories are looked up from the
+     * layouts remembered for the run, so if the product directory has been
+     * removed since, it is created again before the write is retried.
+     * @param rec the COSMOS record to write out
+     * @param outName the full path name of the output file
+     * @throws IOException if unable to write out the file
+     */
+    private void writeProduct(COSMOScontentFormat rec, Path outName) throws IOException {
+        OutputStream out;
+        try {
+            out = Files.newOutputStream(outName);
+        } catch (NoSuchFileException err) {
+            Files.createDirectories(outName.getParent());
+            out = Files.newOutputStream(outName);
+        }
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                                out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            rec.writeVrec(writer);
+        }
+    }
     /**
      * Builds the output filename from a folder path, file name, file extension,
      * channel number, and V2 processing type extension
@@ -29,8 +29,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This abstract class defines the shared methods for the prism product generation 
@@ -52,6 +51,10 @@ abstract class SmProductFormat {
     protected final String V1DIR = "V1";
     protected final String V2DIR = "V2";
     protected final String V3DIR = "V3";
+    //the output directories already in place, by output folder, event,
+    //station, and V2 status, shared by all the products in the run
+    private static final ConcurrentHashMap<String, File[]> LAYOUTS = 
+                                                    new ConcurrentHashMap<>();
     
     /**
      * Constructor for the product class.
@@ -89,6 +92,15 @@ abstract class SmProductFormat {
     }
     /**
      * Method to set up the directory structure within the output directory.
+     * The directories created for each combination of output folder, event,
+     * station, and V2 status are remembered for the rest of the run, so that
+     * later records for the same station only look up the directories instead
+     * of checking for each one in the file system.  Concurrent workers can
+     * set up the same directories at the same time.  If the station directory
+     * has been removed since it was remembered, the directories are created
+     * again.  Only the station directory is checked when a layout is reused,
+     * so a V0 - V3 directory removed on its own is created again when a
+     * product is written into it.
      * @param rcid extracted from the input file, this defines the folder structure
      * according to the SCNL code
      * @param scnlauth must be present in the V0 for the standard folder structure
@@ -107,54 +119,76 @@ abstract class SmProductFormat {
             event = rcdvalid.getEventID();
             station = rcdvalid.getStationID();
         }
+        String key = new StringBuilder(MAX_LINE_LENGTH).append(this.outFolder)
+                    .append(File.pathSeparator).append(event)
+                    .append(File.pathSeparator).append(station)
+                    .append(File.pathSeparator).append(V2result).toString();
+        File[] layout = LAYOUTS.get(key);
+        if ((layout == null) || (!layout[2].isDirectory())) {
+            layout = createDirectories(event, station, V2result);
+            //only remember the layout once all of its directories are in place
+            if (layout != null) {
+                LAYOUTS.put(key, layout);
+            } else {
+                LAYOUTS.remove(key);
+            }
+        }
+        if (layout != null) {
+            this.logDir = layout[0];
+            this.eventDir = layout[1];
+            this.stationDir = layout[2];
+        }
+    }
+    /**
+     * Creates the log, event, station, and V0 - V3 directories for a record,
+     * setting the log, event, and station directory fields as they are created
+     * @param event the event directory name
+     * @param station the station directory name
+     * @param V2result flag for the creation of a Trouble folder
+     * @return the log, event, and station directories, or null if any of the
+     * directories could not be created
+     */
+    private File[] createDirectories(String event, String station, 
+                                            VFileConstants.V2Status V2result) {
+        boolean created;
         //create the log folder
         File logId = Paths.get(this.outFolder, "Logs").toFile();
-        if (!logId.isDirectory()) {
-            logId.mkdir();
-        }
+        created = makeDirectory(logId);
         this.logDir = logId;
         
         //create the event and station directories
         File eventId = Paths.get(this.outFolder, event).toFile();
-        if (!eventId.isDirectory()) {
-            eventId.mkdir();
-        }
+        created &= makeDirectory(eventId);
         this.eventDir = eventId;
         
         File stationId = Paths.get(eventId.toString(), station).toFile();
-        if (!stationId.isDirectory()) {
-            stationId.mkdir();
-        }
+        created &= makeDirectory(stationId);
         
         if (V2result != VFileConstants.V2Status.GOOD) {
             stationId = Paths.get(eventId.toString(), station, "Trouble").toFile();
-            if (!stationId.isDirectory()) {
-                stationId.mkdir();
-            }
+            created &= makeDirectory(stationId);
         }
         this.stationDir = stationId;
         
         //Create the V0 - V3 folders
-        File V0Id = Paths.get(stationId.toString(), V0DIR).toFile();
-        if (!V0Id.isDirectory()) {
-            V0Id.mkdir();
-        }
-        File V1Id = Paths.get(stationId.toString(), V1DIR).toFile();
-        if (!V1Id.isDirectory()) {
-            V1Id.mkdir();
-        }
+        created &= makeDirectory(Paths.get(stationId.toString(), V0DIR).toFile());
+        created &= makeDirectory(Paths.get(stationId.toString(), V1DIR).toFile());
         if ((V2result == VFileConstants.V2Status.GOOD) || (V2result == VFileConstants.V2Status.FAILQC)) {
-            File V2Id = Paths.get(stationId.toString(), V2DIR).toFile();
-            if (!V2Id.isDirectory()) {
-                V2Id.mkdir();
-            }
+            created &= makeDirectory(Paths.get(stationId.toString(), V2DIR).toFile());
         }
         if (V2result == VFileConstants.V2Status.GOOD) {  //V3 processing only occurs on valid V2 products
-            File V3Id = Paths.get(stationId.toString(), V3DIR).toFile();
-            if (!V3Id.isDirectory()) {
-                V3Id.mkdir();
-            }        
+            created &= makeDirectory(Paths.get(stationId.toString(), V3DIR).toFile());
         }
+        return (created) ? new File[]{logId, eventId, stationId} : null;
+    }
+    /**
+     * Creates the directory if it is not already there.  If another worker
+     * creates the directory at the same time, the directory is still found.
+     * @param dir the directory to create
+     * @return true if the directory is in place
+     */
+    private static boolean makeDirectory(File dir) {
+        return dir.isDirectory() || dir.mkdir() || dir.isDirectory();
     }
     /**
      * Writes out each of the products to the respective folder, first creating
@@ -184,24 +218,7 @@ abstract class SmProductFormat {
      * @return true if record id has a recognized format, false if it doesn't
      */
     public boolean validateRcrdId( String id ) {
-        StringBuilder sb = new StringBuilder(80);
-        String pat = sb.append("^")
-                       .append("(\\w+)")
-                       .append("(\\.)")
-                       .append("(\\w+)")
-                       .append("(\\.)")
-                       .append("(\\w+)")
-                       .append("(\\.)")
-                       .append("(\\w+)")
-                       .append("(\\.)")
-                       .append("(\\w+)")
-                       .append("(\\.)")
-                       .append("[\\w-]+")
-                       .append("$")
-                       .toString();
-        Pattern officialname = Pattern.compile(pat);
-        Matcher m = officialname.matcher(id);
-        return m.matches();
+        return new RecordIDValidator(id).isValidRcrdID();
     }
     public File getStationDir() {return this.stationDir;}
     public void setStationDir(File stationid) {this.stationDir = stationid;}
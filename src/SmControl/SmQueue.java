@@ -15,6 +15,7 @@
 package SmControl;
 
 import COSMOSformat.COSMOScontentFormat;
+import COSMOSformat.COSMOSheaderLexer;
 import COSMOSformat.V0Component;
 import COSMOSformat.V1Component;
 import COSMOSformat.V2Component;
@@ -26,16 +27,25 @@ import SmException.SmException;
 import SmProcessing.V1Process;
 import SmProcessing.V2Process;
 import SmProcessing.V3Process;
+import SmUtilities.APKtableCollector;
 import SmUtilities.BuildAPKtable;
+import SmUtilities.SmProcessingContext;
 import SmUtilities.TextFileReader;
+import SmUtilities.TextRecordReader;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  *  This class builds a queue of all the records in one input V0 file.  The file
  * may contain only one channel or could have mulitple channels bundled together.
  * The contents of the queue are processed to create V1 - V3 records, complete
- * with their text files ready for writing out to file.
+ * with their text files ready for writing out to file.  The channels may be
+ * processed concurrently on a channel pool, but their products are always
+ * handed off in the order the channels appear in the file.
  * @author jmjones
  */
 public class SmQueue {
@@ -44,6 +54,8 @@ public class SmQueue {
     private String[] fileContents;  // the input file contents by line
     private String logtime;
     private File logfolder;
+    private ExecutorService channelPool;
+    private APKtableCollector apktable;
     /**
      * Constructor for SmQueue
      * @param inFileName input file name
@@ -85,39 +97,80 @@ public class SmQueue {
         smlist = new ArrayList<>();
         
         while (currentLine < fileContents.length) {
-            if (dataType.equals( RAWACC )) {
-                V0Component rec = new V0Component( dataType );
-                returnLine = rec.loadComponent(currentLine, fileContents);
-                currentLine = (returnLine > currentLine) ? returnLine : fileContents.length;
+            COSMOScontentFormat rec = newRecord(dataType, fileContents[currentLine]);
+            returnLine = rec.loadComponent(currentLine, fileContents);
+            currentLine = (returnLine > currentLine) ? returnLine : fileContents.length;
+            smlist.add(rec);
+        }
+        return smlist.size();
+    }
+    /**
+     * Reads the input file one channel record at a time and parses each record
+     * as soon as its End-of-data line is reached, creating the same queue of
+     * records as readInFile followed by parseVFile.  Only the text of the
+     * current record is held in memory, so memory use scales with the size of
+     * one channel instead of the whole file.
+     * 
+     * @param dataType the type of file read in (V0, V1, etc.)
+     * @return the number of records in the queue
+     * @throws IOException if unable to read the file or the file is empty
+     * @throws FormatException if unable to parse the file due to unexpected formatting
+     * @throws NumberFormatException if unable to convert text to expected numeric
+     * @throws SmException if unable to parse the file, see log file
+     */
+    public int streamVFile(String dataType) throws IOException, FormatException, 
+                                        NumberFormatException, SmException {
+        String[] record;
+        smlist = new ArrayList<>();
+        fileContents = null;
+        
+        try (TextRecordReader reader = new TextRecordReader( this.fileName )) {
+            while ((record = reader.nextRecord()) != null) {
+                COSMOScontentFormat rec = newRecord(dataType, record[0]);
+                rec.setLineOffset(reader.getRecordStart());
+                rec.loadComponent(0, record);
                 smlist.add(rec);
-            } else if (dataType.equals( UNCORACC )){
-                V1Component rec = new V1Component( dataType );
-                returnLine = rec.loadComponent(currentLine, fileContents);
-                currentLine = (returnLine > currentLine) ? returnLine : fileContents.length;
-                smlist.add(rec);                
-            } else if ((dataType.equals( CORACC )) || (dataType.equals( VELOCITY )) ||
+            }
+        }
+        if (smlist.isEmpty()) {
+            throw new IOException("Empty file: " + this.fileName);
+        }
+        return smlist.size();
+    }
+    /**
+     * Creates an empty record of the given data type.  For V2 files the first
+     * line of the record determines which piece of the V2 is next.
+     * @param dataType the type of file read in (V0, V1, etc.)
+     * @param firstLine the first line of the record
+     * @return the new record
+     * @throws FormatException if the data type is not valid
+     */
+    private COSMOScontentFormat newRecord(String dataType, String firstLine) 
+                                                        throws FormatException {
+        if (dataType.equals( RAWACC )) {
+            return new V0Component( dataType );
+        } else if (dataType.equals( UNCORACC )){
+            return new V1Component( dataType );
+        } else if ((dataType.equals( CORACC )) || (dataType.equals( VELOCITY )) ||
                                                  (dataType.equals( DISPLACE ))) {
-                //Look at current line to see what piece of V2 is next.
-                if (fileContents[currentLine].matches("(?s).*(?i)Velocity.*")) {
-                    dataType = VELOCITY;
-                } else if (fileContents[currentLine].matches("(?s).*(?i)Displace.*"))  {
-                    dataType = DISPLACE;
-                } else {
-                    dataType = CORACC;
-                }
-                V2Component rec = new V2Component( dataType );
-                returnLine = rec.loadComponent(currentLine, fileContents);
-                currentLine = (returnLine > currentLine) ? returnLine : fileContents.length;
-                smlist.add(rec);                
+            //Look at current line to see what piece of V2 is next.
+            if (COSMOSheaderLexer.containsIgnoreCase(firstLine, "velocity")) {
+                return new V2Component( VELOCITY );
+            } else if (COSMOSheaderLexer.containsIgnoreCase(firstLine, "displace"))  {
+                return new V2Component( DISPLACE );
             } else {
-                throw new FormatException("Invalid file data type: " + dataType);
+                return new V2Component( CORACC );
             }
+        } else {
+            throw new FormatException("Invalid file data type: " + dataType);
         }
-        return smlist.size();
     }
     /**
      * This method processes each record in the queue and hands the products off
-     * to the product object.
+     * to the product object.  If a channel pool has been set, the records are
+     * processed concurrently on the pool and then handed off to the product
+     * object in their original order, so the products and the apktable entries
+     * are the same as for sequential processing.
      * @param Vprod the product queue object that will receive the processed results
      * @throws FormatException if a called method is unable to format, such as text to numerics
      * @throws SmException if a called method found a processing error such as an
@@ -127,58 +180,161 @@ public class SmQueue {
     public void processQueueContents(SmProduct Vprod) 
                                 throws FormatException, SmException, IOException, Exception {
 
-        V2Component V2acc;
-        V2Component V2vel;
-        V2Component V2dis;
-        
-        for (COSMOScontentFormat rec : smlist) {
-            //declare rec as a V0 channel record
-            V0Component v0rec = (V0Component)rec;
-            v0rec.updateV0(this.fileName.toString());
-            
-            //create the V1 processing object and do the processing          
-            V1Process v1val = new V1Process(v0rec);
-            v1val.processV1Data();
-            
-            //create a V1 component to get the processing results
-            V1Component v1rec = new V1Component( UNCORACC, v0rec);
-            v1rec.buildV1(v1val);
-           
-            //Create the V2 processing object and do the processing.  V2 processing
-            //produces 3 V2 objects: corrected acceleration, velocity, and displacement
-            V2Process v2val = new V2Process(v1rec, this.fileName, this.logtime);
-            V2Status V2result = v2val.processV2Data();
-            
-            Vprod.setDirectories(v0rec.getRcrdId(),v0rec.getSCNLauth(), 
-                                                v1rec.getEventDateTime(),V2result);
-            Vprod.addProduct(v0rec, "V0");
-            Vprod.addProduct(v1rec, "V1");
-            
-            if ((V2result == V2Status.GOOD) || (V2result == V2Status.FAILQC)) {
-                //create the V2 components to get the processing results
-                V2acc = new V2Component( CORACC, v1rec );
-                V2acc.buildV2(V2DataType.ACC, v2val, null);
-                V2vel = new V2Component( VELOCITY, v1rec );
-                V2vel.buildV2(V2DataType.VEL, v2val, null);
-                V2dis = new V2Component( DISPLACE, v1rec );
-                V2dis.buildV2(V2DataType.DIS, v2val, null);
-                Vprod.addProduct(V2acc, "V2");
-                Vprod.addProduct(V2vel, "V2");
-                Vprod.addProduct(V2dis, "V2");
-                if (V2result == V2Status.GOOD) {
-                    //Create the V3 processing object and do the processing.  V3
-                    //processing produces 1  V3 object: response spectra.
-                    V3Process v3val = new V3Process(V2acc, v2val);
-                    v3val.processV3Data();
-                    V3Component V3rec = new V3Component( SPECTRA, V2acc, V2vel, V2dis);
-                    V3rec.buildV3(v3val);
-                    Vprod.addProduct(V3rec, "V3");
-                    BuildAPKtable apk = new BuildAPKtable();
-                    apk.buildTable(V3rec, v1rec, V2acc, V2vel, V2dis, this.logfolder, this.logtime);
-                }
+        if ((channelPool == null) || (smlist.size() < 2)) {
+            for (COSMOScontentFormat rec : smlist) {
+                collectChannel(processChannel((V0Component)rec), Vprod);
+            }
+            return;
+        }
+        ArrayList<Future<ChannelResult>> results = new ArrayList<>(smlist.size());
+        try {
+            for (COSMOScontentFormat rec : smlist) {
+                final V0Component v0rec = (V0Component)rec;
+                results.add(channelPool.submit(new Callable<ChannelResult>() {
+                    @Override
+                    public ChannelResult call() throws Exception {
+                        return processChannel(v0rec);
+                    }
+                }));
+            }
+            for (Future<ChannelResult> result : results) {
+                collectChannel(getChannelResult(result), Vprod);
+            }
+        } finally {
+            //if a channel failed, the channels after it are not needed
+            for (Future<ChannelResult> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+    /**
+     * Runs the V1, V2, and V3 processing for one channel record and builds its
+     * products.  Each channel is processed with its own processing context, so
+     * channels of the same file may be processed at the same time.
+     * @param v0rec the V0 channel record
+     * @return the products for the channel
+     * @throws FormatException if a called method is unable to format, such as text to numerics
+     * @throws SmException if a called method found a processing error such as an
+     * invalid header parameter
+     * @throws IOException if unable to read in the spectra coefficients
+     */
+    private ChannelResult processChannel(V0Component v0rec) 
+                                throws FormatException, SmException, IOException {
+        ChannelResult chan = new ChannelResult();
+        chan.v0rec = v0rec;
+
+        //each record gets its own step recorder and configuration values
+        SmProcessingContext context = SmProcessingContext.createRecordContext();
+        v0rec.updateV0(this.fileName.toString(), context);
+
+        //create the V1 processing object and do the processing          
+        V1Process v1val = new V1Process(v0rec, context);
+        v1val.processV1Data();
+
+        //create a V1 component to get the processing results
+        V1Component v1rec = new V1Component( UNCORACC, v0rec);
+        v1rec.buildV1(v1val);
+        chan.v1rec = v1rec;
+
+        //Create the V2 processing object and do the processing.  V2 processing
+        //produces 3 V2 objects: corrected acceleration, velocity, and displacement
+        V2Process v2val = new V2Process(v1rec, this.fileName, this.logtime, 
+                                                                    context);
+        V2Status V2result = v2val.processV2Data();
+        chan.V2result = V2result;
+
+        if ((V2result == V2Status.GOOD) || (V2result == V2Status.FAILQC)) {
+            //create the V2 components to get the processing results
+            chan.V2acc = new V2Component( CORACC, v1rec );
+            chan.V2acc.buildV2(V2DataType.ACC, v2val, null);
+            chan.V2vel = new V2Component( VELOCITY, v1rec );
+            chan.V2vel.buildV2(V2DataType.VEL, v2val, null);
+            chan.V2dis = new V2Component( DISPLACE, v1rec );
+            chan.V2dis.buildV2(V2DataType.DIS, v2val, null);
+            if (V2result == V2Status.GOOD) {
+                //Create the V3 processing object and do the processing.  V3
+                //processing produces 1  V3 object: response spectra.
+                V3Process v3val = new V3Process(chan.V2acc, v2val);
+                v3val.processV3Data();
+                chan.V3rec = new V3Component( SPECTRA, chan.V2acc, chan.V2vel, 
+                                                                    chan.V2dis);
+                chan.V3rec.buildV3(v3val);
+            }
+        }
+        return chan;
+    }
+    /**
+     * Hands the products of one processed channel off to the product object and
+     * adds the channel to the apktable if it has V3 products.
+     * @param chan the products for the channel
+     * @param Vprod the product queue object that will receive the processed results
+     * @throws Exception if unable to build the apktable entry
+     */
+    private void collectChannel(ChannelResult chan, SmProduct Vprod) 
+                                                            throws Exception {
+        Vprod.setDirectories(chan.v0rec.getRcrdId(),chan.v0rec.getSCNLauth(), 
+                                    chan.v1rec.getEventDateTime(),chan.V2result);
+        Vprod.addProduct(chan.v0rec, "V0");
+        Vprod.addProduct(chan.v1rec, "V1");
+
+        if (chan.V2acc != null) {
+            Vprod.addProduct(chan.V2acc, "V2");
+            Vprod.addProduct(chan.V2vel, "V2");
+            Vprod.addProduct(chan.V2dis, "V2");
+        }
+        if (chan.V3rec != null) {
+            Vprod.addProduct(chan.V3rec, "V3");
+            BuildAPKtable apk = new BuildAPKtable();
+            if (apktable != null) {
+                apk.buildTable(chan.V3rec, chan.v1rec, chan.V2acc, chan.V2vel, 
+                                chan.V2dis, apktable);
+            } else {
+                apk.buildTable(chan.V3rec, chan.v1rec, chan.V2acc, chan.V2vel, 
+                                chan.V2dis, this.logfolder, this.logtime);
+            }
+        }
+    }
+    /**
+     * Waits for a channel to finish processing and returns its products.  If the
+     * channel processing failed, the original exception is thrown.
+     * @param result the pending channel result
+     * @return the products for the channel
+     * @throws SmException if interrupted while waiting
+     * @throws Exception the error that stopped the channel processing
+     */
+    private ChannelResult getChannelResult(Future<ChannelResult> result) 
+                                                throws SmException, Exception {
+        try {
+            return result.get();
+        } catch (ExecutionException err) {
+            Throwable cause = err.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
             }
+            throw new SmException("Unexpected error in channel processing: " + cause);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new SmException("Channel processing was interrupted");
         }
     }
+    /**
+     * Sets the pool used to process the channels of the file concurrently.  If
+     * no pool is set, the channels are processed in sequence.
+     * @param pool the channel pool, or null for sequential processing
+     */
+    public void setChannelPool(ExecutorService pool) {
+        this.channelPool = pool;
+    }
+    /**
+     * Sets the collector for the apktable rows of the batch.  If no collector
+     * is set, each row is written out to the apktable file as it is built.
+     * @param collector the apktable collector, or null to write each row
+     */
+    public void setApkTable(APKtableCollector collector) {
+        this.apktable = collector;
+    }
     /**
      * Getter for the queue of records from the file
      * @return the queue of cosmos objects
@@ -186,4 +342,18 @@ public class SmQueue {
     public ArrayList<COSMOScontentFormat> getSmList() {
         return smlist;
     }
+    /**
+     * Holds the products of one processed channel until they are handed off to
+     * the product object.  The V2 and V3 products are null if they were not
+     * created for the channel.
+     */
+    private static class ChannelResult {
+        private V0Component v0rec;
+        private V1Component v1rec;
+        private V2Status V2result;
+        private V2Component V2acc;
+        private V2Component V2vel;
+        private V2Component V2dis;
+        private V3Component V3rec;
+    }
 }
\ No newline at end of file
@@ -17,12 +17,19 @@ package SmProcessing;
 
 import SmConstants.VFileConstants;
 import static SmConstants.VFileConstants.*;
+import SmConstants.VFileConstants.ABCSearchMode;
 import SmConstants.VFileConstants.V2Status;
 import SmException.SmException;
+import static SmProcessing.ProcessingPool.POOL;
 import SmUtilities.ABCSortPairs;
 import SmUtilities.ConfigReader;
 import static SmUtilities.SmConfigConstants.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import org.apache.commons.math3.analysis.polynomials.PolynomialFunction;
 
 /**
@@ -46,6 +53,22 @@ import org.apache.commons.math3.analysis.polynomials.PolynomialFunction;
  * </p><p>
  * The goodness of fit values are ranked, and the lowest ranking iteration that
  * also passes the QC checks is chosen as the final baseline correction.</p>
+ * <p>The iterations are independent of each other, so they are run in parallel
+ * on a shared pool, with each pool task working through a block of iterations
+ * with its own working arrays.  The results are kept in iteration order, so
+ * the ranking and the chosen solution are the same as for a sequential run.
+ * </p>
+ * <p>The search mode in the configuration file can select a coarse-to-fine
+ * search in place of the exhaustive one.  It first runs every 
+ * COARSE_STRIDE-th break point for each 3rd polynomial order, then runs all
+ * the break points around the best ranked coarse iterations that pass QC,
+ * or around the best ranked if none pass.  The compare mode runs the 
+ * exhaustive search, keeps its solution, and reports the solution the
+ * coarse-to-fine search would have chosen from the same iterations.</p>
+ * <p>The corrected acceleration up to a few samples before the event onset
+ * only depends on the first segment fit, so it is the same for every
+ * iteration.  The forward filter pass over this start of the record is run
+ * once and shared by all the iterations.</p>
  * <p>The solutions returned from ABC reflect the order of corrections determined from
  * the velocity array.  The actual corrections made were the derivative of the baseline
  * correction determined from velocity.  To record the order of the actual corrections
@@ -57,6 +80,12 @@ public class ABC2 {
     private final int RESULT_PARMS = 14;
     
     private final int MOVING_WINDOW = 200;
+    //the number of blocks of iterations for each pool thread, for balance
+    private static final int BLOCKS_PER_THREAD = 4;
+    //coarse-to-fine search, the number of moving windows between coarse break
+    //points and the number of coarse iterations to refine around
+    private static final int COARSE_STRIDE = 4;
+    private static final int REFINE_CANDIDATES = 3;
     private final int difforder;
     private final double dtime;
     private final double lowcut;
@@ -78,6 +107,7 @@ public class ABC2 {
     private double[] bnn;
     private double[] derivbnn;
     private double[] b1;
+    private ButterworthFilter.ForwardPrefix sharedstart;
     private int bestfirstdegree;
     private int bestthirddegree;
     private ArrayList<double[]> params;
@@ -87,6 +117,9 @@ public class ABC2 {
     private int counter;
     private double calculated_taper;
     private double config_taper;
+    private final ConfigReader config;
+    private final ABCSearchMode searchmode;
+    private ArrayList<String> searchreport;
     /**
      * The constructor for ABC validates the low and high ranges for the 1st and
      * 3rd polynomial orders that were defined in the configuration file.
@@ -103,6 +136,28 @@ public class ABC2 {
     public ABC2(double delttime, double[] invel, double[] inacc,
                                       double lowcut,double highcut, int numroll,
                                       int ppick, double taplengthtime) throws SmException {
+        this(delttime, invel, inacc, lowcut, highcut, numroll, ppick, 
+                                        taplengthtime, ConfigReader.INSTANCE);
+    }
+    /**
+     * The constructor for ABC validates the low and high ranges for the 1st and
+     * 3rd polynomial orders that were defined in the given configuration values.
+     * @param delttime sampling interval, in seconds/sample
+     * @param invel velocity array to find the baseline function for
+     * @param inacc acceleration array to remove the baseline function derivative from
+     * @param lowcut lowcut filter value to use
+     * @param highcut high cut filter value
+     * @param numroll filter order / 2
+     * @param ppick event onset index
+     * @param taplengthtime minimum number of seconds for the filter taper length
+     * @param config the configuration values for this record
+     * @throws SmException if polynomial orders are invalid
+     */
+    public ABC2(double delttime, double[] invel, double[] inacc,
+                                      double lowcut,double highcut, int numroll,
+                                      int ppick, double taplengthtime, 
+                                      ConfigReader config) throws SmException {
+        this.config = config;
         this.dtime = delttime;
         this.estart = ppick;
         this.taplength = taplengthtime;
@@ -118,8 +173,9 @@ public class ABC2 {
         this.counter = 1;
         this.bestfirstdegree = 0;
         this.bestthirddegree = 0;
+        this.searchreport = new ArrayList<>();
+        this.searchmode = getConfigSearchMode(config);
 
-        ConfigReader config = ConfigReader.INSTANCE;
         String difford = config.getConfigValue(DIFFERENTIATION_ORDER);
         this.difforder = (difford == null) ? DEFAULT_DIFFORDER : Integer.parseInt(difford);
         
@@ -168,7 +224,6 @@ public class ABC2 {
     public final int validateConfigParam( String configparm, int defval, int lower,
                                                                     int upper) {
         int outval = 0;
-        ConfigReader config = ConfigReader.INSTANCE;
         String inval = config.getConfigValue(configparm);
         if (inval == null) {
             outval = defval;
@@ -201,11 +256,7 @@ public class ABC2 {
         int startval = estart + MOVING_WINDOW;
         boolean success = false;
         params = new ArrayList<>();
-        double[] onerun;
         VFileConstants.V2Status status = V2Status.NOABC;
-        QCcheck qcchecker = new QCcheck();
-        qcchecker.validateQCvalues();
-        qcchecker.findWindow(lowcut, (1.0/dtime), estart);
         filter = new ButterworthFilter();
         boolean valid = filter.calculateCoefficients(lowcut,highcut,dtime,numroll, true);
         if (!valid) {
@@ -215,6 +266,7 @@ public class ABC2 {
         //returned for best fit, array b1 contains the baseline function, and
         //variable bestFirstDegree contains the degree of the fit.
         rms[0] = findFirstPolynomialFit();
+        sharedstart = makeSharedStart();
         
         //Iterate to find the 2nd break point which results in the lowest rms
         //for the 3 segments.  For each 3rd polynomial order to try, walk through
@@ -222,61 +274,44 @@ public class ABC2 {
         //At each iteration, filter, integrate, and differentiate.  Store the
         //QC results for each iteration as well as the rms of the corrected vs. 
         //original segments.
+        List<int[]> iterations = new ArrayList<>();
         for (int order3 = degreeP3lo; order3 <= degreeP3hi; order3++) {
             for (int t2 = startval; t2 <= endval; t2 += MOVING_WINDOW) {
                 if (((t2-estart)*dtime) >= ((int)1.0/lowcut)) {
-                    processTheArrays( t2, order3);
-                    qcchecker.qcVelocity(velocity);
-                    qcchecker.qcDisplacement(displace);
-                    //store the results in an array for comparison
-                    onerun = new double[RESULT_PARMS];
-                    onerun[0] = Math.sqrt(Math.pow(rms[0], 2) +
-                            Math.pow(rms[1],2) + Math.pow(rms[2],2));
-                    onerun[1] = Math.abs(qcchecker.getResidualDisplacement());
-                    onerun[2] = Math.abs(qcchecker.getInitialVelocity());
-                    onerun[3] = Math.abs(qcchecker.getResidualVelocity());
-                    onerun[4] = estart;
-                    onerun[5] = t2;
-                    onerun[6] = bestfirstdegree;
-                    onerun[7] = order3;
-                    onerun[8] = counter;
-                    onerun[9] = rms[0];
-                    onerun[10] = rms[1];
-                    onerun[11] = rms[2];
-                    onerun[12] = 0;
-                    onerun[13]= 0;
-                    //Penalty for initial acceleration step
-                    ArrayStats accstat = new ArrayStats(accel);
-                    if (Math.abs(Math.abs(accel[0]) - Math.abs(accstat.getPeakVal())) < 5*Math.ulp(accel[0])) {
-                        onerun[0] = 1000;
-                    }
-                    params.add(onerun);
-                    counter++;
+                    iterations.add(new int[]{t2, order3});
                 }
             }
         }
+        double[][] results = new double[iterations.size()][];
+        QCcheck qcchecker = new QCcheck(config);
+        qcchecker.validateQCvalues();
+        List<Integer> runs;
+        if (searchmode == ABCSearchMode.COARSE_TO_FINE) {
+            runs = coarseToFineSearch(iterations, results, qcchecker);
+        } else {
+            runs = new ArrayList<>();
+            for (int i = 0; i < iterations.size(); i++) {
+                runs.add(i);
+            }
+            runIterations(iterations, runs, results);
+        }
+        for (int idx : runs) {
+            params.add(results[idx]);
+            counter++;
+        }
         //exit with error status if no estimates performed
         if (params.isEmpty()) {
             status = V2Status.NOABC;
             return status;
         }
         //Sort the results based on cumulative rms
-        int count = 0;
-        ABCSortPairs sorter = new ABCSortPairs();
-        double[] temp;
-        for (int i = 0; i < params.size(); i++) {
-            temp = params.get(i);
-            sorter.addPair(temp[0], count++);
-        }
-        ranking = sorter.getSortedVals();
+        ranking = rankIterations(params);
         double[] eachrun;
         
         //check each solution against the QA values and find the first that passes
         for (int idx : ranking) {
             eachrun = params.get(idx);
-            success = (eachrun[2] <= qcchecker.getInitVelocityQCval()) && 
-                          (eachrun[3] <= qcchecker.getResVelocityQCval()) && 
-                                (eachrun[1] <= qcchecker.getResDisplaceQCval());
+            success = passesQC(eachrun, qcchecker);
             if (success) {
                 processTheArrays((int)eachrun[5],(int)eachrun[7]);
                 status = V2Status.GOOD;
@@ -290,8 +325,160 @@ public class ABC2 {
             processTheArrays((int)eachrun[5],(int)eachrun[7]);
             status = V2Status.FAILQC;
         }
+        if (searchmode == ABCSearchMode.COARSE_TO_FINE) {
+            searchreport.add(String.format("ABC coarse-to-fine search: %d of %d "
+                    + "iterations run, %d saved", runs.size(), iterations.size(),
+                                            (iterations.size() - runs.size())));
+        } else if (searchmode == ABCSearchMode.COMPARE) {
+            compareSearches(iterations, results, qcchecker, status);
+        }
         return status;
     }
+    /**
+     * Ranks the iterations by their cumulative rms value
+     * @param runs the results for each iteration
+     * @return the indexes into the results list, in ranking order
+     */
+    private int[] rankIterations( List<double[]> runs) {
+        ABCSortPairs sorter = new ABCSortPairs();
+        for (int i = 0; i < runs.size(); i++) {
+            sorter.addPair(runs.get(i)[0], i);
+        }
+        return sorter.getSortedVals();
+    }
+    /**
+     * Checks the results of one iteration against the QC limits
+     * @param onerun the results for the iteration
+     * @param qcchecker the QC check holding the limits
+     * @return true if the initial and residual velocity and the residual
+     * displacement are all within the limits
+     */
+    private boolean passesQC( double[] onerun, QCcheck qcchecker) {
+        return (onerun[2] <= qcchecker.getInitVelocityQCval()) && 
+                          (onerun[3] <= qcchecker.getResVelocityQCval()) && 
+                                (onerun[1] <= qcchecker.getResDisplaceQCval());
+    }
+    /**
+     * Runs the coarse-to-fine search.  The first pass runs every COARSE_STRIDE-th
+     * break point, and the last break point, for each 3rd polynomial order.
+     * The second pass runs the break points within one coarse stride of the
+     * best ranked first pass iterations that pass QC, or of the best ranked
+     * iterations if none pass.  Iterations that already have results are not
+     * run again.
+     * @param iterations the 2nd break point and 3rd polynomial order for each
+     * iteration of the full search
+     * @param results the results for each iteration, filled in as they are run
+     * @param qcchecker the QC check holding the limits
+     * @return the indexes of the iterations in the search, in iteration order
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private List<Integer> coarseToFineSearch( List<int[]> iterations, 
+                    double[][] results, QCcheck qcchecker) throws SmException {
+        int total = iterations.size();
+        boolean[] selected = new boolean[total];
+        int position = 0;
+        for (int i = 0; i < total; i++) {
+            position = ((i > 0) && (iterations.get(i)[1] == iterations.get(i-1)[1])) 
+                                                            ? position + 1 : 0;
+            boolean lastone = (i == total - 1) || 
+                            (iterations.get(i+1)[1] != iterations.get(i)[1]);
+            selected[i] = ((position % COARSE_STRIDE) == 0) || lastone;
+        }
+        List<Integer> coarse = selectedIterations(selected);
+        runIterations(iterations, coarse, results);
+        
+        //pick the iterations to refine around
+        List<double[]> coarseruns = new ArrayList<>();
+        for (int idx : coarse) {
+            coarseruns.add(results[idx]);
+        }
+        int[] coarserank = rankIterations(coarseruns);
+        List<Integer> candidates = new ArrayList<>();
+        for (int idx : coarserank) {
+            if ((candidates.size() < REFINE_CANDIDATES) && 
+                                    passesQC(coarseruns.get(idx), qcchecker)) {
+                candidates.add(coarse.get(idx));
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (int i = 0; (i < coarserank.length) && (i < REFINE_CANDIDATES); i++) {
+                candidates.add(coarse.get(coarserank[i]));
+            }
+        }
+        //refine around each candidate with the same 3rd polynomial order
+        for (int cand : candidates) {
+            int order3 = iterations.get(cand)[1];
+            for (int i = Math.max(0, cand - COARSE_STRIDE + 1); 
+                        i <= Math.min(total - 1, cand + COARSE_STRIDE - 1); i++) {
+                if (iterations.get(i)[1] == order3) {
+                    selected[i] = true;
+                }
+            }
+        }
+        List<Integer> refined = selectedIterations(selected);
+        runIterations(iterations, refined, results);
+        return refined;
+    }
+    /**
+     * Builds the list of the selected iterations
+     * @param selected the flag for each iteration
+     * @return the indexes of the selected iterations, in iteration order
+     */
+    private List<Integer> selectedIterations( boolean[] selected) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+    /**
+     * Finds the solution the coarse-to-fine search chooses from the results
+     * of the exhaustive search and adds the comparison of the two solutions
+     * to the search report.  No iterations are run, since the exhaustive
+     * search has already run all of them.
+     * @param iterations the 2nd break point and 3rd polynomial order for each
+     * iteration of the full search
+     * @param results the results for every iteration
+     * @param qcchecker the QC check holding the limits
+     * @param status the status of the exhaustive search solution
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private void compareSearches( List<int[]> iterations, double[][] results, 
+                QCcheck qcchecker, V2Status status) throws SmException {
+        List<Integer> runs = coarseToFineSearch(iterations, results, qcchecker);
+        List<double[]> fineruns = new ArrayList<>();
+        for (int idx : runs) {
+            fineruns.add(results[idx]);
+        }
+        V2Status finestatus = V2Status.FAILQC;
+        int finesolution = 0;
+        for (int idx : rankIterations(fineruns)) {
+            if (passesQC(fineruns.get(idx), qcchecker)) {
+                finestatus = V2Status.GOOD;
+                finesolution = idx;
+                break;
+            }
+        }
+        double[] best = params.get(solution);
+        double[] fine = fineruns.get(finesolution);
+        int rank = 1;
+        for (double[] onerun : params) {
+            rank += (onerun[0] < fine[0]) ? 1 : 0;
+        }
+        searchreport.add(String.format("ABC search comparison: coarse-to-fine "
+                + "would run %d of %d iterations, saving %d", runs.size(), 
+                iterations.size(), (iterations.size() - runs.size())));
+        searchreport.add(String.format("  exhaustive solution: break point %d, "
+                + "3rd order %d, rms %f, %s", (int)best[5], (int)best[7], best[0], 
+                                                                        status));
+        searchreport.add(String.format("  coarse-to-fine solution: break point %d, "
+                + "3rd order %d, rms %f, %s, rms rank %d of %d", (int)fine[5], 
+                      (int)fine[7], fine[0], finestatus, rank, params.size()));
+        searchreport.add("  coarse-to-fine solution matches exhaustive: " + 
+            ((Arrays.equals(best, fine) && (finestatus == status)) ? "yes" : "no"));
+    }
     /**
      * Finds the best fit for the first segment (from 0 to event onset) by
      * iterating over the different polynomial orders and choosing the order that
@@ -331,89 +518,108 @@ public class ABC2 {
         bestfirstdegree = bestdegree;
         return bestrms;
     }
+    /**
+     * Builds the start of the corrected acceleration that is the same for every
+     * iteration.  The derivative of the baseline function only reaches a few
+     * samples past each point, so up to the differentiation order before the
+     * event onset it only depends on the first segment fit.
+     * @return the shared start of the corrected acceleration, or null if the
+     * event onset is too close to the start of the record
+     */
+    private ButterworthFilter.ForwardPrefix makeSharedStart() {
+        int len = estart - difforder;
+        if (len <= 0) {
+            return null;
+        }
+        double[] base = new double[velstart.length];
+        System.arraycopy(b1, 0, base, 0, b1.length);
+        double[] deriv = ArrayOps.differentiate(base, dtime, difforder);
+        if (deriv.length == 0) {
+            return null;
+        }
+        double[] start = new double[len];
+        for (int i = 0; i < len; i++) {
+            start[i] = accstart[i] - deriv[i];
+        }
+        return new ButterworthFilter.ForwardPrefix(start);
+    }
     /**
      * Performs the steps of making the correction for segments 2 and 3, then filtering
-     * and integrating to obtain the corrected acceleration and velocity
+     * and integrating to obtain the corrected acceleration and velocity, and
+     * keeps the results as the returned solution
      * @param secondb the second break point
      * @param order the polynomial order for the 3rd segment
      * @throws SmException if unable to calculate valid filter parameters
      */
     private void processTheArrays( int secondb, int order) throws SmException {
-
-        //fit a baseline function to segments 2 and 3 and make correction
-        //updated results in accel and velocity
-        makeCorrection(velstart, accstart, secondb, order);
-        
-        //filter acceleration and integrate to velocity and displacement
-        FilterAndIntegrateProcess filterInt = 
-                new FilterAndIntegrateProcess(lowcut,highcut,numroll,
-                                                            taplength,estart);
-        filterInt.filterAndIntegrate(accel, dtime);
-        paddedaccel = filterInt.getPaddedAccel();
-        velocity = filterInt.getVelocity();
-        displace = filterInt.getDisplacement();
-        calculated_taper = filterInt.getCalculatedTaper();
-        config_taper = filterInt.getConfigTaper();
-    }
-    /**
-     * Makes the baseline correction on the input array. It first calculates the
-     * baseline function for the 3rd segment based on the input order and beginning
-     * at the input break index.  Then it calls the spline method to build the
-     * interpolating spline between the baseline functions of the 1st and 3rd 
-     * segments. It subtracts the baseline function from the input array and
-     * calculates the rms of the 2nd and 3rd segments and adds these to the stored
-     * rms values.
-     * @param array the input array to correct
-     * @param break2 the index to split the array at for the 3rd segment
-     * @param order3 the order of the 3rd segment polynomial for correction
-     * @return the baseline-corrected input array
-     */
-    private void makeCorrection( double[] velin, double[] accin, int break2, int order3) {
-        double[] h2;
-        double[] h3;
-        int break1 = estart;
-        int splinelength = break2-(break1+1);
-        accel = new double[accin.length];
-        double[] time = ArrayOps.makeTimeArray(dtime, velin.length);
-        
-        h2 = new double[splinelength];
-        double[] b2 = new double[splinelength];
-        h3 = new double[velin.length-break2];
-        System.arraycopy(velin, break1+1, h2, 0, splinelength);
-        System.arraycopy(velin, break2, h3, 0, velin.length-break2);
-        
-        //Get the best fit baseline function for the 3rd segment
-        double[] b3 = find3rdPolyFit(h3, order3);
-        
-        //Construct the baseline function from the first and 3rd sections
-        bnn = new double[time.length];
-        for (int i = 0; i < bnn.length; i++) {
-            if ( i <= break1) {
-                bnn[i] = b1[i];
-            } else if ( i >= break2) {
-                bnn[i] = b3[i - break2];
-            } else {
-                bnn[i] = 0.0;
+        Trial trial = new Trial();
+        trial.processTheArrays(secondb, order);
+        accel = trial.accel;
+        velocity = trial.velocity;
+        displace = trial.displace;
+        paddedaccel = trial.paddedaccel;
+        bnn = trial.bnn;
+        derivbnn = trial.derivbnn;
+        rms[1] = trial.rms[1];
+        rms[2] = trial.rms[2];
+        calculated_taper = trial.calculated_taper;
+        config_taper = trial.config_taper;
+    }
+    /**
+     * Runs the selected iterations on the shared pool, dividing them into blocks
+     * that each work through their iterations in order with their own working
+     * arrays.  Iterations that already have results are skipped.
+     * @param iterations the 2nd break point and 3rd polynomial order for each
+     * iteration
+     * @param selected the indexes of the iterations to run
+     * @param results the results for each iteration, in the order of the 
+     * iteration list, filled in for the selected iterations
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    private void runIterations( final List<int[]> iterations, List<Integer> selected,
+                                    final double[][] results) throws SmException {
+        final List<Integer> torun = new ArrayList<>();
+        for (int idx : selected) {
+            if (results[idx] == null) {
+                torun.add(idx);
             }
         }
-        //Connect the 1st and 3rd segments with the interpolating spline
-        getSplineSmooth( bnn, break1, break2, dtime );
-        System.arraycopy(bnn,break1+1,b2,0,splinelength);
-        
-        //differentiate the baseline function and remove the derivative from
-        //acceleration
-        derivbnn = ArrayOps.differentiate(bnn, dtime, difforder);
-        for (int i = 0; i < accin.length; i++) {
-            accel[i] = accin[i] - derivbnn[i];
+        final int firstcount = counter;
+        int nblocks = Math.min(torun.size(), 
+                                    POOL.getParallelism() * BLOCKS_PER_THREAD);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int blk = 0; blk < nblocks; blk++) {
+            final int first = (int)((long)torun.size() * blk / nblocks);
+            final int last = (int)((long)torun.size() * (blk + 1) / nblocks);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws SmException {
+                    Trial trial = new Trial();
+                    for (int i = first; i < last; i++) {
+                        int idx = torun.get(i);
+                        int[] iter = iterations.get(idx);
+                        results[idx] = trial.evaluate(iter[0], iter[1], firstcount + idx);
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> done : POOL.invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new SmException("ABC: interrupted during the baseline search");
+        } catch (ExecutionException err) {
+            Throwable cause = err.getCause();
+            if (cause instanceof SmException) {
+                throw (SmException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new SmException("ABC: " + cause.getMessage());
         }
-        
-        //integrate acceleration to velocity and correct for initial estimate of 0
-        velocity = ArrayOps.integrate(accel, dtime, 0.0);
-        ArrayOps.correctForZeroInitialEstimate( velocity, estart );
-        
-        //Compute the rms of original and corrected segments
-        rms[1] = ArrayOps.rootMeanSquare(h2,b2);
-        rms[2] = ArrayOps.rootMeanSquare(h3,b3);
     }
     /**
      * Finds the 3rd polynomial baseline fit based on the polynomial degree.
@@ -543,6 +749,40 @@ public class ABC2 {
     public int getMovingWindow() {
         return MOVING_WINDOW;
     }
+    /**
+     * Getter for the break point search mode
+     * @return the search mode from the configuration file
+     */
+    public ABCSearchMode getSearchMode() {
+        return searchmode;
+    }
+    /**
+     * Getter for the report on the break point search, which gives the number
+     * of iterations saved by the coarse-to-fine search and, in compare mode,
+     * how its solution compares with the exhaustive search.  The report is
+     * empty for the exhaustive search.
+     * @return the report text
+     */
+    public String[] getSearchReport() {
+        return searchreport.toArray(new String[searchreport.size()]);
+    }
+    /**
+     * Gets the break point search mode from the configuration
+     * @param config the configuration values
+     * @return the search mode, or the default if not set
+     */
+    private static ABCSearchMode getConfigSearchMode(ConfigReader config) {
+        String modename = config.getConfigValue(ABC_SEARCH_MODE);
+        if (modename == null) {
+            return DEFAULT_ABC_SEARCH_MODE;
+        } else if (modename.equalsIgnoreCase("CoarseToFine")) {
+            return ABCSearchMode.COARSE_TO_FINE;
+        } else if (modename.equalsIgnoreCase("Compare")) {
+            return ABCSearchMode.COMPARE;
+        } else {
+            return ABCSearchMode.EXHAUSTIVE;
+        }
+    }
     /**
      * Getter for the number of iterations, should be same as getNumRuns
      * @return counter of the number of iterations
@@ -605,4 +845,148 @@ public class ABC2 {
     public void clearParamsArray() {
         params.clear();
     }
+    /**
+     * This class holds the working arrays for one iteration at a time, so that
+     * iterations can run at the same time on different threads.  The first
+     * segment fit and the input arrays are shared and only read.
+     */
+    private class Trial {
+        private double[] accel;
+        private double[] velocity;
+        private double[] displace;
+        private double[] paddedaccel;
+        private double[] bnn;
+        private double[] derivbnn;
+        private final double[] rms;
+        private double calculated_taper;
+        private double config_taper;
+        private final QCcheck qcchecker;
+        
+        private Trial() {
+            this.rms = new double[NUM_SEGMENTS];
+            this.qcchecker = new QCcheck(config);
+            qcchecker.validateQCvalues();
+            qcchecker.findWindow(lowcut, (1.0/dtime), estart);
+        }
+        /**
+         * Runs one iteration and records its QC results and rms values
+         * @param t2 the second break point
+         * @param order3 the polynomial order for the 3rd segment
+         * @param count the iteration number
+         * @return the array of results for the iteration
+         * @throws SmException if unable to calculate valid filter parameters
+         */
+        private double[] evaluate( int t2, int order3, int count) throws SmException {
+            processTheArrays( t2, order3);
+            qcchecker.qcVelocity(velocity);
+            qcchecker.qcDisplacement(displace);
+            //store the results in an array for comparison
+            double[] onerun = new double[RESULT_PARMS];
+            onerun[0] = Math.sqrt(Math.pow(ABC2.this.rms[0], 2) +
+                    Math.pow(rms[1],2) + Math.pow(rms[2],2));
+            onerun[1] = Math.abs(qcchecker.getResidualDisplacement());
+            onerun[2] = Math.abs(qcchecker.getInitialVelocity());
+            onerun[3] = Math.abs(qcchecker.getResidualVelocity());
+            onerun[4] = estart;
+            onerun[5] = t2;
+            onerun[6] = bestfirstdegree;
+            onerun[7] = order3;
+            onerun[8] = count;
+            onerun[9] = ABC2.this.rms[0];
+            onerun[10] = rms[1];
+            onerun[11] = rms[2];
+            onerun[12] = 0;
+            onerun[13]= 0;
+            //Penalty for initial acceleration step
+            ArrayStats accstat = new ArrayStats(accel);
+            if (Math.abs(Math.abs(accel[0]) - Math.abs(accstat.getPeakVal())) < 5*Math.ulp(accel[0])) {
+                onerun[0] = 1000;
+            }
+            return onerun;
+        }
+        /**
+         * Performs the steps of making the correction for segments 2 and 3, then filtering
+         * and integrating to obtain the corrected acceleration and velocity
+         * @param secondb the second break point
+         * @param order the polynomial order for the 3rd segment
+         * @throws SmException if unable to calculate valid filter parameters
+         */
+        private void processTheArrays( int secondb, int order) throws SmException {
+
+            //fit a baseline function to segments 2 and 3 and make correction
+            //updated results in accel
+            makeCorrection(velstart, accstart, secondb, order);
+        
+            //filter acceleration and integrate to velocity and displacement
+            //the padded acceleration array from the last run is reused, and
+            //the forward filter pass over the shared start is not repeated
+            FilterAndIntegrateProcess filterInt = 
+                    new FilterAndIntegrateProcess(lowcut,highcut,numroll,
+                                                                taplength,estart);
+            filterInt.filterAndIntegrate(accel, dtime, paddedaccel, sharedstart);
+            paddedaccel = filterInt.getPaddedAccel();
+            velocity = filterInt.getVelocity();
+            displace = filterInt.getDisplacement();
+            calculated_taper = filterInt.getCalculatedTaper();
+            config_taper = filterInt.getConfigTaper();
+        }
+        /**
+         * Makes the baseline correction on the input array. It first calculates the
+         * baseline function for the 3rd segment based on the input order and beginning
+         * at the input break index.  Then it calls the spline method to build the
+         * interpolating spline between the baseline functions of the 1st and 3rd 
+         * segments. It subtracts the baseline function from the input array and
+         * calculates the rms of the 2nd and 3rd segments and adds these to the stored
+         * rms values.
+         * @param array the input array to correct
+         * @param break2 the index to split the array at for the 3rd segment
+         * @param order3 the order of the 3rd segment polynomial for correction
+         * @return the baseline-corrected input array
+         */
+        private void makeCorrection( double[] velin, double[] accin, int break2, int order3) {
+            double[] h2;
+            double[] h3;
+            int break1 = estart;
+            int splinelength = break2-(break1+1);
+            accel = new double[accin.length];
+            double[] time = ArrayOps.makeTimeArray(dtime, velin.length);
+        
+            h2 = new double[splinelength];
+            double[] b2 = new double[splinelength];
+            h3 = new double[velin.length-break2];
+            System.arraycopy(velin, break1+1, h2, 0, splinelength);
+            System.arraycopy(velin, break2, h3, 0, velin.length-break2);
+        
+            //Get the best fit baseline function for the 3rd segment
+            double[] b3 = find3rdPolyFit(h3, order3);
+        
+            //Construct the baseline function from the first and 3rd sections
+            bnn = new double[time.length];
+            for (int i = 0; i < bnn.length; i++) {
+                if ( i <= break1) {
+                    bnn[i] = b1[i];
+                } else if ( i >= break2) {
+                    bnn[i] = b3[i - break2];
+                } else {
+                    bnn[i] = 0.0;
+                }
+            }
+            //Connect the 1st and 3rd segments with the interpolating spline
+            getSplineSmooth( bnn, break1, break2, dtime );
+            System.arraycopy(bnn,break1+1,b2,0,splinelength);
+        
+            //differentiate the baseline function and remove the derivative from
+            //acceleration
+            derivbnn = ArrayOps.differentiate(bnn, dtime, difforder);
+            for (int i = 0; i < accin.length; i++) {
+                accel[i] = accin[i] - derivbnn[i];
+            }
+            //the velocity is found from the filtered acceleration, so it is 
+            //not integrated here
+        
+            //Compute the rms of original and corrected segments
+            rms[1] = ArrayOps.rootMeanSquare(h2,b2);
+            rms[2] = ArrayOps.rootMeanSquare(h3,b3);
+        }
+    }
 }
@@ -14,6 +14,9 @@
 package SmProcessing;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
 *  <p>function bandpass (s, nd, f1, f2, delt, nroll, icaus)</p>
@@ -53,9 +56,29 @@ import java.util.Arrays;
 *                   double precision - cds
 *        02/22/01 - Removed dimension of s (it is up to the user to specify
 *                   it properly)
+* </p><p>
+*  The coefficients for each set of filter parameters are computed once and
+*  kept in a cache shared by all the filters.  The cascade of second order
+*  sections is run in a single pass through the array in each direction, with
+*  each sample going through all the sections in turn, which gives the same
+*  values as filtering the whole array with one section after another.  The
+*  padded array can be supplied by the caller to be reused between calls.
+*  Arrays that all start with the same values, such as the corrected
+*  acceleration for each iteration of the adaptive baseline correction, can
+*  share the forward pass over their start through a ForwardPrefix.</p>
 * @author jmjones, translated from Fortran into Java, June 2014
 **/
 public class ButterworthFilter {
+    //the most coefficient sets kept in the cache
+    public static final int CACHE_SIZE = 256;
+    private static final Map<FilterKey, double[][]> CACHE = 
+            new LinkedHashMap<FilterKey, double[][]>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<FilterKey, double[][]> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+    
     private double f1;
     private double f2;
     private double dtime;
@@ -101,14 +124,6 @@ public class ButterworthFilter {
         this.nroll = rolloff;
         this.icaus = acausal;           //true if acausal filter
         
-        fact = new double[2*MAXROLL];
-        b1 = new double[2*MAXROLL];
-        b2 = new double[2*MAXROLL];
-        
-        double pre; double pim; double argre; double argim; double rho; double theta;
-        double sjre; double sjim; double bj; double cj; double con;
-        int index;
-        
         //Check input parameters for valid values
         if ((Math.abs(f1 - 0.0) < epsilon) || (Math.abs(f2 - f1) < epsilon) ||
                                            (rolloff < 1) || (rolloff > MAXROLL)){
@@ -118,6 +133,35 @@ public class ButterworthFilter {
         if ((Math.abs(f1 - nyquist) < epsilon) || (Math.abs(f2 - nyquist) < epsilon)) {
             return false;
         }
+        FilterKey key = new FilterKey(f1, f2, dtime, nroll, icaus);
+        double[][] coefs;
+        synchronized (CACHE) {
+            coefs = CACHE.get(key);
+        }
+        if (coefs == null) {
+            coefs = computeCoefficients();
+            synchronized (CACHE) {
+                CACHE.put(key, coefs);
+            }
+        }
+        fact = coefs[0];
+        b1 = coefs[1];
+        b2 = coefs[2];
+        return true;
+    }
+    /**
+     * Computes the gains and coefficients of the second order sections for the
+     * current filter parameters
+     * @return the arrays of gains, first coefficients, and second coefficients
+     */
+    private double[][] computeCoefficients() {
+        double[] fact = new double[2*MAXROLL];
+        double[] b1 = new double[2*MAXROLL];
+        double[] b2 = new double[2*MAXROLL];
+        
+        double pre; double pim; double argre; double argim; double rho; double theta;
+        double sjre; double sjim; double bj; double cj; double con;
+        int index;
         
         //for w1 and w2 calc., the 2 in the num. and denom. can be deleted but its
         //left in for clarity
@@ -150,7 +194,7 @@ public class ButterworthFilter {
                 b2[index] = ((2.0/dtime) - bj + (cj*dtime/2.0)) * con;
             }
         }
-        return true;
+        return new double[][]{ fact, b1, b2 };
     }
     /**
      * This method does the actual filtering of the input array.  If the input
@@ -175,10 +219,49 @@ public class ButterworthFilter {
      * @return an array containing the filtered result with the pads still included
      */
     public double[] applyFilter( double[] arrayS, double taplengthtime, int eventOnsetIndex ) {
+        return applyFilter( arrayS, taplengthtime, eventOnsetIndex, null);
+    }
+    /**
+     * This method filters the input array the same way as the applyFilter method
+     * above, using the given array to hold the padded array if it has the right
+     * length.  The returned array can be passed in again on the next call to
+     * filter an array of the same length with the same filter.
+     * @param arrayS the input array to filter, NOTE: this array is updated with
+     * the filtered version upon return
+     * @param taplengthtime the length of time in seconds to apply the taper
+     * @param eventOnsetIndex the event onset index is used to refine the
+     * taper length
+     * @param padbuffer the array to reuse for the padded array, or null
+     * @return an array containing the filtered result with the pads still
+     * included, which is the padbuffer array if it was the right length
+     */
+    public double[] applyFilter( double[] arrayS, double taplengthtime, 
+                                    int eventOnsetIndex, double[] padbuffer ) {
+        return applyFilter( arrayS, taplengthtime, eventOnsetIndex, padbuffer, null);
+    }
+    /**
+     * This method filters the input array the same way as the applyFilter method
+     * above.  If the input array starts with the values of the given prefix,
+     * and the end taper does not reach into them, the forward pass over the
+     * padded start of the array is taken from the prefix and only the rest of
+     * the array is filtered forward.  Otherwise the whole array is filtered.
+     * Either way the result is the same.
+     * @param arrayS the input array to filter, NOTE: this array is updated with
+     * the filtered version upon return
+     * @param taplengthtime the length of time in seconds to apply the taper
+     * @param eventOnsetIndex the event onset index is used to refine the
+     * taper length
+     * @param padbuffer the array to reuse for the padded array, or null
+     * @param prefix the values shared by the start of the arrays to filter,
+     * or null
+     * @return an array containing the filtered result with the pads still
+     * included, which is the padbuffer array if it was the right length
+     */
+    public double[] applyFilter( double[] arrayS, double taplengthtime, 
+                int eventOnsetIndex, double[] padbuffer, ForwardPrefix prefix ) {
         
         int np2;
         double[] filteredS;
-        double x1; double x2; double y1; double y2; double xp; double yp;
 
         //Calculate the length of the initial cosine taper.  Put a lower limit of the
         //taperlength time specified in the configuration file, and set the ending
@@ -188,6 +271,8 @@ public class ButterworthFilter {
             tapercount = (int)((2.0*taplengthtime) / dtime);
         }
         taperend = (int)((2.0*taplengthtime) / dtime);
+        boolean useprefix = (prefix != null) && 
+                        prefix.startsArray(arrayS, arrayS.length - (taperend / 2));
         
         //Copy the input array into a return array.  If the filter was configured
         //as acausal, then pad the length of the array by the value calculated below.
@@ -204,51 +289,33 @@ public class ButterworthFilter {
             }
 //            System.out.println("+++ npad: " + npad + " array: " + arrayS.length);
             np2 = arrayS.length + npad;
-            filteredS = new double[np2];
-            Arrays.fill(filteredS, 0.0);
+            filteredS = getPadBuffer(padbuffer, np2);
+            Arrays.fill(filteredS, 0, (npad/2), 0.0);
+            Arrays.fill(filteredS, (npad/2) + arrayS.length, np2, 0.0);
             System.arraycopy(arrayS, 0, filteredS, (npad/2), arrayS.length);
             
         } else {  //causal filter, filtered array is same length as input array
             np2 = arrayS.length;
-            filteredS = new double[np2];
+            filteredS = getPadBuffer(padbuffer, np2);
             System.arraycopy(arrayS, 0, filteredS, 0, np2);
         }
 //        SmDebugLogger elog = SmDebugLogger.INSTANCE;
 //        elog.writeOutArray(filteredS, "after_taper_with_pads.txt");
-        //filter the array
-        for (int k = 0; k < 2*nroll; k++) {
-            x1 = 0.0;
-            x2 = 0.0;
-            y1 = 0.0;
-            y2 = 0.0;
-            for (int j = 0; j < np2; j++) {
-                xp = filteredS[j];
-                yp = fact[k] * (xp - x2) - (b1[k] * y1) - (b2[k] * y2);
-                filteredS[j] = yp;
-                y2 = y1;
-                y1 = yp;
-                x2 = x1;
-                x1 = xp;
-            }
+        //filter the array, starting after the shared forward pass if there is one
+        if (useprefix) {
+            int offset = (icaus) ? (npad/2) : 0;
+            ForwardPass start = prefix.getForwardPass(this, offset);
+            int startlen = start.outputs.length;
+            System.arraycopy(start.outputs, 0, filteredS, 0, startlen);
+            runCascade(filteredS, startlen, np2 - startlen, false, fact, b1, b2,
+                                                    2*nroll, start.copyState());
+        } else {
+            filterCascade(filteredS, np2, false);
         }
         
         //if acausal, filter again from back to front
         if (icaus) {
-            for (int k = 0; k < 2*nroll; k++) {
-                x1 = 0.0;
-                x2 = 0.0;
-                y1 = 0.0;
-                y2 = 0.0;
-                for (int j = 0; j < np2; j++) {
-                    xp = filteredS[np2 - j - 1];
-                    yp = fact[k] * (xp - x2) - (b1[k] * y1) - (b2[k] * y2);
-                    filteredS[np2 - j - 1] = yp;
-                    y2 = y1;
-                    y1 = yp;
-                    x2 = x1;
-                    x1 = xp;
-                }
-            }
+            filterCascade(filteredS, np2, true);
             System.arraycopy(filteredS, (npad/2), arrayS, 0, arrayS.length);
         } else {
             System.arraycopy(filteredS, 0, arrayS, 0, np2);
@@ -257,6 +324,70 @@ public class ButterworthFilter {
 //        System.out.println("+++ after filter, arrayS[end] = " + arrayS[arrayS.length-1]);
         return filteredS;
     }
+    /**
+     * Runs the array through the cascade of second order sections in place,
+     * passing each sample through all the sections before going on to the
+     * next sample.  Each section keeps its own previous two inputs and outputs,
+     * so the values are the same as filtering the array one section at a time.
+     * @param array the array to filter
+     * @param len the number of values in the array to filter
+     * @param backward true to filter from the back of the array to the front
+     */
+    private void filterCascade( double[] array, int len, boolean backward ) {
+        int nsect = 2*nroll;
+        double[][] state = new double[4][nsect];
+        runCascade(array, 0, len, backward, fact, b1, b2, nsect, state);
+    }
+    /**
+     * Runs part of an array through a cascade of second order sections in place,
+     * starting from the given section state and leaving the state at the end
+     * of the part in it, so that the next part of a longer array can be
+     * filtered as though the whole array was filtered at once.
+     * @param array the array to filter
+     * @param start the index of the first value to filter
+     * @param len the number of values to filter
+     * @param backward true to filter from the back of the part to the front
+     * @param fact the gains for the sections
+     * @param b1 the first coefficients for the sections
+     * @param b2 the second coefficients for the sections
+     * @param nsect the number of sections
+     * @param state the previous two inputs and the previous two outputs for
+     * each section, updated on return
+     */
+    static void runCascade( double[] array, int start, int len, boolean backward,
+                            double[] fact, double[] b1, double[] b2, int nsect,
+                            double[][] state ) {
+        double[] x1 = state[0];
+        double[] x2 = state[1];
+        double[] y1 = state[2];
+        double[] y2 = state[3];
+        double xp; double yp;
+        for (int j = 0; j < len; j++) {
+            int idx = (backward) ? (start + len - j - 1) : (start + j);
+            xp = array[idx];
+            for (int k = 0; k < nsect; k++) {
+                yp = fact[k] * (xp - x2[k]) - (b1[k] * y1[k]) - (b2[k] * y2[k]);
+                y2[k] = y1[k];
+                y1[k] = yp;
+                x2[k] = x1[k];
+                x1[k] = xp;
+                xp = yp;
+            }
+            array[idx] = xp;
+        }
+    }
+    /**
+     * Returns the caller's pad buffer if it has the needed length, or a new array
+     * @param padbuffer the caller's array, or null
+     * @param len the needed length
+     * @return the array to hold the padded values
+     */
+    private static double[] getPadBuffer( double[] padbuffer, int len ) {
+        if ((padbuffer != null) && (padbuffer.length == len)) {
+            return padbuffer;
+        }
+        return new double[len];
+    }
     /**
      * This method adds the half cosine taper to the front and back of the array
      * @param array input array to have the taper applied to
@@ -275,11 +406,7 @@ public class ButterworthFilter {
         //range is N, the number of samples over which to apply the taper,
         //and m is the length of the half cosine taper itself.
         int m = range / 2;
-        
-        double[] taper = new double[m];
-        for (int i = 0; i < m; i++) {
-            taper[i] = 0.5 * (1.0 - Math.cos(2 * pi * i / (range-1)));
-        }
+        double[] taper = makeTaper(range);
         
         //apply at the front
         for (int i = 0; i < m; i++) {
@@ -287,11 +414,7 @@ public class ButterworthFilter {
         }
         //Apply the end-length taper to the end of the array
         int m2 = endrange / 2;
-        
-        double[] taper2 = new double[m2];
-        for (int i = 0; i < m2; i++) {
-            taper2[i] = 0.5 * (1.0 - Math.cos(2 * pi * i / (endrange-1)));
-        }
+        double[] taper2 = makeTaper(endrange);
         
         //apply at the end
         int k = m2 - 1;
@@ -300,21 +423,34 @@ public class ButterworthFilter {
             k--;
         }
     }
+    /**
+     * Calculates the half cosine taper for the given range
+     * @param range the number of elements the taper is applied over
+     * @return the taper values, for 1/2 of the range
+     */
+    private static double[] makeTaper( int range ) {
+        int m = range / 2;
+        double[] taper = new double[m];
+        for (int i = 0; i < m; i++) {
+            taper[i] = 0.5 * (1.0 - Math.cos(2 * Math.PI * i / (range-1)));
+        }
+        return taper;
+    }
     /**
      * Getter for the array with the calculated gains
      * @return the gains
      */
-    public double[] getFact() { return fact; }
+    public double[] getFact() { return fact.clone(); }
     /**
      * Getter for the first coefficient array
      * @return the first coefficient array
      */
-    public double[] getB1() { return b1; }
+    public double[] getB1() { return b1.clone(); }
     /**
      * Getter for the 2nd coefficient array
      * @return the second coefficient array
      */
-    public double[] getB2() { return b2; }
+    public double[] getB2() { return b2.clone(); }
     /**
      * Getter for the lengths of pads applied to front and back of array for
      * acausal filtering
@@ -331,4 +467,169 @@ public class ButterworthFilter {
      * @return the end taper length used in filtering
      */
     public double getEndTaperlength() { return (taperend * dtime); }
+    /**
+     * This class is the coefficient cache key, matching the filter parameters
+     * exactly.
+     */
+    private static final class FilterKey {
+        private final long lowcut;
+        private final long highcut;
+        private final long dtime;
+        private final int nroll;
+        private final boolean acausal;
+        
+        private FilterKey(double lowcut, double highcut, double dtime, 
+                                                int nroll, boolean acausal) {
+            this.lowcut = Double.doubleToLongBits(lowcut);
+            this.highcut = Double.doubleToLongBits(highcut);
+            this.dtime = Double.doubleToLongBits(dtime);
+            this.nroll = nroll;
+            this.acausal = acausal;
+        }
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FilterKey)) {
+                return false;
+            }
+            FilterKey other = (FilterKey)obj;
+            return (lowcut == other.lowcut) && (highcut == other.highcut) &&
+                    (dtime == other.dtime) && (nroll == other.nroll) &&
+                    (acausal == other.acausal);
+        }
+        @Override
+        public int hashCode() {
+            int hash = (int)(lowcut ^ (lowcut >>> 32));
+            hash = 31 * hash + (int)(highcut ^ (highcut >>> 32));
+            hash = 31 * hash + (int)(dtime ^ (dtime >>> 32));
+            hash = 31 * hash + nroll;
+            return 31 * hash + (acausal ? 1 : 0);
+        }
+    }
+    /**
+     * This class holds the values at the start of an input array that are
+     * shared by several arrays to be filtered.  For each filter and start taper
+     * length, the outputs of the forward pass over the padded and tapered
+     * start and the section state at its end are computed once and kept.
+     * The forward pass is recursive, so its outputs up to any sample only
+     * depend on the input up to that sample, and each array is then filtered
+     * forward from the end of the shared start.
+     */
+    public static final class ForwardPrefix {
+        private final double[] values;
+        private final Map<PrefixKey, ForwardPass> passes;
+        /**
+         * Constructor for the prefix
+         * @param values the values shared by the start of the arrays
+         */
+        public ForwardPrefix( double[] values ) {
+            this.values = values.clone();
+            this.passes = new HashMap<>();
+        }
+        /**
+         * Getter for the number of shared values
+         * @return the length of the shared start
+         */
+        public int getLength() {
+            return values.length;
+        }
+        /**
+         * Checks if the array starts with the shared values, ending before
+         * the given limit
+         * @param array the array to check
+         * @param limit the index the shared values must end before
+         * @return true if the shared values can be used for the array
+         */
+        private boolean startsArray( double[] array, int limit ) {
+            if ((values.length == 0) || (values.length > limit)) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (Double.compare(values[i], array[i]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        /**
+         * Gets the forward pass over the shared start for the filter and its
+         * current start taper length, computing it on first use
+         * @param filter the filter, after the taper lengths have been set
+         * @param offset the length of the pad in front of the array
+         * @return the forward pass outputs and section state
+         */
+        private synchronized ForwardPass getForwardPass( ButterworthFilter filter,
+                                                                int offset ) {
+            int taper = (filter.icaus) ? filter.tapercount : 0;
+            PrefixKey key = new PrefixKey(new FilterKey(filter.f1, filter.f2, 
+                            filter.dtime, filter.nroll, filter.icaus), taper);
+            ForwardPass pass = passes.get(key);
+            if (pass == null) {
+                double[] start = new double[offset + values.length];
+                System.arraycopy(values, 0, start, offset, values.length);
+                if (taper > 0) {
+                    double[] taperval = makeTaper(taper);
+                    int m = Math.min(taperval.length, values.length);
+                    for (int i = 0; i < m; i++) {
+                        start[offset + i] = start[offset + i] * taperval[i];
+                    }
+                }
+                int nsect = 2 * filter.nroll;
+                double[][] state = new double[4][nsect];
+                runCascade(start, 0, start.length, false, filter.fact, filter.b1,
+                                                    filter.b2, nsect, state);
+                pass = new ForwardPass(start, state);
+                passes.put(key, pass);
+            }
+            return pass;
+        }
+    }
+    /**
+     * This class holds the outputs of a forward pass over the start of an
+     * array and the section state at the end of it.
+     */
+    private static final class ForwardPass {
+        private final double[] outputs;
+        private final double[][] state;
+        
+        private ForwardPass( double[] outputs, double[][] state) {
+            this.outputs = outputs;
+            this.state = state;
+        }
+        /**
+         * Copies the section state, to continue the forward pass from
+         * @return a copy of the section state
+         */
+        private double[][] copyState() {
+            double[][] copy = new double[state.length][];
+            for (int i = 0; i < state.length; i++) {
+                copy[i] = state[i].clone();
+            }
+            return copy;
+        }
+    }
+    /**
+     * This class is the key for the shared forward passes, matching the
+     * filter parameters and the start taper length.
+     */
+    private static final class PrefixKey {
+        private final FilterKey filter;
+        private final int taper;
+        
+        private PrefixKey( FilterKey filter, int taper) {
+            this.filter = filter;
+            this.taper = taper;
+        }
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PrefixKey)) {
+                return false;
+            }
+            PrefixKey other = (PrefixKey)obj;
+            return filter.equals(other.filter) && (taper == other.taper);
+        }
+        @Override
+        public int hashCode() {
+            return 31 * filter.hashCode() + taper;
+        }
+    }
 }
@@ -66,12 +66,18 @@ public class EventOnsetDetection {
         bufferedStart = 0;
         difforder = 5;
 
-        //Get the matrix coefficients for the specific sampling interval
+        //Get the matrix coefficients for the specific sampling interval, or
+        //compute them for a sampling interval without stored coefficients
         EventOnsetCoefs pickCoef = new EventOnsetCoefs();
         double[] Ae;
         double[] AeB;
         Ae = pickCoef.getAeCoefs(dtime);
         AeB = pickCoef.getAeBCoefs(dtime);
+        if ((Ae == null) || (AeB == null)) {
+            double[] coefs = SpectraCoefficients.getCoefficients(dtime, XI, TN);
+            Ae = new double[]{coefs[0], coefs[1], coefs[2], coefs[3]};
+            AeB = new double[]{coefs[4], coefs[5]};
+        }
         coef_a = Ae[0];
         coef_b = Ae[1];
         coef_c = Ae[2];
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Name: Java class FFTPlan.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class holds the precomputed twiddle factors and bit-reversal order for
+ * a radix-2 FFT of one power-of-2 length, and performs the transforms on
+ * primitive arrays with the real and imaginary parts held in separate arrays.
+ * The forward transform is unscaled and the inverse transform is scaled by
+ * 1/n, matching the standard normalization of the Apache Commons Math
+ * transformer.  Real input arrays are transformed as a complex array of half
+ * the length.  Plans are immutable, so they can be shared by all the
+ * threads.  Only the most recently used lengths are kept in the cache, since
+ * the tables for a long record take several megabytes and a long run can see
+ * many different lengths.
+ * @author jmjones
+ */
+public final class FFTPlan {
+    //the most plans kept in the cache
+    public static final int CACHE_SIZE = 6;
+    private static final Map<Integer, FFTPlan> PLANS = 
+            new LinkedHashMap<Integer, FFTPlan>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, FFTPlan> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private final int length;
+    private final double[] cosine;
+    private final double[] sine;
+    private final int[] reversed;
+    /**
+     * Constructor builds the twiddle factors and the bit-reversed index order
+     * @param length the transform length, a power of 2
+     */
+    private FFTPlan(int length) {
+        this.length = length;
+        int half = length / 2;
+        this.cosine = new double[half];
+        this.sine = new double[half];
+        for (int k = 0; k < half; k++) {
+            double angle = 2.0 * Math.PI * k / length;
+            cosine[k] = Math.cos(angle);
+            sine[k] = Math.sin(angle);
+        }
+        this.reversed = new int[length];
+        int bits = Integer.numberOfTrailingZeros(length);
+        for (int i = 0; i < length; i++) {
+            reversed[i] = (bits == 0) ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+    /**
+     * Gets the plan for the given length, building it on first use
+     * @param length the transform length
+     * @return the plan for the length
+     * @throws IllegalArgumentException if the length is not a power of 2
+     */
+    public static FFTPlan getPlan(int length) {
+        if ((length < 1) || (Integer.bitCount(length) != 1)) {
+            throw new IllegalArgumentException("FFT length " + length
+                                                    + " is not a power of 2");
+        }
+        FFTPlan plan;
+        synchronized (PLANS) {
+            plan = PLANS.get(length);
+        }
+        if (plan == null) {
+            plan = new FFTPlan(length);
+            synchronized (PLANS) {
+                FFTPlan existing = PLANS.get(length);
+                if (existing != null) {
+                    plan = existing;
+                } else {
+                    PLANS.put(length, plan);
+                }
+            }
+        }
+        return plan;
+    }
+    /**
+     * Gets the number of plans currently held in the cache
+     * @return the number of cached plans
+     */
+    public static int getCacheCount() {
+        synchronized (PLANS) {
+            return PLANS.size();
+        }
+    }
+    /**
+     * Getter for the transform length
+     * @return the transform length
+     */
+    public int getLength() {
+        return length;
+    }
+    /**
+     * Performs the forward transform of the complex array in place
+     * @param real the real parts, of the plan length
+     * @param imag the imaginary parts, of the plan length
+     */
+    public void forward(double[] real, double[] imag) {
+        transform(real, imag, -1.0);
+    }
+    /**
+     * Performs the inverse transform of the complex array in place, including
+     * the 1/n scaling
+     * @param real the real parts, of the plan length
+     * @param imag the imaginary parts, of the plan length
+     */
+    public void inverse(double[] real, double[] imag) {
+        transform(real, imag, 1.0);
+        double scale = 1.0 / length;
+        for (int i = 0; i < length; i++) {
+            real[i] *= scale;
+            imag[i] *= scale;
+        }
+    }
+    /**
+     * Performs the forward transform of a real array, returning the first
+     * n/2+1 frequency values.  The remaining values are the complex conjugates
+     * of these, in reverse order.  The even and odd samples are transformed
+     * together as one complex array of half the length and then separated.
+     * @param input the real input array, of the plan length
+     * @param real the real parts of the result, at least n/2+1 long
+     * @param imag the imaginary parts of the result, at least n/2+1 long
+     */
+    public void realForward(double[] input, double[] real, double[] imag) {
+        if (length == 1) {
+            real[0] = input[0];
+            imag[0] = 0.0;
+            return;
+        }
+        int half = length / 2;
+        double[] zre = new double[half];
+        double[] zim = new double[half];
+        for (int j = 0; j < half; j++) {
+            zre[j] = input[2 * j];
+            zim[j] = input[2 * j + 1];
+        }
+        getPlan(half).forward(zre, zim);
+
+        real[0] = zre[0] + zim[0];
+        imag[0] = 0.0;
+        real[half] = zre[0] - zim[0];
+        imag[half] = 0.0;
+        for (int k = 1; k < half; k++) {
+            double are = zre[k];
+            double aim = zim[k];
+            double bre = zre[half - k];
+            double bim = -zim[half - k];
+            //even and odd sample spectra
+            double ere = 0.5 * (are + bre);
+            double eim = 0.5 * (aim + bim);
+            double ore = 0.5 * (aim - bim);
+            double oim = -0.5 * (are - bre);
+            //apply the twiddle exp(-2 pi i k/n) to the odd spectrum
+            double wre = cosine[k];
+            double wim = -sine[k];
+            real[k] = ere + (wre * ore - wim * oim);
+            imag[k] = eim + (wre * oim + wim * ore);
+        }
+    }
+    /**
+     * Runs the iterative radix-2 butterflies on the complex array in place
+     * @param real the real parts
+     * @param imag the imaginary parts
+     * @param sign -1 for the forward transform, 1 for the inverse
+     */
+    private void transform(double[] real, double[] imag, double sign) {
+        for (int i = 0; i < length; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double temp = real[i];
+                real[i] = real[j];
+                real[j] = temp;
+                temp = imag[i];
+                imag[i] = imag[j];
+                imag[j] = temp;
+            }
+        }
+        for (int size = 2; size <= length; size <<= 1) {
+            int halfsize = size / 2;
+            int step = length / size;
+            for (int start = 0; start < length; start += size) {
+                for (int k = 0; k < halfsize; k++) {
+                    double wre = cosine[k * step];
+                    double wim = sign * sine[k * step];
+                    int top = start + k;
+                    int bot = top + halfsize;
+                    double tre = wre * real[bot] - wim * imag[bot];
+                    double tim = wre * imag[bot] + wim * real[bot];
+                    real[bot] = real[top] - tre;
+                    imag[bot] = imag[top] - tim;
+                    real[top] += tre;
+                    imag[top] += tim;
+                }
+            }
+        }
+    }
+}
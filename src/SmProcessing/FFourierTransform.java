@@ -15,16 +15,13 @@
 package SmProcessing;
 
 import java.util.Arrays;
-import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.DftNormalization;
-import org.apache.commons.math3.transform.FastFourierTransformer;
-import org.apache.commons.math3.transform.TransformType;
 
 /**
- * This class calculates the FFT of an array using the Apache Commons Math 
- * package and returns the result as magnitudes (square root of the squares of
- * the real and imaginary parts).  It first pads the array to the next closest
- * power-of-2 length before calculating the FFT.
+ * This class calculates the FFT of an array and returns the result as magnitudes
+ * (square root of the squares of the real and imaginary parts).  It first pads
+ * the array to the next closest power-of-2 length before calculating the FFT.
+ * The transforms are done on primitive arrays using the cached FFTPlan for the
+ * padded length, with complex values held as separate real and imaginary arrays.
  * @author jmjones
  */
 public class FFourierTransform {
@@ -49,47 +46,49 @@ public class FFourierTransform {
      */
     public double[] calculateFFT( double[] array ) {
         double[] arrpad = padArray( array );
-         
-        FastFourierTransformer fft = new FastFourierTransformer( DftNormalization.STANDARD);
-        Complex[] transfreq = fft.transform(arrpad, TransformType.FORWARD);
-
         fftlen = (powerlength / 2) + 1;
+        double[] real = new double[fftlen];
+        double[] imag = new double[fftlen];
+        FFTPlan.getPlan(powerlength).realForward(arrpad, real, imag);
+
         double[] mags = new double[fftlen];
         for (int i = 0; i < fftlen; i++) {
-            mags[i]= Math.sqrt(Math.pow(transfreq[i].getReal(),2) + 
-                                    Math.pow(transfreq[i].getImaginary(),2));
+            mags[i]= Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
         }
         return mags;
     }
     /**
      * Performs the FFT calculations by padding the input array AT THE START to the closest
      * power of 2 gt or eq to the current length, calling the FFT transform method,
-     * and returning the complex array.
+     * and returning the complex array.  The second half of the array is filled
+     * in from the complex conjugates of the first half.
      * @param array input array for calculating the transform
-     * @return the transformed array
+     * @return the transformed array, with the real parts in the first row and
+     * the imaginary parts in the second row
      */
-    public Complex[] calculateFFTComplex( double[] array ) {
+    public double[][] calculateFFTComplex( double[] array ) {
         double[] arrpad = padArrayAtStart( array );
-        FastFourierTransformer fft = new FastFourierTransformer( DftNormalization.STANDARD);
-        Complex[] transfreq = fft.transform(arrpad, TransformType.FORWARD);
-        return transfreq;
+        double[] real = new double[powerlength];
+        double[] imag = new double[powerlength];
+        FFTPlan.getPlan(powerlength).realForward(arrpad, real, imag);
+        for (int i = (powerlength / 2) + 1; i < powerlength; i++) {
+            real[i] = real[powerlength - i];
+            imag[i] = -imag[powerlength - i];
+        }
+        return new double[][]{ real, imag };
     }
     /**
      * Calculates the inverse FFT on an input complex array and returns an array
      * of doubles containing only the real component of the iFFT result.
-     * @param transfreq array of complex frequency values
+     * @param real array of the real parts of the complex frequency values
+     * @param imag array of the imaginary parts of the complex frequency values
      * @return an array containing the real components of the iFFT result
      */
-    public double[] inverseFFTComplex( Complex[] transfreq ) {
-        Complex[] transpad = padArrayComplex( transfreq );
-        double[] realvals;
-        FastFourierTransformer fft = new FastFourierTransformer( DftNormalization.STANDARD);
-        Complex[] invvals = fft.transform(transpad, TransformType.INVERSE);
-        realvals = new double[invvals.length];
-        for (int i = 0; i < invvals.length; i++) {
-            realvals[i] = invvals[i].getReal();
-        }
-        return realvals;
+    public double[] inverseFFTComplex( double[] real, double[] imag ) {
+        double[] realpad = padArrayComplex( real );
+        double[] imagpad = padArrayComplex( imag );
+        FFTPlan.getPlan(cpowerlength).inverse(realpad, imagpad);
+        return realpad;
     }
     /**
      * pads the incoming array with zeros to the nearest power of 2 length, pads
@@ -127,15 +126,14 @@ public class FFourierTransform {
         }
     }
     /**
-     * pads the incoming array with zeros to the nearest power of 2 length, pads
-     * are added at the end
-     * @param array the input array
-     * @return the padded real array
+     * copies one part of the incoming complex array into a new array padded
+     * with zeros to the nearest power of 2 length, pads are added at the end
+     * @param carray the real or imaginary parts of the input array
+     * @return the padded array
      */
-    private Complex[] padArrayComplex( Complex[] carray ) {
+    private double[] padArrayComplex( double[] carray ) {
         cpowerlength = findPower2Length( carray.length);
-        Complex[] arrpad = new Complex[cpowerlength];
-        Arrays.fill(arrpad, Complex.ZERO);
+        double[] arrpad = new double[cpowerlength];
         System.arraycopy(carray, 0, arrpad, 0, carray.length);
         return arrpad;
     }
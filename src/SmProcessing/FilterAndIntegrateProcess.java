@@ -57,11 +57,41 @@ public class FilterAndIntegrateProcess {
      * @throws SmException if unable to calculate valid filter parameters
      */
     public void filterAndIntegrate( double[] accel, double dtime) throws SmException {
+        filterAndIntegrate( accel, dtime, null);
+    }
+    /**
+     * Filters and integrates as above, reusing the given array for the padded
+     * acceleration if it has the right length, such as the padded acceleration
+     * from an earlier call for an array of the same length.
+     * @param accel this array is modified during processing, with the final array
+     * containing the filtered acceleration values
+     * @param dtime the sample time interval (seconds/sample) for the record
+     * @param padbuffer the array to reuse for the padded acceleration, or null
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    public void filterAndIntegrate( double[] accel, double dtime, double[] padbuffer) 
+                                                            throws SmException {
+        filterAndIntegrate( accel, dtime, padbuffer, null);
+    }
+    /**
+     * Filters and integrates as above, taking the forward filter pass over the
+     * start of the array from the given prefix if the array starts with the
+     * prefix values.
+     * @param accel this array is modified during processing, with the final array
+     * containing the filtered acceleration values
+     * @param dtime the sample time interval (seconds/sample) for the record
+     * @param padbuffer the array to reuse for the padded acceleration, or null
+     * @param prefix the values shared by the start of the arrays to filter, or null
+     * @throws SmException if unable to calculate valid filter parameters
+     */
+    public void filterAndIntegrate( double[] accel, double dtime, double[] padbuffer,
+                ButterworthFilter.ForwardPrefix prefix) throws SmException {
         ButterworthFilter filter = new ButterworthFilter();
         boolean valid = filter.calculateCoefficients(lowcut, highcut, 
                                                             dtime, numroll, true);
         if (valid) {
-            paddedaccel = filter.applyFilter(accel, taperlength, startIndex);
+            paddedaccel = filter.applyFilter(accel, taperlength, startIndex, 
+                                                            padbuffer, prefix);
         } else {
             throw new SmException("Invalid bandpass filter calculated parameters");
         }
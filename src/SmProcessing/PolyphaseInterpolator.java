@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Name: Java class PolyphaseInterpolator.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.Arrays;
+
+/**
+ * This class increases the sampling rate of a record by a whole number factor
+ * with a polyphase FIR interpolator.  The interpolating filter is a Kaiser
+ * windowed sinc with its cutoff at the input Nyquist frequency, split into one
+ * set of taps for each output phase, so each output sample is a short dot
+ * product of the nearest input samples.  The original samples are passed
+ * through unchanged.  The input can be given chunk by chunk, and the state
+ * between chunks is only the last few input samples, so the time and memory
+ * used grow linearly with the record length.  The output lags the input by
+ * HALF_TAPS samples until the flush at the end, which treats the samples past
+ * the end of the record as zero, as are the samples before the start.
+ * @author jmjones
+ */
+public class PolyphaseInterpolator {
+    public static final int HALF_TAPS = 16;  //input samples on each side
+    public static final double KAISER_BETA = 8.0;
+
+    private final int factor;
+    private final int taps;
+    private final double[][] phases;
+    private final double[] history;
+    private int next;
+    private int received;
+    /**
+     * Constructor builds the interpolating filter taps for each output phase
+     * @param factor the whole number increase in sampling rate
+     */
+    public PolyphaseInterpolator(int factor) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("Invalid interpolation factor of " + factor);
+        }
+        this.factor = factor;
+        this.taps = 2 * HALF_TAPS;
+        this.phases = new double[factor][taps];
+        double norm = besselI0(KAISER_BETA);
+        for (int p = 0; p < factor; p++) {
+            double sum = 0.0;
+            for (int i = 0; i < taps; i++) {
+                //distance from the output time to input sample i of the window
+                double t = (double)p / factor + (HALF_TAPS - 1 - i);
+                double ratio = t / HALF_TAPS;
+                double window = (Math.abs(ratio) >= 1.0) ? 0.0 :
+                    besselI0(KAISER_BETA * Math.sqrt(1.0 - ratio * ratio)) / norm;
+                phases[p][i] = sinc(t) * window;
+                sum += phases[p][i];
+            }
+            //unit gain at zero frequency for every phase
+            for (int i = 0; i < taps; i++) {
+                phases[p][i] /= sum;
+            }
+        }
+        //the history is kept twice over so the window is always contiguous,
+        //and starts out with zeros for the samples before the record
+        this.history = new double[2 * taps];
+        this.next = 0;
+        this.received = 0;
+    }
+    /**
+     * Getter for the interpolation factor
+     * @return the factor, such that old_rate * factor = new_rate
+     */
+    public int getFactor() {
+        return factor;
+    }
+    /**
+     * Interpolates the next chunk of input samples.  Once the first HALF_TAPS
+     * samples have been given, each input sample produces factor output samples.
+     * @param input the array holding the chunk of input samples
+     * @param offset the index of the first input sample of the chunk
+     * @param length the number of input samples in the chunk
+     * @param output the array to put the output samples in, with room for
+     * length * factor samples
+     * @param outOffset the index in the output array for the first output sample
+     * @return the number of output samples produced
+     */
+    public int process(double[] input, int offset, int length, double[] output,
+                                                                int outOffset) {
+        int count = 0;
+        for (int k = 0; k < length; k++) {
+            if (push(input[offset + k])) {
+                count += interpolate(output, outOffset + count);
+            }
+        }
+        return count;
+    }
+    /**
+     * Produces the output samples still held back at the end of the record by
+     * interpolating with zeros past the end.  After the flush the total number
+     * of output samples is the number of input samples times the factor, and
+     * the interpolator is ready to start on a new record.
+     * @param output the array to put the output samples in, with room for
+     * HALF_TAPS * factor samples
+     * @param outOffset the index in the output array for the first output sample
+     * @return the number of output samples produced
+     */
+    public int flush(double[] output, int outOffset) {
+        int count = 0;
+        for (int k = 0; k < HALF_TAPS; k++) {
+            if (push(0.0)) {
+                count += interpolate(output, outOffset + count);
+            }
+        }
+        Arrays.fill(history, 0.0);
+        next = 0;
+        received = 0;
+        return count;
+    }
+    /**
+     * Adds an input sample to the history
+     * @param value the input sample
+     * @return true if the history now holds a full window for an output step
+     */
+    private boolean push(double value) {
+        history[next] = value;
+        history[next + taps] = value;
+        next = (next + 1) % taps;
+        received++;
+        return (received > HALF_TAPS);
+    }
+    /**
+     * Computes the output samples for all the phases for the current window
+     * @param output the output array
+     * @param outOffset the index for the first output sample
+     * @return the number of output samples produced
+     */
+    private int interpolate(double[] output, int outOffset) {
+        for (int p = 0; p < factor; p++) {
+            double[] coefs = phases[p];
+            double sum = 0.0;
+            for (int i = 0; i < taps; i++) {
+                sum += coefs[i] * history[next + i];
+            }
+            output[outOffset + p] = sum;
+        }
+        return factor;
+    }
+    /**
+     * Normalized sinc function, sin(pi t) / (pi t), exactly 0 at the nonzero
+     * whole numbers
+     * @param t the input value
+     * @return the sinc value
+     */
+    private static double sinc(double t) {
+        if (t == Math.rint(t)) {
+            return (t == 0.0) ? 1.0 : 0.0;
+        }
+        double x = Math.PI * t;
+        return Math.sin(x) / x;
+    }
+    /**
+     * Modified Bessel function of the first kind, order 0, by its power series
+     * @param x the input value
+     * @return the function value
+     */
+    private static double besselI0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double half = x / 2.0;
+        for (int k = 1; k < 50; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+            if (term < sum * 1.0e-17) {
+                break;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Name: Java class ProcessingPool.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class holds the fork-join pool shared by all the parallel processing
+ * within a record, such as the response spectra oscillators and the ABC break
+ * point search.  One pool sized to the processors is used for all of them, so
+ * records that run these steps at the same time share the processors instead
+ * of each step starting its own full set of threads.  The pool threads are
+ * daemon threads, so the pool does not need to be shut down.
+ * @author jmjones
+ */
+public final class ProcessingPool {
+    public static final ForkJoinPool POOL = new ForkJoinPool();
+    
+    private ProcessingPool() {
+    }
+}
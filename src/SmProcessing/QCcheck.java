@@ -39,10 +39,19 @@ public class QCcheck {
     private double velstart;
     private double velend;
     private double disend;
+    private final ConfigReader config;
     /**
      * Default constructor
      */
     public QCcheck() {
+        this(ConfigReader.INSTANCE);
+    }
+    /**
+     * Constructor with the configuration values to get the QC limits from
+     * @param config the configuration values for this record
+     */
+    public QCcheck(ConfigReader config) {
+        this.config = config;
     }
     /**
      * Retrieves the QC limits from the configuration file.  If no configuration
@@ -53,7 +62,6 @@ public class QCcheck {
      * extract them from the configuration file.
      */
     public boolean validateQCvalues() {
-        ConfigReader config = ConfigReader.INSTANCE;
         try {
             String qainitvel = config.getConfigValue(QC_INITIAL_VELOCITY);
             this.qcvelinit = (qainitvel == null) ? DEFAULT_QA_INITIAL_VELOCITY : 
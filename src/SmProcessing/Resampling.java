@@ -13,33 +13,60 @@
  ******************************************************************************/
 package SmProcessing;
 
+import static SmConstants.VFileConstants.DEFAULT_RESAMPLING_MODE;
 import static SmConstants.VFileConstants.SAMPLING_LIMIT;
+import SmConstants.VFileConstants.ResamplingMode;
 import SmException.SmException;
-import java.util.Arrays;
-import org.apache.commons.math3.complex.Complex;
+import SmUtilities.ConfigReader;
+import static SmUtilities.SmConfigConstants.RESAMPLING_MODE;
 
 /**
  * The Resampling class re-samples records to a higher sampling rate as needed.
  * If performs the resampling in the frequency domain, using the fft of the
- * input array to increase the frequency of the samples.
+ * input array to increase the frequency of the samples.  Alternatively, the
+ * resampling can be done in the time domain with a polyphase interpolator,
+ * which avoids the power-of-2 padded arrays of the fft for long records.  The
+ * polyphase interpolator is also used when the increase in sampling rate is
+ * not a power of 2.  In native mode no record needs resampling, and records
+ * are processed at their own rate with the response spectra coefficients
+ * computed for that rate.
  * @author jmjones
  */
 public class Resampling {
+    private static final int CHUNK_LENGTH = 8192;  //input samples per chunk
     private int ylen;
     private int zlen;
     private int padlen;
     private int factor;
     private int newrate;
     private final FFourierTransform fft;
+    private final ResamplingMode mode;
     /**
-     * The resampling constructor simply initializes variables
+     * The resampling constructor simply initializes variables, using the
+     * fft resampling
      */
     public Resampling() {
+        this(ResamplingMode.FFT);
+    }
+    /**
+     * Constructor with the resampling mode from the configuration file, or
+     * the default mode if there is no entry for it
+     * @param config the configuration values for this record
+     */
+    public Resampling(ConfigReader config) {
+        this(getConfigMode(config));
+    }
+    /**
+     * Constructor with the resampling mode
+     * @param mode the resampling mode, fft, polyphase, or native
+     */
+    public Resampling(ResamplingMode mode) {
         this.ylen = 0;
         this.zlen = 0;
         this.factor = 0;
         this.padlen = 0;
         this.fft = new FFourierTransform();
+        this.mode = mode;
     }
     /**
      * Performs the actual re-sampling by taking the fft of the input array and
@@ -67,6 +94,11 @@ public class Resampling {
         if (factor < 0) {
             throw new SmException("Invalid sampling rate of " + sps);
         }
+        //the fft zero padding only works out to whole power of 2 factors, so
+        //rates with other factors always use the polyphase interpolator
+        if ((mode == ResamplingMode.POLYPHASE) || (Integer.bitCount(factor) != 1)) {
+            return resamplePolyphase( yarray );
+        }
         //this is the new length of the resampled output array
         int newlen = ylen * factor;
         
@@ -79,11 +111,11 @@ public class Resampling {
         padlen = ylen * (factor-1);
         int complexlen = fft.findPower2Length( padlen + fftpadlen);
         int padlenpower2 = complexlen - fftpadlen;
-        Complex[] zeroes = new Complex[padlenpower2];
-        Arrays.fill( zeroes, Complex.ZERO );
 
         //compute fft
-        Complex[] zarray = fft.calculateFFTComplex( yarray );
+        double[][] zarray = fft.calculateFFTComplex( yarray );
+        double[] zreal = zarray[0];
+        double[] zimag = zarray[1];
 //        System.out.println("length of zarray: " + zarray.length);
 //        System.out.println("zlen: " + zlen);
 //        System.out.println("padlen: " + padlen);
@@ -95,19 +127,23 @@ public class Resampling {
 //        }
         
         //construct a new Fourier spectrum by centering zeroes
-        Complex[] zp = new Complex[complexlen];
+        double[] zpreal = new double[complexlen];
+        double[] zpimag = new double[complexlen];
 //        System.out.println("length of zp: " + zp.length);
-        System.arraycopy(zarray, 0, zp, 0, zlen);
-        System.arraycopy(zeroes, 0, zp, zlen, padlenpower2);
-        System.arraycopy(zarray, zlen, zp, (zlen+padlenpower2), fftpadlen-zlen);
+        System.arraycopy(zreal, 0, zpreal, 0, zlen);
+        System.arraycopy(zimag, 0, zpimag, 0, zlen);
+        System.arraycopy(zreal, zlen, zpreal, (zlen+padlenpower2), fftpadlen-zlen);
+        System.arraycopy(zimag, zlen, zpimag, (zlen+padlenpower2), fftpadlen-zlen);
 //        System.out.println("zp before Nyquist");
 //        for (Complex each : zp) {
 //            System.out.println(each.toString());
 //        }
         
         //correct for Nyquist (number of data in input signal is always even)
-        zp[zlen-1] = zp[zlen-1].divide(2.0);
-        zp[zlen-1+padlen] = zp[zlen-1];
+        zpreal[zlen-1] = zpreal[zlen-1] / 2.0;
+        zpimag[zlen-1] = zpimag[zlen-1] / 2.0;
+        zpreal[zlen-1+padlen] = zpreal[zlen-1];
+        zpimag[zlen-1+padlen] = zpimag[zlen-1];
 //        System.out.println("zp after Nyquist");
 //        for (Complex each : zp) {
 //            System.out.println(each.toString());
@@ -115,7 +151,7 @@ public class Resampling {
         
         //compute inverse FFT
         double[] yp = new double[newlen];
-        double[] ypfft = fft.inverseFFTComplex(zp);
+        double[] ypfft = fft.inverseFFTComplex(zpreal, zpimag);
 //        System.out.println("yp back from inverse fft");
 //        for (Double each : ypfft) {
 //            System.out.println(each);
@@ -131,15 +167,54 @@ public class Resampling {
 //        }
         return yp;
     }
+    /**
+     * Performs the re-sampling in the time domain with the polyphase
+     * interpolator, one chunk of the input array at a time
+     * @param yarray the input array to be re-sampled
+     * @return the re-sampled array
+     */
+    private double[] resamplePolyphase( double[] yarray ) {
+        PolyphaseInterpolator interp = new PolyphaseInterpolator( factor );
+        double[] yp = new double[ylen * factor];
+        int outnext = 0;
+        for (int start = 0; start < ylen; start += CHUNK_LENGTH) {
+            int len = Math.min(CHUNK_LENGTH, ylen - start);
+            outnext += interp.process(yarray, start, len, yp, outnext);
+        }
+        interp.flush(yp, outnext);
+        return yp;
+    }
+    /**
+     * Gets the resampling mode from the configuration file
+     * @param config the configuration values
+     * @return the resampling mode, or the default if there is no entry
+     */
+    private static ResamplingMode getConfigMode(ConfigReader config) {
+        String modename = config.getConfigValue(RESAMPLING_MODE);
+        if (modename == null) {
+            return DEFAULT_RESAMPLING_MODE;
+        } else if (modename.equalsIgnoreCase("Polyphase")) {
+            return ResamplingMode.POLYPHASE;
+        } else if (modename.equalsIgnoreCase("Native")) {
+            return ResamplingMode.NATIVE;
+        } else {
+            return ResamplingMode.FFT;
+        }
+    }
+    /**
+     * Getter for the resampling mode
+     * @return the resampling mode
+     */
+    public ResamplingMode getMode() { return mode; }
     /**
      * Tests the input sampling rate against a sampling limit.
      * @param sps the input sampling rate
-     * @return true if the array's sampling rate is below the sampling limit,
-     * false otherwise
+     * @return true if the array's sampling rate is below the sampling limit
+     * and the mode is not native, false otherwise
      */
     public boolean needsResampling( int sps ) {
         boolean needssampling = false;
-        if (sps < SAMPLING_LIMIT) {
+        if ((mode != ResamplingMode.NATIVE) && (sps < SAMPLING_LIMIT)) {
             needssampling = true;
         }
         return needssampling;
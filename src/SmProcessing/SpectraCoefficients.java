@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Name: Java class SpectraCoefficients.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmProcessing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class computes the recursion coefficients of the response spectra
+ * oscillators for any sampling interval, damping, and period.  The
+ * coefficients are the exact solution of the single degree of freedom
+ * oscillator over one time step, with the acceleration held constant over
+ * the step, and are the same values that are tabulated in the CoefTable files
+ * for the standard sampling rates.  For displacement x and velocity v, with
+ * natural frequency w = 2 pi / period, damping z, and damped frequency
+ * wd = w sqrt(1 - z^2), the coefficients over a step dt are:
+ * a = exp(-z w dt) (cos(wd dt) + (z w / wd) sin(wd dt)),
+ * b = exp(-z w dt) sin(wd dt) / wd,
+ * c = -exp(-z w dt) (w^2 / wd) sin(wd dt),
+ * d = exp(-z w dt) (cos(wd dt) - (z w / wd) sin(wd dt)),
+ * e = (1 - a) / w^2, and f = b.
+ * The computed coefficients are kept in a least recently used cache, keyed by
+ * the sampling interval, damping, and period, which is shared by all records.
+ * @author jmjones
+ */
+public final class SpectraCoefficients {
+    public static final int NUM_COEFS = 6;
+    //the most coefficient sets kept, enough for all the oscillators at
+    //several sampling rates
+    public static final int CACHE_SIZE = 4096;
+    
+    private static final Map<CoefKey, double[]> CACHE = 
+            new LinkedHashMap<CoefKey, double[]>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CoefKey, double[]> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+    
+    private SpectraCoefficients() {
+    }
+    /**
+     * Getter for the coefficient array for the sampling interval and damping,
+     * with one row of coefficients for each period, in the same layout as
+     * SpectraResources.getCoefArray
+     * @param dtime the sampling interval in seconds
+     * @param damping the damping value, as a fraction of critical damping
+     * @param periods the oscillator periods in seconds
+     * @return the array of coefficients
+     */
+    public static double[][] getCoefArray(double dtime, double damping, double[] periods) {
+        double[][] outarray = new double[periods.length][];
+        for (int i = 0; i < periods.length; i++) {
+            outarray[i] = getCoefficients(dtime, damping, periods[i]);
+        }
+        return outarray;
+    }
+    /**
+     * Getter for the coefficients of one oscillator, taken from the cache or
+     * computed and added to the cache
+     * @param dtime the sampling interval in seconds
+     * @param damping the damping value, as a fraction of critical damping
+     * @param period the oscillator period in seconds
+     * @return the coefficients a, b, c, d, e, and f
+     */
+    public static double[] getCoefficients(double dtime, double damping, double period) {
+        CoefKey key = new CoefKey(dtime, damping, period);
+        double[] coefs;
+        synchronized (CACHE) {
+            coefs = CACHE.get(key);
+        }
+        if (coefs == null) {
+            coefs = computeCoefficients(dtime, damping, period);
+            synchronized (CACHE) {
+                CACHE.put(key, coefs);
+            }
+        }
+        return coefs.clone();
+    }
+    /**
+     * Computes the coefficients of one oscillator
+     * @param dtime the sampling interval in seconds
+     * @param damping the damping value, from 0 up to but not including 1
+     * @param period the oscillator period in seconds
+     * @return the coefficients a, b, c, d, e, and f
+     * @throws IllegalArgumentException if the sampling interval or period is
+     * not positive, or the damping is outside the underdamped range
+     */
+    public static double[] computeCoefficients(double dtime, double damping, double period) {
+        if (!(dtime > 0.0) || !(period > 0.0) || !(damping >= 0.0) || !(damping < 1.0)) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid oscillator: dt %f, damping %f, period %f", dtime, damping, period));
+        }
+        double omega = (2.0 * Math.PI) / period;
+        double omegad = omega * Math.sqrt(1.0 - damping * damping);
+        double decay = Math.exp(-damping * omega * dtime);
+        double cosd = Math.cos(omegad * dtime);
+        double sind = Math.sin(omegad * dtime);
+        double ratio = (damping * omega) / omegad;
+        
+        double[] coefs = new double[NUM_COEFS];
+        coefs[0] = decay * (cosd + ratio * sind);
+        coefs[1] = decay * sind / omegad;
+        coefs[2] = -decay * (omega * omega / omegad) * sind;
+        coefs[3] = decay * (cosd - ratio * sind);
+        coefs[4] = (1.0 - coefs[0]) / (omega * omega);
+        coefs[5] = coefs[1];
+        return coefs;
+    }
+    /**
+     * Getter for the number of coefficient sets in the cache
+     * @return the number of cached coefficient sets
+     */
+    public static int getCacheCount() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+    /**
+     * This class is the cache key, matching the sampling interval, damping,
+     * and period exactly.
+     */
+    private static final class CoefKey {
+        private final long dtime;
+        private final long damping;
+        private final long period;
+        
+        private CoefKey(double dtime, double damping, double period) {
+            this.dtime = Double.doubleToLongBits(dtime);
+            this.damping = Double.doubleToLongBits(damping);
+            this.period = Double.doubleToLongBits(period);
+        }
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CoefKey)) {
+                return false;
+            }
+            CoefKey key = (CoefKey)other;
+            return (dtime == key.dtime) && (damping == key.damping) && 
+                                                        (period == key.period);
+        }
+        @Override
+        public int hashCode() {
+            long bits = dtime * 31 * 31 + damping * 31 + period;
+            return (int)(bits ^ (bits >>> 32));
+        }
+    }
+}
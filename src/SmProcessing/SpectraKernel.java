@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Name: Java class SpectraKernel.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmProcessing;
+
+import SmConstants.VFileConstants.SpectraEngine;
+import static SmProcessing.ProcessingPool.POOL;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class computes the response spectra for the V3 processing.  Each
+ * oscillator, one for each damping value and period, runs the two-state
+ * recursion over the acceleration with the state held in local variables and
+ * the peak displacement tracked as it goes, so no state history arrays are
+ * built.  The oscillators are spread over the processors with the shared
+ * processing pool.  With the blocked engine, each thread advances a block of LANES
+ * oscillators together at each time step, so the independent recursions
+ * overlap in the processor instead of each waiting on its own previous
+ * step, and the acceleration is read once for the block.  Each oscillator is
+ * still computed with the same operations in the same order as the original
+ * recursion, so the spectra are the same for either engine no matter how the
+ * work is divided.
+ * @author jmjones
+ */
+public final class SpectraKernel {
+    //the smallest amount of work, in oscillator steps, to run as its own task
+    private static final long MIN_TASK_STEPS = 1L << 16;
+    //the number of oscillators advanced together by the blocked engine
+    public static final int LANES = 4;
+    
+    private SpectraKernel() {
+    }
+    /**
+     * Computes the peak relative displacement of one oscillator.  The state
+     * follows y0[k] = a*y0[k-1] + b*y1[k-1] + e*accel[k] and 
+     * y1[k] = c*y0[k-1] + d*y1[k-1] + f*accel[k], starting from zero, and the
+     * peak is the displacement with the largest magnitude, found the same way
+     * as ArrayStats.getPeakVal.
+     * @param accel the acceleration array
+     * @param coefs the recursion coefficients a, b, c, d, e, and f
+     * @return the absolute value of the peak displacement
+     */
+    public static double peakDisplacement(double[] accel, double[] coefs) {
+        double coef_a = coefs[0];
+        double coef_b = coefs[1];
+        double coef_c = coefs[2];
+        double coef_d = coefs[3];
+        double coef_e = coefs[4];
+        double coef_f = coefs[5];
+        //the starting values of the peak search in ArrayStats
+        double maxhigh = Double.MIN_VALUE;
+        double maxlow = Double.MAX_VALUE;
+        double y0 = 0.0;
+        double y1 = 0.0;
+        int len = accel.length;
+        if (len > 0) {
+            if (y0 > maxhigh) {
+                maxhigh = y0;
+            }
+            if (y0 < maxlow) {
+                maxlow = y0;
+            }
+        }
+        for (int k = 1; k < len; k++) {
+            double next0 = coef_a * y0 + coef_b * y1 + coef_e * accel[k];
+            double next1 = coef_c * y0 + coef_d * y1 + coef_f * accel[k];
+            y0 = next0;
+            y1 = next1;
+            if (y0 > maxhigh) {
+                maxhigh = y0;
+            }
+            if (y0 < maxlow) {
+                maxlow = y0;
+            }
+        }
+        return peakOf(maxhigh, maxlow);
+    }
+    /**
+     * Computes the peak relative displacement of each oscillator, advancing
+     * blocks of LANES oscillators together through the acceleration.  Each
+     * peak is the same as from peakDisplacement.
+     * @param accel the acceleration array
+     * @param coefs the recursion coefficients for each oscillator
+     * @param peaks the absolute value of the peak displacement for each
+     * oscillator, filled in
+     */
+    public static void peakDisplacements(double[] accel, double[][] coefs, 
+                                                            double[] peaks) {
+        int next = 0;
+        for (; next + LANES <= coefs.length; next += LANES) {
+            peakBlock(accel, coefs[next], coefs[next+1], coefs[next+2], 
+                                                coefs[next+3], peaks, next);
+        }
+        for (; next < coefs.length; next++) {
+            peaks[next] = peakDisplacement(accel, coefs[next]);
+        }
+    }
+    /**
+     * Advances four oscillators together through the acceleration, each with
+     * the recursion and peak search of peakDisplacement
+     * @param accel the acceleration array
+     * @param c0 the recursion coefficients of the first oscillator
+     * @param c1 the recursion coefficients of the second oscillator
+     * @param c2 the recursion coefficients of the third oscillator
+     * @param c3 the recursion coefficients of the fourth oscillator
+     * @param peaks the array for the peak displacements
+     * @param offset the index in peaks for the first oscillator
+     */
+    private static void peakBlock(double[] accel, double[] c0, double[] c1, 
+                        double[] c2, double[] c3, double[] peaks, int offset) {
+        double a0 = c0[0], b0 = c0[1], cc0 = c0[2], d0 = c0[3], e0 = c0[4], f0 = c0[5];
+        double a1 = c1[0], b1 = c1[1], cc1 = c1[2], d1 = c1[3], e1 = c1[4], f1 = c1[5];
+        double a2 = c2[0], b2 = c2[1], cc2 = c2[2], d2 = c2[3], e2 = c2[4], f2 = c2[5];
+        double a3 = c3[0], b3 = c3[1], cc3 = c3[2], d3 = c3[3], e3 = c3[4], f3 = c3[5];
+        double x0 = 0.0, v0 = 0.0, x1 = 0.0, v1 = 0.0;
+        double x2 = 0.0, v2 = 0.0, x3 = 0.0, v3 = 0.0;
+        double hi0 = Double.MIN_VALUE, lo0 = Double.MAX_VALUE;
+        double hi1 = Double.MIN_VALUE, lo1 = Double.MAX_VALUE;
+        double hi2 = Double.MIN_VALUE, lo2 = Double.MAX_VALUE;
+        double hi3 = Double.MIN_VALUE, lo3 = Double.MAX_VALUE;
+        int len = accel.length;
+        if (len > 0) {
+            //the starting displacement of zero is part of the peak search
+            lo0 = lo1 = lo2 = lo3 = 0.0;
+        }
+        for (int k = 1; k < len; k++) {
+            double acc = accel[k];
+            double nx0 = a0 * x0 + b0 * v0 + e0 * acc;
+            double nv0 = cc0 * x0 + d0 * v0 + f0 * acc;
+            double nx1 = a1 * x1 + b1 * v1 + e1 * acc;
+            double nv1 = cc1 * x1 + d1 * v1 + f1 * acc;
+            double nx2 = a2 * x2 + b2 * v2 + e2 * acc;
+            double nv2 = cc2 * x2 + d2 * v2 + f2 * acc;
+            double nx3 = a3 * x3 + b3 * v3 + e3 * acc;
+            double nv3 = cc3 * x3 + d3 * v3 + f3 * acc;
+            x0 = nx0; v0 = nv0; x1 = nx1; v1 = nv1;
+            x2 = nx2; v2 = nv2; x3 = nx3; v3 = nv3;
+            if (x0 > hi0) { hi0 = x0; }
+            if (x0 < lo0) { lo0 = x0; }
+            if (x1 > hi1) { hi1 = x1; }
+            if (x1 < lo1) { lo1 = x1; }
+            if (x2 > hi2) { hi2 = x2; }
+            if (x2 < lo2) { lo2 = x2; }
+            if (x3 > hi3) { hi3 = x3; }
+            if (x3 < lo3) { lo3 = x3; }
+        }
+        peaks[offset] = peakOf(hi0, lo0);
+        peaks[offset+1] = peakOf(hi1, lo1);
+        peaks[offset+2] = peakOf(hi2, lo2);
+        peaks[offset+3] = peakOf(hi3, lo3);
+    }
+    /**
+     * Picks the peak from the highest and lowest values, as in ArrayStats
+     * @param maxhigh the highest value
+     * @param maxlow the lowest value
+     * @return the absolute value of the peak
+     */
+    private static double peakOf(double maxhigh, double maxlow) {
+        double peak = (Math.abs(maxhigh) > Math.abs(maxlow)) ? maxhigh : maxlow;
+        return Math.abs(peak);
+    }
+    /**
+     * Computes the displacement, velocity, and acceleration spectra for each
+     * damping value and period.  The velocity is the displacement times the
+     * natural frequency, and the acceleration is the velocity times the
+     * natural frequency.
+     * @param accel the acceleration array
+     * @param coefs the recursion coefficients by damping value and period
+     * @param periods the periods of the oscillators
+     * @param sd the displacement spectrum for each damping value, filled in
+     * @param sv the velocity spectrum for each damping value, filled in
+     * @param sa the acceleration spectrum for each damping value, filled in
+     * @param engine the engine to compute the oscillators with
+     */
+    public static void computeSpectra(double[] accel, double[][][] coefs,
+                    double[] periods, double[][] sd, double[][] sv, double[][] sa,
+                    SpectraEngine engine) {
+        SpectraTask task = new SpectraTask(accel, coefs, periods, sd, sv, sa,
+                        (engine == SpectraEngine.BLOCKED) ? LANES : 1,
+                        0, coefs.length * periods.length);
+        if (task.isSmall()) {
+            task.computeRange();
+        } else {
+            POOL.invoke(task);
+        }
+    }
+    /**
+     * This class computes the oscillators in a range of the damping and
+     * period grid, numbered damping by damping, splitting the range in half
+     * until each piece is small enough.  The range is split on whole blocks,
+     * and a block of oscillators may span two damping values.
+     */
+    private static final class SpectraTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] accel;
+        private final double[][][] coefs;
+        private final double[] periods;
+        private final double[][] sd;
+        private final double[][] sv;
+        private final double[][] sa;
+        private final int block;
+        private final int begin;
+        private final int end;
+        
+        private SpectraTask(double[] accel, double[][][] coefs, double[] periods,
+                            double[][] sd, double[][] sv, double[][] sa, 
+                            int block, int begin, int end) {
+            this.accel = accel;
+            this.coefs = coefs;
+            this.periods = periods;
+            this.sd = sd;
+            this.sv = sv;
+            this.sa = sa;
+            this.block = block;
+            this.begin = begin;
+            this.end = end;
+        }
+        private boolean isSmall() {
+            return ((end - begin) < 2 * block) || 
+                        ((long)(end - begin) * accel.length < 2 * MIN_TASK_STEPS);
+        }
+        @Override
+        protected void compute() {
+            if (isSmall()) {
+                computeRange();
+            } else {
+                int mid = begin + (((end - begin) / block) >>> 1) * block;
+                invokeAll(new SpectraTask(accel, coefs, periods, sd, sv, sa, 
+                                                            block, begin, mid),
+                          new SpectraTask(accel, coefs, periods, sd, sv, sa, 
+                                                            block, mid, end));
+            }
+        }
+        private void computeRange() {
+            double[] peaks = new double[end - begin];
+            if (block > 1) {
+                double[][] rows = new double[end - begin][];
+                for (int i = begin; i < end; i++) {
+                    rows[i - begin] = coefs[i / periods.length][i % periods.length];
+                }
+                peakDisplacements(accel, rows, peaks);
+            } else {
+                for (int i = begin; i < end; i++) {
+                    peaks[i - begin] = peakDisplacement(accel, 
+                                coefs[i / periods.length][i % periods.length]);
+                }
+            }
+            for (int i = begin; i < end; i++) {
+                int d = i / periods.length;
+                int p = i % periods.length;
+                double omega = (2.0 * Math.PI) / periods[p];
+                sd[d][p] = peaks[i - begin];
+                sv[d][p] = sd[d][p] * omega;
+                sa[d][p] = sv[d][p] * omega;
+            }
+        }
+    }
+}
@@ -15,7 +15,6 @@
 package SmProcessing;
 
 import static SmConstants.VFileConstants.NUM_COEF_VALS;
-import static SmConstants.VFileConstants.NUM_T_PERIODS;
 import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
 import static SmConstants.VFileConstants.V3_SAMPLING_RATES;
 import SmException.FormatException;
@@ -28,11 +27,13 @@ import java.util.ArrayList;
 /**
  * This class provides access to the coefficient tables for the different sampling
  * rates and damping values, as well as the file of periods, used during
- * processing of response spectra.
+ * processing of response spectra.  The files are read and parsed once for the
+ * whole run, the first time the class is constructed, and the parsed tables
+ * are shared by all instances.  The shared tables are never changed once
+ * loaded, and the getters return copies, so the class is thread-safe.
  * @author jmjones
  */
 public class SpectraResources {
-    private boolean initialized = false;
     private static final double EPSILON = 0.000001;
     private static final String periodFileName = "spectra/T_periods.txt";
     private static final String[] spectraFileNames = 
@@ -56,25 +57,37 @@ public class SpectraResources {
                                                 "spectra/CoefTable_500_0.05.txt",
                                                 "spectra/CoefTable_500_0.1.txt",
                                                 "spectra/CoefTable_500_0.2.txt" };
-    private String[] T_periods;
-    private String[][] coefs;
+    //the tables shared by all instances, set once all the files are read in
+    private static volatile SpectraTables tables;
+    private final SpectraTables shared;
     /**
      * The constructor checks to see if the files have been read in already.  If 
-     * so, it simply exits.  If not, it reads in the files and stores the contents
-     * internally for access through the getter methods.
+     * so, it simply uses the tables already parsed.  If not, it reads in the
+     * files and parses them for access through the getter methods.
      * @throws IOException if unable to read in a file
      */
     public SpectraResources() throws IOException {
-        //Note that this is not considered thread-safe
-        if (!initialized) {
-            coefs = new String[spectraFileNames.length][NUM_T_PERIODS];
-            //Read in resource tables with periods and coefficients
-            T_periods = readInResource(periodFileName);
+        SpectraTables loaded = tables;
+        if (loaded == null) {
+            loaded = loadTables();
+        }
+        this.shared = loaded;
+    }
+    /**
+     * Reads in and parses the files if no other thread has done so yet
+     * @return the shared tables
+     * @throws IOException if unable to read in a file
+     */
+    private static synchronized SpectraTables loadTables() throws IOException {
+        if (tables == null) {
+            String[] periodText = readInResource(periodFileName);
+            String[][] coefText = new String[spectraFileNames.length][];
             for (int i = 0; i < spectraFileNames.length; i++) {
-                coefs[i] = readInResource( spectraFileNames[i]);
+                coefText[i] = readInResource( spectraFileNames[i]);
             }
-            initialized = true;
+            tables = new SpectraTables(periodText, coefText);
         }
+        return tables;
     }
     /**
      * This private method contains the actual read of the file.
@@ -82,10 +95,13 @@ public class SpectraResources {
      * @return data from the file as an array of strings
      * @throws IOException if unable to read a file
      */
-    private String[] readInResource( String inName ) throws IOException {
+    private static String[] readInResource( String inName ) throws IOException {
         InputStream stream = SpectraResources.class.getResourceAsStream(inName);
         String nextLine;
         
+        if (stream == null) {
+            throw new IOException("Unable to find spectra resource " + inName);
+        }
         ArrayList<String> tempfile = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
             while ((nextLine = reader.readLine()) != null) {
@@ -103,30 +119,27 @@ public class SpectraResources {
      * @throws FormatException if unable to parse the periods file
      */
     public final double[] getTperiods() throws FormatException {
-        int len = T_periods.length;
-        double[] tout = new double[len];
-        try {
-            for (int i = 0; i < len; i++) {
-                tout[i] = Double.parseDouble(T_periods[i]);
-            }
-        } catch (NumberFormatException err) {
+        if (shared.periods == null) {
             throw new FormatException("Unable to parse spectra periods file");
         }
-        return tout;
+        return shared.periods.clone();
     }
     /**
      * Getter for the coefficient array identified by sample rate and damping
-     * value
+     * value.  The coefficients come from the coefficient tables for the
+     * standard sample rates and damping values.  For any other sample rate or
+     * damping value they are computed for the periods by SpectraCoefficients.
      * @param samplerate the sample rate
      * @param damping the damping value
      * @return the array of coefficients
-     * @throws FormatException if unable to parse the coefficients file
+     * @throws FormatException if unable to parse the coefficients file, or
+     * the sample rate or damping value is not valid for computed coefficients
      */
     public final double[][] getCoefArray( double samplerate, double damping) 
                                                         throws FormatException {
         int index;
-        int samp = 0;
-        int damp = 0;
+        int samp = -1;
+        int damp = -1;
         int len = V3_DAMPING_VALUES.length;
         for (int i = 0; i < V3_SAMPLING_RATES.length; i++) {
             if (Math.abs(samplerate-V3_SAMPLING_RATES[i]) < EPSILON) {
@@ -138,19 +151,35 @@ public class SpectraResources {
                 damp = i;
             }
         }
+        if ((samp < 0) || (damp < 0)) {
+            try {
+                return SpectraCoefficients.getCoefArray(1.0 / samplerate, damping, 
+                                                                getTperiods());
+            } catch (IllegalArgumentException err) {
+                throw new FormatException("Unable to compute spectra coefficients for "
+                        + "sample rate " + samplerate + " and damping " + damping);
+            }
+        }
         index = (samp*len) + damp;
-        return reformatCoefArray(coefs[index],NUM_COEF_VALS);
+        double[][] coefs = shared.coefs[index];
+        if (coefs == null) {
+            throw new FormatException("Unable to parse spectra coefficients file");
+        }
+        double[][] outarray = new double[coefs.length][];
+        for (int i = 0; i < coefs.length; i++) {
+            outarray[i] = coefs[i].clone();
+        }
+        return outarray;
     }
     /**
      * This private method actually handles the conversion of the array from
      * text to double.
      * @param array the coefficient array as strings
      * @param cols the number of coefficient values
-     * @return the array of coefficients as doubles
-     * @throws FormatException if unable to parse the coefficients
+     * @return the array of coefficients as doubles, or null if unable to 
+     * parse the coefficients
      */
-    private double[][] reformatCoefArray(String[] array, int cols ) 
-                                                        throws FormatException {
+    private static double[][] reformatCoefArray(String[] array, int cols ) {
         double[][] outarray = new double[array.length][cols];
         String[] vals;
         try {
@@ -160,8 +189,8 @@ public class SpectraResources {
                     outarray[i][j] = Double.parseDouble(vals[j]);
                 }
             }
-        } catch (NumberFormatException err) {
-            throw new FormatException("Unable to parse spectra coefficients file");
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException err) {
+            return null;
         }
         return outarray;
     }
@@ -170,13 +199,50 @@ public class SpectraResources {
      * @return the contents of the periods file
      */
     public final String[] getTPeriodsText() {
-        return T_periods;
+        return shared.periodText.clone();
     }
     /**
      * Getter of the coefficient arrays as text, mainly for debug
      * @return the coefficients
      */
     public final String[][] getCoefsText() {
-        return coefs;
+        String[][] outarray = new String[shared.coefText.length][];
+        for (int i = 0; i < outarray.length; i++) {
+            outarray[i] = shared.coefText[i].clone();
+        }
+        return outarray;
+    }
+    /**
+     * This class holds the contents of the files as read in and as parsed.
+     * Its arrays are filled in by the constructor and are never changed after.
+     * A table that could not be parsed is left null, so that the error is
+     * reported when the table is requested.
+     */
+    private static final class SpectraTables {
+        private final String[] periodText;
+        private final String[][] coefText;
+        private final double[] periods;
+        private final double[][][] coefs;
+        
+        private SpectraTables(String[] periodText, String[][] coefText) {
+            this.periodText = periodText;
+            this.coefText = coefText;
+            this.periods = parsePeriods(periodText);
+            this.coefs = new double[coefText.length][][];
+            for (int i = 0; i < coefText.length; i++) {
+                coefs[i] = reformatCoefArray(coefText[i], NUM_COEF_VALS);
+            }
+        }
+        private static double[] parsePeriods(String[] text) {
+            double[] tout = new double[text.length];
+            try {
+                for (int i = 0; i < text.length; i++) {
+                    tout[i] = Double.parseDouble(text[i]);
+                }
+            } catch (NumberFormatException err) {
+                return null;
+            }
+            return tout;
+        }
     }
 }
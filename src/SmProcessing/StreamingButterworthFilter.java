@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Name: Java class StreamingButterworthFilter.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmProcessing;
+
+import SmException.SmException;
+import java.util.Arrays;
+
+/**
+ * This class is a causal Butterworth bandpass filter for input that arrives
+ * in successive chunks, such as continuous telemetry or records too long to
+ * hold in memory.  It uses the same coefficients and second order sections as
+ * the ButterworthFilter, and keeps the state of each section from the end of
+ * one chunk to the start of the next, so filtering a record chunk by chunk
+ * gives exactly the same values as a single causal run of ButterworthFilter
+ * over the whole record.  Since the filter is causal, each output value is
+ * available as soon as its input value is given.  No taper or padding is
+ * applied, and the filter starts at rest.
+ * @author jmjones
+ */
+public class StreamingButterworthFilter {
+    private final double[] fact;
+    private final double[] b1;
+    private final double[] b2;
+    private final int nsect;
+    private final double[][] state;
+    private long count;
+    /**
+     * Constructor calculates the filter coefficients
+     * @param lowCutOff the filter low cutoff frequency
+     * @param highCutOff the filter high cutoff frequency
+     * @param dtime the sample time interval for the record
+     * @param rolloff the filter roll off, which is 1/2 the filter order
+     * @throws SmException if the filter parameters are invalid
+     */
+    public StreamingButterworthFilter(double lowCutOff, double highCutOff, 
+                                double dtime, int rolloff) throws SmException {
+        ButterworthFilter filter = new ButterworthFilter();
+        boolean valid = filter.calculateCoefficients(lowCutOff, highCutOff, 
+                                                        dtime, rolloff, false);
+        if (!valid) {
+            throw new SmException("Invalid bandpass filter input parameters");
+        }
+        this.fact = filter.getFact();
+        this.b1 = filter.getB1();
+        this.b2 = filter.getB2();
+        this.nsect = 2 * rolloff;
+        this.state = new double[4][nsect];
+        this.count = 0;
+    }
+    /**
+     * Filters the next chunk of the record in place
+     * @param chunk the next values of the record, replaced by the filtered values
+     */
+    public void filter(double[] chunk) {
+        filter(chunk, 0, chunk.length);
+    }
+    /**
+     * Filters the next chunk of the record in place
+     * @param array the array holding the chunk
+     * @param offset the index of the first value of the chunk
+     * @param length the number of values in the chunk
+     */
+    public void filter(double[] array, int offset, int length) {
+        ButterworthFilter.runCascade(array, offset, length, false, fact, b1, b2,
+                                                                nsect, state);
+        count += length;
+    }
+    /**
+     * Filters the next chunk of the record into an output array, leaving the
+     * input unchanged
+     * @param input the array holding the chunk
+     * @param offset the index of the first value of the chunk
+     * @param length the number of values in the chunk
+     * @param output the array for the filtered values
+     * @param outOffset the index in the output array for the first filtered value
+     */
+    public void filter(double[] input, int offset, int length, double[] output,
+                                                                int outOffset) {
+        System.arraycopy(input, offset, output, outOffset, length);
+        filter(output, outOffset, length);
+    }
+    /**
+     * Puts the filter back at rest to start a new record
+     */
+    public void reset() {
+        for (double[] each : state) {
+            Arrays.fill(each, 0.0);
+        }
+        count = 0;
+    }
+    /**
+     * Getter for the number of values filtered since the start of the record
+     * @return the number of values filtered
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -18,6 +18,7 @@ import COSMOSformat.V0Component;
 import static SmConstants.VFileConstants.*;
 import SmException.SmException;
 import SmUtilities.ConfigReader;
+import SmUtilities.SmProcessingContext;
 import static SmUtilities.SmConfigConstants.*;
 
 /**
@@ -38,6 +39,7 @@ public class V1Process extends V1ProcessFormat {
     private final String data_units;
     private final double lsb;
     private final double sensitivity;
+    private final SmProcessingContext context;
     
     /**
      * The extended constructor for V1Process retrieves the recorder LSB (least significant
@@ -50,11 +52,24 @@ public class V1Process extends V1ProcessFormat {
      * parameters
      */
     public V1Process(final V0Component v0rec) throws SmException {
+        this(v0rec, new SmProcessingContext());
+    }
+    /**
+     * Constructor for V1Process using the given processing context for the
+     * configuration values.
+     * @param v0rec the reference to the parent V0 record
+     * @param context the processing context for this record
+     * @throws SmException if unable to acquire needed real header or configuration
+     * parameters
+     */
+    public V1Process(final V0Component v0rec, SmProcessingContext context) 
+                                                            throws SmException {
         super();
         double epsilon = 0.0001;
         double nodata = v0rec.getNoRealVal();
         this.inV0 = v0rec;
-        ConfigReader config = ConfigReader.INSTANCE;
+        this.context = context;
+        ConfigReader config = context.getConfig();
         
         //extract needed values from the V0 record and check if defined
         this.lsb = v0rec.getRealHeaderValue(RECORER_LSB);
@@ -121,4 +136,11 @@ public class V1Process extends V1ProcessFormat {
     public String getDataUnits() {
         return this.data_units;
     }
+    /**
+     * Getter for the processing context of this record
+     * @return the processing context
+     */
+    public SmProcessingContext getProcessingContext() {
+        return this.context;
+    }
 }
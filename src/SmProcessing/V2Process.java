@@ -25,6 +25,7 @@ import SmUtilities.ConfigReader;
 import SmUtilities.ProcessStepsRecorder2;
 import static SmUtilities.SmConfigConstants.*;
 import SmUtilities.SmDebugLogger;
+import SmUtilities.SmProcessingContext;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -122,6 +123,7 @@ public class V2Process {
     protected double cumulativeAbsVelocity;
     
     protected ProcessStepsRecorder2 stepRec;
+    private final SmProcessingContext context;
     
     /**
      * Constructor gets the necessary header and configuration file parameters
@@ -134,11 +136,27 @@ public class V2Process {
      */
     public V2Process(final V1Component v1rec, File inName, String logtime) 
                                                             throws SmException {
+        this(v1rec, inName, logtime, new SmProcessingContext());
+    }
+    /**
+     * Constructor gets the necessary header and configuration file parameters
+     * and validates them, using the given processing context for the step
+     * recorder, configuration values, and debug logger.
+     * @param v1rec the V1 component object holding the uncorrected acceleration
+     * @param inName the name of the V0 input file
+     * @param logtime the processing time
+     * @param context the processing context for this record
+     * @throws SmException if unable to access valid header or configuration file
+     * parameters
+     */
+    public V2Process(final V1Component v1rec, File inName, String logtime,
+                            SmProcessingContext context) throws SmException {
         double epsilon = 0.000001;
         this.inV1 = v1rec;
         this.lowcutadj = 0.0;
         this.highcutadj = 0.0;
-        stepRec = ProcessStepsRecorder2.INSTANCE;
+        this.context = context;
+        stepRec = context.getStepRecorder();
         this.V0name = inName;
         this.channel = inV1.getChannel();
         this.eventID = inV1.getEventID();
@@ -188,16 +206,14 @@ public class V2Process {
         }
         // Determine the delta time and the sample rate, and also capture the
         // initial sample rate since some records will be resampled later.
-        boolean match = false;
+        // The sample rate can be any whole number of samples per second, since
+        // the response spectra coefficients are computed for rates without 
+        // a coefficient table.
         dtime = delta_t * MSEC_TO_SEC;    
         samplerate = 1.0 / dtime;
         orig_samplerate = samplerate;
-        for (double each : V3_SAMPLING_RATES) {
-            if (Math.abs(each - samplerate) < epsilon) {
-                match = true;
-            }
-        }
-        if (!match) {
+        if ((delta_t == 0.0) || (samplerate < 1.0) || 
+                        (Math.abs(samplerate - Math.rint(samplerate)) >= epsilon)) {
             throw new SmException("Real header #62, delta t value, " + 
                                         delta_t + " is out of expected range");
         }
@@ -250,7 +266,7 @@ public class V2Process {
         //perform first QA check on velocity copy, check first and last sections of
         //velocity array - should be close to 0.0 with tolerances.  If not,
         //perform adaptive baseline correction.
-        qcchecker = new QCcheck();
+        qcchecker = new QCcheck(context.getConfig());
         if (!qcchecker.validateQCvalues()){
             throw new SmException("Error extracting numeric values from configuration file");
         }
@@ -334,8 +350,8 @@ public class V2Process {
      */
     private boolean initializeForProcessing() throws SmException, IOException {
         this.errorlog = new ArrayList<>();
-        this.elog = SmDebugLogger.INSTANCE;
-        ConfigReader config = ConfigReader.INSTANCE;
+        this.elog = context.getLogger();
+        ConfigReader config = context.getConfig();
         this.writeDebug = false;
         this.writeBaseline = false;
         this.QCvelinitial = 0.0;
@@ -459,11 +475,14 @@ public class V2Process {
             throw new SmException("V1 file units are unsupported for processing");
         }
         //check if the sample rate is below the threshold and if it is, resample
-        //to at least 200 sps
-        Resampling resamp = new Resampling();
-        needresampling = resamp.needsResampling((int)samplerate);
+        //to at least 200 sps, unless records are kept at their own rate.  The
+        //rate from delta t can come out just under the whole number, so it is
+        //rounded rather than truncated.
+        Resampling resamp = new Resampling(context.getConfig());
+        int sps = (int)Math.round(samplerate);
+        needresampling = resamp.needsResampling(sps);
         if (needresampling) {
-            double[] accresamp = resamp.resampleArray(accraw, (int)samplerate);
+            double[] accresamp = resamp.resampleArray(accraw, sps);
             samplerate = resamp.getNewSamplingRate();
             dtime = 1.0 / samplerate;
             stepRec.addResampling(samplerate);
@@ -613,8 +632,11 @@ public class V2Process {
      */
     private double[] adaptiveCorrection() throws SmException {
         ABC2 adapt = new ABC2(dtime,velocity,accel, lowcutadj,highcutadj,numroll,
-                                                        startIndex,taperlength);
+                                    startIndex,taperlength,context.getConfig());
         procStatus = adapt.findFit();
+        for (String line : adapt.getSearchReport()) {
+            errorlog.add(line);
+        }
         basetype = BaselineType.ABC;
         int solution = adapt.getSolution();
         double[] baseline = adapt.getBaselineFunction();
@@ -946,4 +968,9 @@ public class V2Process {
      * @return reference to the padded acceleration array
      */
     public double[] getPaddedAccel() {return paddedaccel;}
+    /**
+     * Getter for the processing context of this record
+     * @return the processing context
+     */
+    public SmProcessingContext getProcessingContext() {return context;}
 }
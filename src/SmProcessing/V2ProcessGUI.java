@@ -29,6 +29,7 @@ import static SmConstants.VFileConstants.MSEC_TO_SEC;
 import static SmConstants.VFileConstants.OTHER_MAGNITUDE;
 import static SmConstants.VFileConstants.SURFACE_MAGNITUDE;
 import SmException.SmException;
+import SmUtilities.ConfigReader;
 import SmUtilities.ProcessStepsRecorder2;
 import java.io.File;
 import java.util.ArrayList;
@@ -124,10 +125,11 @@ public class V2ProcessGUI extends V2Process{
         double[] v1Array = this.v1Rec.getDataArray();
         
         // Re-sample, if necessary.
-        Resampling reSampling = new Resampling();
-        this.needresampling = reSampling.needsResampling((int)this.samplerate);
+        Resampling reSampling = new Resampling(ConfigReader.INSTANCE);
+        int sps = (int)Math.round(this.samplerate);
+        this.needresampling = reSampling.needsResampling(sps);
         if (this.needresampling) {
-            this.accel = reSampling.resampleArray(v1Array, (int)this.samplerate);
+            this.accel = reSampling.resampleArray(v1Array, sps);
             this.samplerate = reSampling.getNewSamplingRate();
             this.dtime = 1.0/this.samplerate;
         }
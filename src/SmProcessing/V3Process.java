@@ -21,9 +21,13 @@ import static SmConstants.VFileConstants.DELTA_T;
 import static SmConstants.VFileConstants.MSEC_TO_SEC;
 import static SmConstants.VFileConstants.NUM_T_PERIODS;
 import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
+import static SmConstants.VFileConstants.DEFAULT_SPECTRA_ENGINE;
+import SmConstants.VFileConstants.SpectraEngine;
 import SmException.FormatException;
 import SmException.SmException;
 import SmUtilities.SmDebugLogger;
+import SmUtilities.SmProcessingContext;
+import static SmUtilities.SmConfigConstants.SPECTRA_ENGINE;
 import java.io.IOException;
 import java.util.ArrayList;
 /**
@@ -47,7 +51,9 @@ public class V3Process {
     private double peakTime;
     private SpectraResources spec;
     private SmDebugLogger elog;
+    private final SmProcessingContext context;
     private boolean writeArrays;
+    private final SpectraEngine engine;
     private double Sa_0p2;
     private double Sa_0p3;
     private double Sa_1p0;
@@ -66,7 +72,8 @@ public class V3Process {
     public V3Process(final V2Component v2acc, V2Process v2val) throws IOException, SmException, 
                                                                 FormatException {
 
-        this.elog = SmDebugLogger.INSTANCE;
+        this.context = v2val.getProcessingContext();
+        this.elog = context.getLogger();
         writeArrays = false;
         this.paccel = v2val.getPaddedAccel();
         this.strongMotion = v2val.getStrongMotion();
@@ -96,6 +103,15 @@ public class V3Process {
         }
         //Add the T-periods to the V3 data list
         V3Data.add(T_periods);
+        //Get the engine for the spectra calculation
+        String engineName = context.getConfig().getConfigValue(SPECTRA_ENGINE);
+        if (engineName == null) {
+            this.engine = DEFAULT_SPECTRA_ENGINE;
+        } else if (engineName.equalsIgnoreCase("Blocked")) {
+            this.engine = SpectraEngine.BLOCKED;
+        } else {
+            this.engine = SpectraEngine.SCALAR;
+        }
     }
     /**
      * Performs the V3 data processing of calculating the fft, extracting the
@@ -160,46 +176,20 @@ public class V3Process {
         }
         V3Data.add(accfftvals);
         
-        //Calculate the spectra for each damping value
-        double omega;
-        int len = paccel.length;
+        //Calculate the spectra for each damping value and period
+        double[][] sdAll = new double[V3_DAMPING_VALUES.length][NUM_T_PERIODS];
+        double[][] svAll = new double[V3_DAMPING_VALUES.length][NUM_T_PERIODS];
+        double[][] saAll = new double[V3_DAMPING_VALUES.length][NUM_T_PERIODS];
+        SpectraKernel.computeSpectra(paccel, spectra, T_periods, sdAll, svAll, saAll,
+                                                                        engine);
         double[] sd;
         double[] sv;
         double[] sa;
-        double coef_a; double coef_b;
-        double coef_c; double coef_d;
-        double coef_e; double coef_f;
         
         for (int d = 0; d < V3_DAMPING_VALUES.length; d++) {
-            sd = new double[NUM_T_PERIODS];
-            sv = new double[NUM_T_PERIODS];
-            sa = new double[NUM_T_PERIODS];
-
-            for (int p = 0; p < T_periods.length; p++) {
-                coef_a = spectra[d][p][0];
-                coef_b = spectra[d][p][1];
-                coef_c = spectra[d][p][2];
-                coef_d = spectra[d][p][3];
-                coef_e = spectra[d][p][4];
-                coef_f = spectra[d][p][5];
-                omega = (2.0 * Math.PI) / T_periods[p];
-                double[][] y = new double[2][len];
-                y[0][0] = 0.0;
-                y[1][0] = 0.0;
-                
-                for(int k = 1; k < len; k++) {
-                    y[0][k] = coef_a * y[0][k-1] + coef_b * y[1][k-1] + 
-                                                              coef_e * paccel[k];
-                    y[1][k] = coef_c * y[0][k-1] + coef_d * y[1][k-1] + 
-                                                              coef_f * paccel[k];
-                }
-                //Get the relative displacement (cm)
-                double[] disp = y[0];
-                ArrayStats stat = new ArrayStats(disp);
-                sd[p] = Math.abs(stat.getPeakVal());
-                sv[p] = sd[p] * omega;
-                sa[p] = sv[p] * omega;
-            }
+            sd = sdAll[d];
+            sv = svAll[d];
+            sa = saAll[d];
             //get the max value for 5% damping
             if (Math.abs(V3_DAMPING_VALUES[d] - 0.05) < EPSILON) {
                 if (strongMotion) {
@@ -316,4 +306,11 @@ public class V3Process {
     public double getHousnerIntensity() {
         return housnerIntensity;
     }
+    /**
+     * Getter for the processing context of this record
+     * @return the processing context
+     */
+    public SmProcessingContext getProcessingContext() {
+        return context;
+    }
 }
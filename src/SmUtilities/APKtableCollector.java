@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Name: Java class APKtableCollector.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class collects the apktable rows for a batch run.  Rows are added
+ * without locking from any number of workers and held in memory until the
+ * table is flushed, when all the waiting rows are appended to the apktable
+ * file in one pass.  The table is flushed at the end of the batch, and
+ * also whenever the number of waiting rows reaches the row limit or the
+ * time since the last flush reaches the flush interval, so that memory use
+ * stays bounded and rows show up in the table during long runs.  Rows are
+ * only removed from the collector once they have been written out, so rows
+ * from a failed write are kept for the next flush.  Actions that must wait
+ * until the rows already added are in the file, such as recording an input
+ * file as complete in the run journal, can be held by the collector and are
+ * run together after the flush that writes those rows.
+ * @author jmjones
+ */
+public class APKtableCollector {
+    public static final int FLUSH_ROWS = 1000;
+    public static final long FLUSH_MSEC = 30000;
+    
+    private final File csvFolder;
+    private final String startTime;
+    private final ConcurrentLinkedQueue<String> rows;
+    private final AtomicInteger waiting;
+    private final ConcurrentLinkedQueue<RowsWritten> held;
+    private final AtomicInteger numHeld;
+    private final AtomicLong lastFlush;
+    /**
+     * Constructor for the collector
+     * @param csvFolder the folder for the apktable file
+     * @param startTime the start time of the run, added to the file name
+     */
+    public APKtableCollector(File csvFolder, String startTime) {
+        this.csvFolder = csvFolder;
+        this.startTime = startTime;
+        this.rows = new ConcurrentLinkedQueue<>();
+        this.waiting = new AtomicInteger(0);
+        this.held = new ConcurrentLinkedQueue<>();
+        this.numHeld = new AtomicInteger(0);
+        this.lastFlush = new AtomicLong(System.currentTimeMillis());
+    }
+    /**
+     * Adds a row to the table, flushing the table if the row limit or the
+     * flush interval has been reached
+     * @param row the row of comma separated values
+     * @throws IOException if unable to write to the apktable file
+     */
+    public void addRow(String row) throws IOException {
+        rows.add(row);
+        if (waiting.incrementAndGet() >= FLUSH_ROWS) {
+            flush();
+        } else {
+            flushIfDue();
+        }
+    }
+    /**
+     * Holds an action until all the rows added so far have been written out
+     * to the apktable file.  The action is run by the next successful flush,
+     * which may be right away if the row limit or the flush interval has
+     * been reached.
+     * @param action the action to run once the rows are written
+     * @throws IOException if unable to write to the apktable file, or if a
+     * held action fails
+     */
+    public void runAfterRowsWritten(RowsWritten action) throws IOException {
+        held.add(action);
+        if (numHeld.incrementAndGet() >= FLUSH_ROWS) {
+            flush();
+        } else {
+            flushIfDue();
+        }
+    }
+    /**
+     * Flushes the table if there are rows or actions waiting and the flush
+     * interval has been reached since the last flush.  This is called while
+     * waiting for new files in watch mode, so rows do not wait for the next
+     * record.
+     * @throws IOException if unable to write to the apktable file, or if a
+     * held action fails
+     */
+    public void flushIfDue() throws IOException {
+        if (((waiting.get() > 0) || (numHeld.get() > 0)) && 
+                (System.currentTimeMillis() - lastFlush.get() >= FLUSH_MSEC)) {
+            flush();
+        }
+    }
+    /**
+     * Appends all the waiting rows to the apktable file, writing the line
+     * of column names first if the file is new, and then runs the actions
+     * held until those rows were written.  The rows stay in the collector
+     * until the write has succeeded, and the actions are only run after it.
+     * @throws IOException if unable to write to the apktable file, or if a
+     * held action fails
+     */
+    public synchronized void flush() throws IOException {
+        lastFlush.set(System.currentTimeMillis());
+        //the rows of a held action were added before the action, so counting
+        //the actions first makes sure all of their rows are in this batch.
+        //Only flush removes rows, so the oldest rows stay at the head of the
+        //queue while they are written out.
+        int actions = numHeld.get();
+        ArrayList<String> batch = new ArrayList<>();
+        Iterator<String> iter = rows.iterator();
+        while (iter.hasNext()) {
+            batch.add(iter.next());
+        }
+        if (!batch.isEmpty()) {
+            CSVFileWriter csvwrite = new CSVFileWriter( csvFolder );
+            csvwrite.writeRowsToCSV(batch, BuildAPKtable.HEADER_LINE, 
+                                            BuildAPKtable.TABLE_NAME, startTime);
+            for (int i = 0; i < batch.size(); i++) {
+                rows.poll();
+            }
+            waiting.addAndGet(-batch.size());
+        }
+        IOException failure = null;
+        for (int i = 0; i < actions; i++) {
+            RowsWritten action = held.poll();
+            numHeld.decrementAndGet();
+            try {
+                action.rowsWritten();
+            } catch (IOException err) {
+                failure = (failure == null) ? err : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    /**
+     * Getter for the number of rows waiting to be written out
+     * @return the number of waiting rows
+     */
+    public int getWaitingRows() {
+        return waiting.get();
+    }
+    /**
+     * Getter for the number of actions waiting for their rows to be written
+     * @return the number of held actions
+     */
+    public int getHeldActions() {
+        return numHeld.get();
+    }
+    /**
+     * An action held by the collector until the rows added before it have
+     * been written out
+     */
+    public interface RowsWritten {
+        /**
+         * Runs the action once the rows are in the apktable file
+         * @throws IOException if the action fails
+         */
+        void rowsWritten() throws IOException;
+    }
+}
@@ -39,16 +39,54 @@ import java.util.ArrayList;
  * @author jmjones
  */
 public class BuildAPKtable {
-    private final String tablename = "apktable.csv";
+    public static final String TABLE_NAME = "apktable.csv";
+    public static final String[] HEADER_LINE = {"EVENT","SCNL","STATION_TYPE",
+                "STATION_NAME","LAT","LON","EPIC","FAULT","PGAV1","PGAV2","PGV",
+                "PGD","SA0P3","SA1P0","SA3P0"};
     
     public BuildAPKtable() {}
     
     public void buildTable(V3Component v3Component, V1Component v1Component,
             V2Component v2ComponentAcc, V2Component v2ComponentVel, 
             V2Component v2ComponentDis, File csvFolder, String startTime) throws Exception {
+        ArrayList<String> data = buildRow(v3Component, v1Component, v2ComponentAcc,
+                                            v2ComponentVel, v2ComponentDis);
+        CSVFileWriter csvwrite = new CSVFileWriter( csvFolder );
+        csvwrite.writeToCSV(data,HEADER_LINE,TABLE_NAME, startTime);
+        data.clear();
+    }
+    /**
+     * Builds the apktable row for the record and adds it to the collector,
+     * which writes out the rows for the whole batch together
+     * @param v3Component the V3 record
+     * @param v1Component the V1 record
+     * @param v2ComponentAcc the V2 acceleration record
+     * @param v2ComponentVel the V2 velocity record
+     * @param v2ComponentDis the V2 displacement record
+     * @param collector the apktable collector for the batch
+     * @throws Exception if unable to build the row or write out the table
+     */
+    public void buildTable(V3Component v3Component, V1Component v1Component,
+            V2Component v2ComponentAcc, V2Component v2ComponentVel, 
+            V2Component v2ComponentDis, APKtableCollector collector) throws Exception {
+        ArrayList<String> data = buildRow(v3Component, v1Component, v2ComponentAcc,
+                                            v2ComponentVel, v2ComponentDis);
+        collector.addRow(CSVFileWriter.joinValues(data));
+    }
+    /**
+     * Builds the list of apktable values for the record
+     * @param v3Component the V3 record
+     * @param v1Component the V1 record
+     * @param v2ComponentAcc the V2 acceleration record
+     * @param v2ComponentVel the V2 velocity record
+     * @param v2ComponentDis the V2 displacement record
+     * @return the values for the apktable row
+     * @throws Exception if unable to get the values from the records
+     */
+    private ArrayList<String> buildRow(V3Component v3Component, V1Component v1Component,
+            V2Component v2ComponentAcc, V2Component v2ComponentVel, 
+            V2Component v2ComponentDis) throws Exception {
         try {
-            String[] headerline = {"EVENT","SCNL","STATION_TYPE","STATION_NAME","LAT","LON",
-                "EPIC","FAULT","PGAV1","PGAV2","PGV","PGD","SA0P3","SA1P0","SA3P0"};
             ArrayList<String> data = new ArrayList<>();
             //event id
             RecordIDValidator rcdvalid = new RecordIDValidator(v1Component.getRcrdId());
@@ -96,9 +134,7 @@ public class BuildAPKtable {
             data.add(String.format("%15.6f",v3Component.getRealHeaderValue(VALUE_SA_1P0)));
             data.add(String.format("%15.6f",v3Component.getRealHeaderValue(VALUE_SA_3P0)));
 
-            CSVFileWriter csvwrite = new CSVFileWriter( csvFolder );
-            csvwrite.writeToCSV(data,headerline,tablename, startTime);
-            data.clear();
+            return data;
         }
         catch (SmException ex) {
             throw new Exception("Apktable build Error:\n" + ex.getMessage());
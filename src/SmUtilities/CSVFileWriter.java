@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  *
@@ -28,6 +30,7 @@ import java.util.ArrayList;
  */
 public class CSVFileWriter {
     private File csvfolder;
+    private static final Object CSV_LOCK = new Object();
     
     public CSVFileWriter( File infolder ) {
         csvfolder = infolder;
@@ -37,7 +40,9 @@ public class CSVFileWriter {
     }
     /**
      * Writes the list out as a CSV file, with the
-     * first line containing the column names
+     * first line containing the column names.  The check for a new file and
+     * the append are done under a shared lock so that concurrent batch workers
+     * write the header only once and do not interleave their rows.
      * @param msg a list of the parameters for one record
      * @param headerline the column names to write out the first time
      * @param name the name of the file
@@ -45,32 +50,56 @@ public class CSVFileWriter {
      */
     public void writeToCSV( ArrayList<String> msg, String[] headerline, 
                             String name, String time ) throws IOException {
-        String[] values;
+        List<String> rows = new ArrayList<>(1);
+        rows.add(joinValues(msg));
+        writeRowsToCSV(rows, headerline, name, time);
+    }
+    /**
+     * Appends the rows to the CSV file in one pass, first writing the line
+     * of column names if the file is new.  Each row is one line of comma
+     * separated values, as built by joinValues.
+     * @param rows the rows to write out
+     * @param headerline the column names to write out the first time
+     * @param name the name of the file
+     * @param time the start time of the run, added to the file name
+     * @throws IOException if unable to write to the file
+     */
+    public void writeRowsToCSV( List<String> rows, String[] headerline,
+                            String name, String time ) throws IOException {
         String startTime = time.replace("-","_").replace(" ", "_").replace(":","_");
-        StringBuilder sbheader = new StringBuilder();
         StringBuilder sbname = new StringBuilder();
-        StringBuilder sbmsg = new StringBuilder();
-        for (String each : msg) {
-            sbmsg.append(each).append(",");
-        }
-        sbmsg.replace(sbmsg.length()-1, sbmsg.length(), "");
         String[] segments = name.split("\\.");
         sbname.append(segments[0]).append("_").append(startTime).append(".").append(segments[1]);
         
         Path outfile = Paths.get(csvfolder.toString(), sbname.toString());
-        if (!outfile.toFile().exists()) {
-            values = new String[2];
-            for (String each : headerline) {
-                sbheader.append(each).append(",");
+        synchronized (CSV_LOCK) {
+            int start = 0;
+            String[] values;
+            if (!outfile.toFile().exists()) {
+                values = new String[rows.size() + 1];
+                values[0] = joinValues(Arrays.asList(headerline));
+                start = 1;
+            } else {
+                values = new String[rows.size()];
+            }
+            for (String each : rows) {
+                values[start++] = each;
             }
-            sbheader.replace(sbheader.length()-1, sbheader.length(), "");
-            values[0] = sbheader.toString();
-            values[1] = sbmsg.toString();
-        } else {
-            values = new String[1];
-            values[0] = sbmsg.toString();
+            TextFileWriter textfile = new TextFileWriter( outfile, values);
+            textfile.appendToFile();
         }
-        TextFileWriter textfile = new TextFileWriter( outfile, values);
-        textfile.appendToFile();
+    }
+    /**
+     * Joins the values into one comma separated line
+     * @param values the values for the line
+     * @return the line of comma separated values
+     */
+    public static String joinValues( List<String> values ) {
+        StringBuilder sbmsg = new StringBuilder();
+        for (String each : values) {
+            sbmsg.append(each).append(",");
+        }
+        sbmsg.replace(sbmsg.length()-1, sbmsg.length(), "");
+        return sbmsg.toString();
     }
 }
@@ -37,6 +37,23 @@ public class ConfigReader {
     private ConfigReader() {
         contents = new HashMap<>();
     }
+/**
+ * Constructor for a snapshot copy of the configuration values, used by the
+ * getSnapshot method.
+ * @param values the key-value pairs to copy
+ */
+    private ConfigReader(Map<String, String> values) {
+        contents = new HashMap<>(values);
+    }
+/**
+ * Makes a private copy of the current configuration values.  The copy is not
+ * affected by later changes to this reader, so it can be handed to a record
+ * for the duration of its processing.
+ * @return a new ConfigReader holding a copy of the current key-value pairs
+ */
+    public ConfigReader getSnapshot() {
+        return new ConfigReader(contents);
+    }
 /**
  * Getter for the value stored for the given key.
  * @param key The key associated with the key-value pair
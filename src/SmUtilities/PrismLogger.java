@@ -62,14 +62,16 @@ public class PrismLogger {
     }
     /**
      * Writes the array of text messages out to the log file, appending to the
-     * end of the current file.
+     * end of the current file.  The messages are handed to the log writer,
+     * which writes them out in the background, keeping each list of messages
+     * together so that messages from concurrent batch workers are not
+     * interleaved.
      * @param msg the list of messages to be written out
-     * @throws IOException if unable to write to the file
+     * @throws IOException if an earlier write to the log files failed
      */
     public void writeToLog( String[] msg ) throws IOException {
         if (logReady) {
-            TextFileWriter textfile = new TextFileWriter( logfile, msg);
-            textfile.appendToFile();
+            SmLogWriter.INSTANCE.append(logfile, msg);
         }
     }
     /**
@@ -80,14 +82,24 @@ public class PrismLogger {
      */
     public void writeOutArray( double[] array, String name) {
         if (logReady) {
-            TextFileWriter textout = new TextFileWriter( finalFolder, 
-                                                         name, array);
-            try {
-                textout.writeOutArray();
-            } catch (IOException err) {
-                //Nothing to do if the error logger has an error.
-            }
+            SmLogWriter.INSTANCE.writeArray(Paths.get(finalFolder, name), array);
         }
     }
+    /**
+     * Waits until all the messages written to the log so far are out in
+     * the log file
+     * @throws IOException if unable to write to the log files
+     */
+    public void flush() throws IOException {
+        SmLogWriter.INSTANCE.flush();
+    }
+    /**
+     * Waits until all the messages written to the logs so far are out in
+     * the log files, then closes the log files
+     * @throws IOException if unable to write to or close the log files
+     */
+    public void close() throws IOException {
+        SmLogWriter.INSTANCE.close();
+    }
     public File getLogFolder() { return logfolder; }
 }
@@ -27,61 +27,77 @@ import java.util.ArrayList;
  * event mean, this also records the baseline correction functions applied to
  * the trace, identifying them by start time, stop time, and function.  This class
  * is a singleton with a private constructor and is instantiated with
- * ProcessStepsRecorder stepRec = ProcessStepsRecorder.INSTANCE.
+ * ProcessStepsRecorder stepRec = ProcessStepsRecorder.INSTANCE.  The steps
+ * themselves are kept separately for each processing thread.  A recorder for
+ * a single record can also be created with the public constructor.
  * @author jmjones
  */
 public class ProcessStepsRecorder2 {
-    private double eventOnsetTime;
-    private CorrectionType ctype;
-    private boolean needsResampling;
-    private double samplerate;
-    private boolean gotEventOnset;
-    private boolean gotTrimmed;
-    private int startTrimCount;
-    private int endTrimCount;
-    private ArrayList<blcorrect> blist;
-    public final static ProcessStepsRecorder2 INSTANCE = new ProcessStepsRecorder2();
+    private final ThreadLocal<StepState> steps;
+    private final StepState recordSteps;
+    public final static ProcessStepsRecorder2 INSTANCE = new ProcessStepsRecorder2(true);
     /**
-     * Private constructor for the singleton class.
+     * Private constructor for the singleton class.  The recorded steps are held
+     * per thread so that records processed concurrently by the batch workers
+     * each see only their own processing steps.
+     * @param shared true for the singleton instance
      */
-    private ProcessStepsRecorder2(){
-        this.eventOnsetTime = 0.0;
-        this.ctype = CorrectionType.AUTO;
-        this.needsResampling = false;
-        this.gotTrimmed = false;
-        this.gotEventOnset = false;
-        this.samplerate = 0.0;
-        this.startTrimCount = 0;
-        this.endTrimCount = 0;
-        this.blist = new ArrayList<>();
+    private ProcessStepsRecorder2(boolean shared){
+        this.recordSteps = null;
+        this.steps = new ThreadLocal<StepState>() {
+            @Override
+            protected StepState initialValue() {
+                return new StepState();
+            }
+        };
+    }
+    /**
+     * Constructor for a recorder that belongs to a single record.  This recorder
+     * is carried in the record's SmProcessingContext instead of using the
+     * singleton, and its steps are kept no matter which thread records them.
+     */
+    public ProcessStepsRecorder2(){
+        this.recordSteps = new StepState();
+        this.steps = null;
+    }
+    /**
+     * Gets the step list for this recorder, either the record's own list or
+     * the list for the current thread for the singleton.
+     * @return the current step list
+     */
+    private StepState state() {
+        return (recordSteps != null) ? recordSteps : steps.get();
     }
     /**
      * Adds the event onset time to the recorder.
      * @param inonsettime event onset time in seconds
      */
     public void addEventOnset( double inonsettime ) {
-        gotEventOnset = true;
-        eventOnsetTime = inonsettime;
+        StepState st = state();
+        st.gotEventOnset = true;
+        st.eventOnsetTime = inonsettime;
     }
     /**
      * Adds a flag for the method of correction, such as manual or automatic
      * @param intype the correction type
      */
     public void addCorrectionType( CorrectionType intype ) {
-        ctype = intype;
+        state().ctype = intype;
     }
     /**
      * Sets a flag that the sampling rate has changed and records the new rate
      * @param newsamp updated sampling rate
      */
     public void addResampling( double newsamp ) {
-        samplerate = newsamp;
-        needsResampling = true;
+        StepState st = state();
+        st.samplerate = newsamp;
+        st.needsResampling = true;
     }
     public void addTrimIndicies( int startCount, int endCount ) {
-        gotTrimmed = true;
-        startTrimCount = startCount;
-        endTrimCount = endCount;
+        StepState st = state();
+        st.gotTrimmed = true;
+        st.startTrimCount = startCount;
+        st.endTrimCount = endCount;
     }
     /** 
      * Adds baseline correction information to the recorder.  Baseline corrections
@@ -103,21 +119,13 @@ public class ProcessStepsRecorder2 {
         V2DataType v2datatype, BaselineType btype, CorrectionOrder intype, int cstep) {
         blcorrect entry = new blcorrect(fstart, fstop, astart, astop, v2datatype,
             btype, intype, cstep);
-        blist.add(entry);
+        state().blist.add(entry);
     }
     /**
      * Clears the steps in the recorder
      */
     public void clearSteps() {
-        eventOnsetTime = 0.0;
-        ctype = CorrectionType.AUTO;
-        needsResampling = false;
-        samplerate = 0.0;
-        gotTrimmed = false;
-        gotEventOnset = false;
-        startTrimCount = 0;
-        endTrimCount = 0;
-        blist.clear();
+        state().clear();
     }
     /**
      * Formats the processing steps for inclusion in the comments section of the
@@ -128,19 +136,20 @@ public class ProcessStepsRecorder2 {
      */
     public ArrayList<String> formatSteps() {
         String timeformat = "%9.4f";
+        StepState st = state();
         ArrayList<String> outlist = new ArrayList<>();
-        outlist.add(String.format("|<PROCESS> %1$s", ctype.name()));
-        if (needsResampling) {
-            outlist.add(String.format("|<RESAMPLE> Data resampled to %6.2f samples/sec",samplerate));
+        outlist.add(String.format("|<PROCESS> %1$s", st.ctype.name()));
+        if (st.needsResampling) {
+            outlist.add(String.format("|<RESAMPLE> Data resampled to %6.2f samples/sec",st.samplerate));
         }
-        if (gotTrimmed) {
-            outlist.add(String.format("|<TRIM> %1$d samp. of beginning, %2$d samp. of end of original channel", startTrimCount, endTrimCount));
+        if (st.gotTrimmed) {
+            outlist.add(String.format("|<TRIM> %1$d samp. of beginning, %2$d samp. of end of original channel", st.startTrimCount, st.endTrimCount));
         }
-        if (gotEventOnset) {
+        if (st.gotEventOnset) {
             outlist.add(String.format("|<EONSET> event onset(sec)=%1s",
-                                        String.format(timeformat,eventOnsetTime)));
+                                        String.format(timeformat,st.eventOnsetTime)));
         }
-        for (blcorrect blc : blist) {
+        for (blcorrect blc : st.blist) {
             String dType = blc.getV2DataType().toString().substring(0,1);
             String blTag = (blc.getBaselineType().equals(BaselineType.ABC)) ?
                 dType+"BLABC"+blc.getBaselineStep() :
@@ -156,13 +165,43 @@ public class ProcessStepsRecorder2 {
         }
         return outlist;
     }
+    /**
+     * This private class holds the steps recorded by one thread.
+     */
+    private static class StepState {
+        private double eventOnsetTime;
+        private CorrectionType ctype;
+        private boolean needsResampling;
+        private double samplerate;
+        private boolean gotEventOnset;
+        private boolean gotTrimmed;
+        private int startTrimCount;
+        private int endTrimCount;
+        private final ArrayList<blcorrect> blist;
+        
+        public StepState() {
+            this.blist = new ArrayList<>();
+            clear();
+        }
+        public final void clear() {
+            eventOnsetTime = 0.0;
+            ctype = CorrectionType.AUTO;
+            needsResampling = false;
+            samplerate = 0.0;
+            gotTrimmed = false;
+            gotEventOnset = false;
+            startTrimCount = 0;
+            endTrimCount = 0;
+            blist.clear();
+        }
+    }
     /**
      * This private class defines an object to hold one baseline correction entry.
      * It has fields for the start time, stop time, and the polynomial order.
      * Each object is created with the constructor and elements are accessed
      * through the getters.
      */
-    private class blcorrect {
+    private static class blcorrect {
         private final double fstart;
         private final double fstop;
         private final double astart;
@@ -22,12 +22,10 @@ import java.util.regex.Pattern;
  * and recording in the apktable
  */
 public class RecordIDValidator {
-    private final boolean valid;
-    private final String[] sections;
-    
-    public RecordIDValidator(String id) {
-        StringBuilder sb = new StringBuilder(MAX_LINE_LENGTH);
-        String pat = sb.append("^")
+    //the record id pattern, compiled once and shared by all the validators
+    private static final Pattern OFFICIAL_NAME = Pattern.compile(
+                        new StringBuilder(MAX_LINE_LENGTH)
+                       .append("^")
                        .append("(\\w+)")
                        .append("(\\.)")
                        .append("(\\w+)")
@@ -40,9 +38,12 @@ public class RecordIDValidator {
                        .append("(\\.)")
                        .append("[\\w-]+")
                        .append("$")
-                       .toString();
-        Pattern officialname = Pattern.compile(pat);
-        Matcher m = officialname.matcher(id);
+                       .toString());
+    private final boolean valid;
+    private final String[] sections;
+    
+    public RecordIDValidator(String id) {
+        Matcher m = OFFICIAL_NAME.matcher(id);
         valid = m.matches();
         sections = (valid) ? id.split("\\.") : null;            
     }
@@ -55,6 +55,16 @@ public class SmConfigConstants {
     public static final String FIRST_POLY_ORDER_UPPER  = "PRISM/AdaptiveBaselineCorrection/FirstPolyOrder/UpperLimit";
     public static final String THIRD_POLY_ORDER_LOWER = "PRISM/AdaptiveBaselineCorrection/ThirdPolyOrder/LowerLimit";
     public static final String THIRD_POLY_ORDER_UPPER = "PRISM/AdaptiveBaselineCorrection/ThirdPolyOrder/UpperLimit";
+    public static final String ABC_SEARCH_MODE = "PRISM/AdaptiveBaselineCorrection/SearchMode";
     
     public static final String DIFFERENTIATION_ORDER = "PRISM/DifferentiationOrder";
+    
+    public static final String NUMBER_OF_WORKERS = "PRISM/NumberOfWorkers";
+    public static final String PIPELINE_READERS = "PRISM/PipelineStages/ReaderThreads";
+    public static final String PIPELINE_WRITERS = "PRISM/PipelineStages/WriterThreads";
+    public static final String PIPELINE_QUEUE_SIZE = "PRISM/PipelineStages/QueueSize";
+    
+    public static final String SPECTRA_ENGINE = "PRISM/ResponseSpectraEngine";
+    
+    public static final String RESAMPLING_MODE = "PRISM/ResamplingMode";
 }
@@ -74,19 +74,20 @@ public class SmDebugLogger {
     }
     /**
      * Writes the array of text messages out to the log file, appending to the
-     * end of the current file.
+     * end of the current file.  The messages are handed to the log writer,
+     * which writes them out in the background, keeping each list of messages
+     * together so that messages from concurrent batch workers are not
+     * interleaved.
      * @param msg the list of messages to be written to the log
      * @param logger the type of log file, either debug or trouble
-     * @throws IOException if unable to write to the file
+     * @throws IOException if an earlier write to the log files failed
      */
     public void writeToLog( String[] msg, LogType logger ) throws IOException {
         if (logReady) {
             if (logger == LogType.DEBUG) {
-                TextFileWriter textfile = new TextFileWriter( logfile, msg);
-                textfile.appendToFile();
+                SmLogWriter.INSTANCE.append(logfile, msg);
             } else if (logger == LogType.TROUBLE) {
-                TextFileWriter textfile = new TextFileWriter( troublefile, msg);
-                textfile.appendToFile();                
+                SmLogWriter.INSTANCE.append(troublefile, msg);
             }
         }
     }
@@ -98,14 +99,16 @@ public class SmDebugLogger {
      */
     public void writeOutArray( double[] array, String name) {
         if (logReady) {
-            TextFileWriter textout = new TextFileWriter( finalFolder, 
-                                                         name, array);
-            try {
-                textout.writeOutArray();
-            } catch (IOException err) {
-                //Nothing to do if the error logger has an error.
-            }
+            SmLogWriter.INSTANCE.writeArray(Paths.get(finalFolder, name), array);
         }
     }
+    /**
+     * Waits until all the messages written to the logs so far are out in
+     * the log files
+     * @throws IOException if unable to write to the log files
+     */
+    public void flush() throws IOException {
+        SmLogWriter.INSTANCE.flush();
+    }
     public File getLogFolder() { return logfolder; }
 }
\ No newline at end of file
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Name: Java class SmLogWriter.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmUtilities;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is a singleton instance of the log writer, which writes the log
+ * messages and debug arrays for the prism loggers in the background.  The
+ * loggers add their messages to a lock-free queue and return at once, and a
+ * single writer thread takes the messages off the queue and writes them out
+ * through buffered writers that are kept open for each log file.  Each list of
+ * messages is written out together, in the order the lists were added.  The
+ * writers are flushed whenever the queue empties, and flush waits until all
+ * the messages added before it have been written.  Messages are also flushed
+ * when the program shuts down.  Close works like flush and then also closes
+ * the log files, which are opened again if more messages come in.  To bound
+ * the memory held by the queue, a logger waits when the text waiting to be
+ * written reaches the limit, until the writer thread has caught up.  An error
+ * in writing is kept and reported to the next logger call or flush.
+ * @author jmjones
+ */
+public class SmLogWriter {
+    public final static SmLogWriter INSTANCE = new SmLogWriter();
+    //largest number of characters waiting to be written before loggers wait
+    public static final long MAX_PENDING_CHARS = 4L * 1024L * 1024L;
+    //estimated characters for each value of a debug array
+    private static final int CHARS_PER_VALUE = 24;
+    private static final int BUFFER_SIZE = 65536;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long FULL_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConcurrentLinkedQueue<LogEntry> queue;
+    private final AtomicLong pendingChars;
+    private final AtomicReference<IOException> failure;
+    private final Map<Path, BufferedWriter> openFiles;
+    private volatile Thread writerThread;
+    /**
+     * Constructor for the log writer is private as part of the singleton
+     * implementation.  Access to the writer is through the INSTANCE variable:
+     * SmLogWriter writer = SmLogWriter.INSTANCE.
+     */
+    private SmLogWriter() {
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.pendingChars = new AtomicLong(0);
+        this.failure = new AtomicReference<>();
+        this.openFiles = new HashMap<>();
+    }
+    /**
+     * Adds the messages to the queue to be appended to the end of the log file
+     * @param logfile the log file
+     * @param msg the list of messages
+     * @throws IOException if an earlier write to a log file failed
+     */
+    public void append(Path logfile, String[] msg) throws IOException {
+        long size = 0;
+        for (String line : msg) {
+            size += line.length() + 1;
+        }
+        enqueue(new LogEntry(logfile, msg.clone(), null, size, null, false));
+        checkFailure();
+    }
+    /**
+     * Adds the data array to the queue to be written out as a new text file,
+     * one value per line.  The array is copied, so the caller can go on
+     * modifying it.
+     * @param outfile the file for the array
+     * @param array the data array
+     */
+    public void writeArray(Path outfile, double[] array) {
+        enqueue(new LogEntry(outfile, null, array.clone(), 
+                                (long)array.length * CHARS_PER_VALUE, null, false));
+    }
+    /**
+     * Waits until all the messages added before this call have been written
+     * out and flushed to the log files
+     * @throws IOException if writing to a log file failed
+     */
+    public void flush() throws IOException {
+        waitForWriter(false);
+    }
+    /**
+     * Waits until all the messages added before this call have been written
+     * out, then closes the log files
+     * @throws IOException if writing to or closing a log file failed
+     */
+    public void close() throws IOException {
+        waitForWriter(true);
+    }
+    /**
+     * Adds a flush marker to the queue and waits until the writer thread has
+     * reached it
+     * @param closeFiles true if the log files are to be closed, false if they
+     * are only flushed
+     * @throws IOException if writing to a log file failed
+     */
+    private void waitForWriter(boolean closeFiles) throws IOException {
+        CountDownLatch done = new CountDownLatch(1);
+        enqueue(new LogEntry(null, null, null, 0, done, closeFiles));
+        Thread writer = writerThread;
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                if (done.await(IDLE_WAIT_NANOS, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException err) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+    /**
+     * Adds an entry to the queue, first waiting if the queue is full, and
+     * wakes up the writer thread
+     * @param entry the log entry
+     */
+    private void enqueue(LogEntry entry) {
+        Thread writer = startWriter();
+        if (Thread.currentThread() != writer) {
+            while ((pendingChars.get() > MAX_PENDING_CHARS) && writer.isAlive()) {
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(FULL_WAIT_NANOS);
+            }
+        }
+        pendingChars.addAndGet(entry.size);
+        queue.add(entry);
+        LockSupport.unpark(writer);
+    }
+    /**
+     * Starts the writer thread and its shutdown flush on first use
+     * @return the writer thread
+     */
+    private Thread startWriter() {
+        Thread writer = writerThread;
+        if (writer == null) {
+            synchronized (this) {
+                writer = writerThread;
+                if (writer == null) {
+                    writer = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            writeEntries();
+                        }
+                    }, "prism-log-writer");
+                    writer.setDaemon(true);
+                    writer.start();
+                    writerThread = writer;
+                    Runtime.getRuntime().addShutdownHook(new Thread() {
+                        @Override
+                        public void run() {
+                            try {
+                                flush();
+                            } catch (IOException err) {
+                                //Nothing to do if the logger has an error.
+                            }
+                        }
+                    });
+                }
+            }
+        }
+        return writer;
+    }
+    /**
+     * Runs on the writer thread, writing out each entry as it is added to the
+     * queue and flushing the open files when the queue is empty.
+     */
+    private void writeEntries() {
+        while (true) {
+            LogEntry entry = queue.poll();
+            if (entry == null) {
+                flushOpenFiles();
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                continue;
+            }
+            try {
+                if ((entry.done != null) && entry.close) {
+                    closeOpenFiles();
+                } else if (entry.done != null) {
+                    flushOpenFiles();
+                } else if (entry.lines != null) {
+                    writeLines(entry.file, entry.lines);
+                } else {
+                    writeArrayFile(entry.file, entry.array);
+                }
+            } catch (IOException err) {
+                failure.compareAndSet(null, err);
+            } catch (RuntimeException err) {
+                failure.compareAndSet(null, new IOException(err));
+            } finally {
+                pendingChars.addAndGet(-entry.size);
+                if (entry.done != null) {
+                    entry.done.countDown();
+                }
+            }
+        }
+    }
+    /**
+     * Appends the lines to the log file, opening the file on first use
+     * @param logfile the log file
+     * @param lines the lines to write
+     * @throws IOException if unable to write to the file
+     */
+    private void writeLines(Path logfile, String[] lines) throws IOException {
+        BufferedWriter writer = openFiles.get(logfile);
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    Files.newOutputStream(logfile, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND), StandardCharsets.UTF_8), BUFFER_SIZE);
+            openFiles.put(logfile, writer);
+        }
+        for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+    /**
+     * Writes the data array out to a new file, one value per line
+     * @param outfile the file for the array
+     * @param array the data array
+     * @throws IOException if unable to write out the file
+     */
+    private void writeArrayFile(Path outfile, double[] array) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(outfile, 
+                                                    StandardCharsets.UTF_8)) {
+            for (double each : array) {
+                writer.write(Double.toString(each));
+                writer.newLine();
+            }
+        }
+    }
+    /**
+     * Flushes the open log files.  A file that cannot be flushed is closed and
+     * reopened on its next use.
+     */
+    private void flushOpenFiles() {
+        Iterator<BufferedWriter> iter = openFiles.values().iterator();
+        while (iter.hasNext()) {
+            BufferedWriter writer = iter.next();
+            try {
+                writer.flush();
+            } catch (IOException err) {
+                failure.compareAndSet(null, err);
+                try {
+                    writer.close();
+                } catch (IOException closeErr) {
+                    //the first error has already been kept
+                }
+                iter.remove();
+            }
+        }
+    }
+    /**
+     * Closes the open log files and forgets them, so they are opened again on
+     * their next use
+     */
+    private void closeOpenFiles() {
+        for (BufferedWriter writer : openFiles.values()) {
+            try {
+                writer.close();
+            } catch (IOException err) {
+                failure.compareAndSet(null, err);
+            }
+        }
+        openFiles.clear();
+    }
+    /**
+     * Reports a write error kept from the writer thread, clearing it so it is
+     * only reported once
+     * @throws IOException the kept write error
+     */
+    private void checkFailure() throws IOException {
+        IOException err = failure.getAndSet(null);
+        if (err != null) {
+            throw err;
+        }
+    }
+    /**
+     * This class holds one queue entry: a list of log messages, a data array,
+     * or a flush or close marker
+     */
+    private static class LogEntry {
+        private final Path file;
+        private final String[] lines;
+        private final double[] array;
+        private final long size;
+        private final CountDownLatch done;
+        private final boolean close;
+        
+        private LogEntry(Path file, String[] lines, double[] array, long size,
+                                        CountDownLatch done, boolean close) {
+            this.file = file;
+            this.lines = lines;
+            this.array = array;
+            this.size = size;
+            this.done = done;
+            this.close = close;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Name: Java class SmProcessingContext.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmUtilities;
+
+/**
+ * This class holds the shared resources needed while processing one record:
+ * the processing steps recorder, the configuration file values, and the
+ * debug logger that receives the processing messages.  A new context is
+ * created for each record with createRecordContext, so that records can be
+ * processed at the same time without sharing any step recorder or configuration
+ * state.  The default constructor builds a context from the singleton instances
+ * and is used where only one record is processed at a time, such as in the
+ * review tool.
+ * @author jmjones
+ */
+public class SmProcessingContext {
+    private final ProcessStepsRecorder2 stepRec;
+    private final ConfigReader config;
+    private final SmDebugLogger logger;
+    /**
+     * Constructor for the context built from the singleton instances of the
+     * step recorder, configuration reader, and debug logger.
+     */
+    public SmProcessingContext() {
+        this(ProcessStepsRecorder2.INSTANCE, ConfigReader.INSTANCE,
+                                                    SmDebugLogger.INSTANCE);
+    }
+    /**
+     * Constructor for the context with the given resources
+     * @param stepRec the recorder for the processing steps of the record
+     * @param config the configuration values to use during processing
+     * @param logger the debug logger for the processing messages
+     */
+    public SmProcessingContext(ProcessStepsRecorder2 stepRec, ConfigReader config,
+                                                        SmDebugLogger logger) {
+        this.stepRec = stepRec;
+        this.config = config;
+        this.logger = logger;
+    }
+    /**
+     * Creates a new context for one record, with its own processing steps
+     * recorder and a snapshot of the current configuration values.  The debug
+     * logger is shared since its writes are synchronized.
+     * @return a new processing context for the record
+     */
+    public static SmProcessingContext createRecordContext() {
+        return new SmProcessingContext(new ProcessStepsRecorder2(),
+                        ConfigReader.INSTANCE.getSnapshot(), SmDebugLogger.INSTANCE);
+    }
+    /**
+     * Getter for the processing steps recorder
+     * @return the step recorder
+     */
+    public ProcessStepsRecorder2 getStepRecorder() {
+        return this.stepRec;
+    }
+    /**
+     * Getter for the configuration values
+     * @return the configuration reader
+     */
+    public ConfigReader getConfig() {
+        return this.config;
+    }
+    /**
+     * Getter for the debug logger
+     * @return the debug logger
+     */
+    public SmDebugLogger getLogger() {
+        return this.logger;
+    }
+}
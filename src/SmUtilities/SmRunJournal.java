@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Name: Java class SmRunJournal.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmUtilities;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class keeps the run journal, an append-only record in the Logs folder
+ * of the input files that have been completely processed.  Each run adds a
+ * BEGIN line, then for each input file a DONE line once the products of all
+ * its channels have been written, or a FAILED line if the file could not be
+ * processed.  The channels of a file are written out together, so a file is
+ * always reprocessed as a whole on resume.  The journal is forced to disk once
+ * per file, so it is still valid if the run is stopped partway through, and
+ * an incomplete last line is ignored when the journal is read back.  A DONE
+ * entry holds the file size and modification time, so a file that is replaced
+ * with new contents under the same name is not considered complete.
+ * @author jmjones
+ */
+public class SmRunJournal {
+    public static final String JOURNAL_NAME = "PrismJournal.txt";
+    private static final String BEGIN = "BEGIN";
+    private static final String DONE = "DONE";
+    private static final String FAILED = "FAILED";
+    private static final String SEP = "\t";
+
+    private final File journalFile;
+    private final Set<String> completed;
+    private FileChannel channel;
+    /**
+     * Constructor for the journal, which reads in the files recorded as
+     * complete in any existing journal in the log folder.
+     * @param logfolder the log folder holding the journal
+     * @throws IOException if unable to read the existing journal
+     */
+    public SmRunJournal(File logfolder) throws IOException {
+        this.journalFile = new File(logfolder, JOURNAL_NAME);
+        this.completed = new HashSet<>();
+        if (journalFile.isFile()) {
+            readJournal();
+        }
+    }
+    /**
+     * Opens the journal for appending and records the start of a run
+     * @param logtime the start time of the run
+     * @throws IOException if unable to open or write to the journal
+     */
+    public synchronized void open(String logtime) throws IOException {
+        if (channel == null) {
+            channel = new FileOutputStream(journalFile, true).getChannel();
+        }
+        append(BEGIN + SEP + logtime);
+    }
+    /**
+     * Closes the journal
+     * @throws IOException if unable to close the journal
+     */
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+    /**
+     * Records that all the products of the input file have been written
+     * @param inFile the input file
+     * @param length the input file size before processing
+     * @param modified the input file modification time before processing
+     * @throws IOException if unable to write to the journal
+     */
+    public synchronized void recordDone(File inFile, long length, long modified)
+                                                            throws IOException {
+        String key = makeKey(inFile, length, modified);
+        append(DONE + SEP + key);
+        force();
+        completed.add(key);
+    }
+    /**
+     * Records that the input file could not be processed.  Failed files are
+     * not considered complete, so they are tried again on resume.
+     * @param inFile the input file
+     * @param reason the reason the file could not be processed
+     * @throws IOException if unable to write to the journal
+     */
+    public synchronized void recordFailed(File inFile, String reason) throws IOException {
+        String msg = (reason == null) ? "" : reason.replaceAll("\\s+", " ");
+        append(FAILED + SEP + inFile.getAbsolutePath() + SEP + msg);
+        force();
+    }
+    /**
+     * Checks if the input file, with its current size and modification time,
+     * was recorded as complete in this or an earlier run
+     * @param inFile the input file
+     * @return true if the file has already been processed
+     */
+    public synchronized boolean isCompleted(File inFile) {
+        return completed.contains(makeKey(inFile, inFile.length(), inFile.lastModified()));
+    }
+    /**
+     * Getter for the journal file
+     * @return the journal file
+     */
+    public File getJournalFile() {
+        return journalFile;
+    }
+    /**
+     * Reads the DONE entries from the existing journal.  The last line is
+     * skipped if it was not completely written.
+     * @throws IOException if unable to read the journal
+     */
+    private void readJournal() throws IOException {
+        byte[] contents = Files.readAllBytes(journalFile.toPath());
+        String text = new String(contents, StandardCharsets.UTF_8);
+        int end = text.lastIndexOf('\n');
+        if (end < 0) {
+            return;
+        }
+        for (String line : text.substring(0, end).split("\n")) {
+            if (line.startsWith(DONE + SEP)) {
+                completed.add(line.substring(DONE.length() + SEP.length()));
+            }
+        }
+    }
+    /**
+     * Writes one entry to the end of the journal
+     * @param entry the journal entry
+     * @throws IOException if unable to write to the journal
+     */
+    private void append(String entry) throws IOException {
+        if (channel == null) {
+            return;
+        }
+        ByteBuffer buf = ByteBuffer.wrap((entry + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+    /**
+     * Forces the entries written so far to disk
+     * @throws IOException if unable to write to the journal
+     */
+    private void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+    /**
+     * Builds the key identifying an input file and its contents
+     * @param inFile the input file
+     * @param length the file size
+     * @param modified the file modification time
+     * @return the key
+     */
+    private static String makeKey(File inFile, long length, long modified) {
+        return inFile.getAbsolutePath() + SEP + length + SEP + modified;
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Name: Java class TextRecordReader.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package SmUtilities;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * This class reads a COSMOS text file one channel record at a time, instead
+ * of reading the whole file into memory.  Each call to nextRecord returns the
+ * lines from the current position up to and including the next End-of-data
+ * line, so only the text of one record is held at a time.  The line number in
+ * the file of the first line of each record is kept for error messages.
+ * @author jmjones
+ */
+public class TextRecordReader implements Closeable {
+    //same test for the end-of-data line as in the COSMOS record parsing
+    private static final Pattern END_OF_DATA = 
+                                Pattern.compile("^((\\s*)(?i)(End-of-data))");
+    private final File fileName;
+    private final BufferedReader bufReader;
+    private int nextLine;
+    private int recordStart;
+    /**
+     * Constructor takes the file name, checks that it exists and is readable,
+     * and opens it for reading.
+     * @param filename the file name to read
+     * @throws IOException if unable to read the file
+     */
+    public TextRecordReader(File filename) throws IOException {
+        Path check = filename.toPath();
+        if (Files.isReadable(check)) {
+            this.fileName = filename;
+        } else {
+            throw new IOException("Unable to read file " + filename);
+        }
+        this.bufReader = new BufferedReader(new FileReader(this.fileName));
+        this.nextLine = 0;
+        this.recordStart = 0;
+    }
+    /**
+     * Reads the next record from the file, which is all the lines up to and
+     * including the next End-of-data line.  If the end of the file is reached
+     * first, the remaining lines are returned.
+     * @return the lines of the next record, or null at the end of the file
+     * @throws IOException if unable to read
+     */
+    public String[] nextRecord() throws IOException {
+        String line;
+        ArrayList<String> record = new ArrayList<>();
+        recordStart = nextLine;
+        while ((line = bufReader.readLine()) != null) {
+            record.add(line);
+            nextLine++;
+            if (END_OF_DATA.matcher(line).find(0)) {
+                break;
+            }
+        }
+        return (record.isEmpty()) ? null : record.toArray(new String[record.size()]);
+    }
+    /**
+     * Getter for the line number in the file (starting at 0) of the first line
+     * of the record last returned by nextRecord
+     * @return the line number of the start of the record
+     */
+    public int getRecordStart() {
+        return recordStart;
+    }
+    /**
+     * Closes the file
+     * @throws IOException if unable to close the file
+     */
+    @Override
+    public void close() throws IOException {
+        bufReader.close();
+    }
+}
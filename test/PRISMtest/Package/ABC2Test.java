@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Name: Java class ABC2Test.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmConstants.VFileConstants.ABCSearchMode;
+import SmConstants.VFileConstants.V2Status;
+import SmException.SmException;
+import SmProcessing.ABC2;
+import SmProcessing.ArrayOps;
+import SmUtilities.ConfigReader;
+import static SmUtilities.SmConfigConstants.ABC_SEARCH_MODE;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jmjones
+ */
+public class ABC2Test {
+    private static final double DTIME = 0.01;
+    private static final int ONSET = 500;
+    private final double[] accel;
+    private final double[] velocity;
+
+    public ABC2Test() {
+        Random rand = new Random(23);
+        accel = new double[4000];
+        for (int i = 0; i < accel.length; i++) {
+            double amp = (i < ONSET) ? 0.01 : 5.0 * Math.exp(-(i - ONSET) * DTIME / 8.0);
+            accel[i] = amp * rand.nextGaussian();
+        }
+        //a small step in acceleration leaves a drift in velocity to correct
+        for (int i = 1500; i < accel.length; i++) {
+            accel[i] += 0.02;
+        }
+        velocity = ArrayOps.integrate(accel, DTIME, 0.0);
+    }
+    private ABC2 runFit() throws SmException {
+        return runFit("Exhaustive");
+    }
+    private ABC2 runFit(String searchmode) throws SmException {
+        ConfigReader config = ConfigReader.INSTANCE.getSnapshot();
+        config.setConfigValue(ABC_SEARCH_MODE, searchmode);
+        ABC2 adapt = new ABC2(DTIME, velocity.clone(), accel.clone(), 0.1, 20.0, 2,
+                                                        ONSET, 2.0, config);
+        V2Status status = adapt.findFit();
+        org.junit.Assert.assertEquals(true, 
+                    (status == V2Status.GOOD) || (status == V2Status.FAILQC));
+        return adapt;
+    }
+
+    @Test
+    public void testIterationOrder() throws SmException {
+        ABC2 adapt = runFit();
+        ArrayList<double[]> params = adapt.getParameters();
+        //the iterations are kept in search order, by 3rd polynomial order and
+        //then by break point
+        org.junit.Assert.assertEquals(adapt.getNumRuns() + 1, adapt.getCounter());
+        for (int i = 0; i < params.size(); i++) {
+            double[] run = params.get(i);
+            org.junit.Assert.assertEquals(i + 1, (int)run[8]);
+            if (i > 0) {
+                double[] prev = params.get(i - 1);
+                boolean inorder = (run[7] > prev[7]) || 
+                            ((run[7] == prev[7]) && (run[5] == prev[5] + adapt.getMovingWindow()));
+                org.junit.Assert.assertEquals(true, inorder);
+            }
+        }
+    }
+    @Test
+    public void testRepeatable() throws SmException {
+        ABC2 first = runFit();
+        ABC2 second = runFit();
+        org.junit.Assert.assertEquals(first.getNumRuns(), second.getNumRuns());
+        for (int i = 0; i < first.getNumRuns(); i++) {
+            org.junit.Assert.assertArrayEquals(first.getSolutionParms(i), 
+                                                second.getSolutionParms(i), 0.0);
+        }
+        org.junit.Assert.assertArrayEquals(first.getRanking(), second.getRanking());
+        org.junit.Assert.assertEquals(first.getSolution(), second.getSolution());
+        org.junit.Assert.assertArrayEquals(first.getABCvelocity(), 
+                                                second.getABCvelocity(), 0.0);
+        org.junit.Assert.assertArrayEquals(first.getABCpaddedacceleration(), 
+                                        second.getABCpaddedacceleration(), 0.0);
+        
+        //the returned arrays are those of the chosen iteration
+        double[] chosen = first.getSolutionParms(first.getSolution());
+        org.junit.Assert.assertEquals(chosen[10], first.getRMSvalues()[1], 0.0);
+        org.junit.Assert.assertEquals(chosen[11], first.getRMSvalues()[2], 0.0);
+    }
+    @Test
+    public void testCoarseToFine() throws SmException {
+        ABC2 full = runFit("Exhaustive");
+        ABC2 coarse = runFit("CoarseToFine");
+        org.junit.Assert.assertEquals(ABCSearchMode.COARSE_TO_FINE, coarse.getSearchMode());
+        org.junit.Assert.assertEquals(0, full.getSearchReport().length);
+        org.junit.Assert.assertEquals(true, coarse.getNumRuns() < full.getNumRuns());
+        org.junit.Assert.assertEquals(coarse.getNumRuns() + 1, coarse.getCounter());
+        
+        //each iteration run keeps its number from the full search and has
+        //the same results
+        int last = 0;
+        for (double[] run : coarse.getParameters()) {
+            org.junit.Assert.assertEquals(true, (int)run[8] > last);
+            last = (int)run[8];
+            org.junit.Assert.assertArrayEquals(full.getSolutionParms(last - 1), run, 0.0);
+        }
+        String[] report = coarse.getSearchReport();
+        org.junit.Assert.assertEquals(1, report.length);
+        org.junit.Assert.assertEquals(true, report[0].contains(String.format(
+                "%d of %d iterations run, %d saved", coarse.getNumRuns(), 
+                full.getNumRuns(), (full.getNumRuns() - coarse.getNumRuns()))));
+    }
+    @Test
+    public void testCompare() throws SmException {
+        ABC2 full = runFit("Exhaustive");
+        ABC2 coarse = runFit("CoarseToFine");
+        ABC2 compare = runFit("Compare");
+        
+        //the compare mode keeps the exhaustive search solution
+        org.junit.Assert.assertEquals(full.getNumRuns(), compare.getNumRuns());
+        org.junit.Assert.assertEquals(full.getSolution(), compare.getSolution());
+        org.junit.Assert.assertArrayEquals(full.getABCvelocity(), 
+                                                compare.getABCvelocity(), 0.0);
+        
+        //and reports the coarse-to-fine solution
+        double[] fine = coarse.getSolutionParms(coarse.getSolution());
+        double[] best = full.getSolutionParms(full.getSolution());
+        String[] report = compare.getSearchReport();
+        org.junit.Assert.assertEquals(4, report.length);
+        org.junit.Assert.assertEquals(true, report[0].contains(String.format(
+                "would run %d of %d iterations", coarse.getNumRuns(), full.getNumRuns())));
+        org.junit.Assert.assertEquals(true, report[1].contains(String.format(
+                "break point %d, 3rd order %d", (int)best[5], (int)best[7])));
+        org.junit.Assert.assertEquals(true, report[2].contains(String.format(
+                "break point %d, 3rd order %d", (int)fine[5], (int)fine[7])));
+        boolean same = (fine[8] == best[8]);
+        org.junit.Assert.assertEquals(true, report[3].endsWith(same ? "yes" : "no"));
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Name: Java class APKtableCollectorTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmUtilities.APKtableCollector;
+import SmUtilities.BuildAPKtable;
+import SmUtilities.CSVFileWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author jmjones
+ */
+public class APKtableCollectorTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    static final String LOGTIME = "2026-10-01 00:00:00 GMT";
+    static final int THREADS = 4;
+    static final int ROWS = 700;
+
+    public APKtableCollectorTest() {
+    }
+
+    private List<String> readTable(File logs) throws IOException {
+        File table = new File(logs, "apktable_2026_10_01_00_00_00_GMT.csv");
+        return Files.readAllLines(table.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testConcurrentRows() throws IOException, InterruptedException {
+        File logs = folder.newFolder("Logs");
+        final APKtableCollector collector = new APKtableCollector(logs, LOGTIME);
+        Thread[] workers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < ROWS; i++) {
+                        try {
+                            collector.addRow("event" + id + ",row" + i);
+                        } catch (IOException err) {
+                            throw new IllegalStateException(err);
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread each : workers) {
+            each.join();
+        }
+        //more rows than the row limit, so some were written out before the end
+        org.junit.Assert.assertEquals(true, collector.getWaitingRows() < APKtableCollector.FLUSH_ROWS);
+        collector.flush();
+        org.junit.Assert.assertEquals(0, collector.getWaitingRows());
+
+        List<String> lines = readTable(logs);
+        org.junit.Assert.assertEquals(THREADS * ROWS + 1, lines.size());
+        org.junit.Assert.assertEquals(CSVFileWriter.joinValues(
+                    Arrays.asList(BuildAPKtable.HEADER_LINE)), lines.get(0));
+        Set<String> unique = new HashSet<>(lines.subList(1, lines.size()));
+        org.junit.Assert.assertEquals(THREADS * ROWS, unique.size());
+    }
+    @Test
+    public void testRowsHeldUntilFlush() throws IOException {
+        File logs = folder.newFolder("Logs");
+        APKtableCollector collector = new APKtableCollector(logs, LOGTIME);
+        collector.addRow("first,row");
+        collector.flushIfDue();
+        org.junit.Assert.assertEquals(1, collector.getWaitingRows());
+        collector.flush();
+        collector.addRow("second,row");
+        collector.flush();
+        List<String> lines = readTable(logs);
+        org.junit.Assert.assertEquals(3, lines.size());
+        org.junit.Assert.assertEquals("second,row", lines.get(2));
+    }
+    @Test
+    public void testRowsKeptAfterFailedWrite() throws IOException {
+        File logs = folder.newFile("Logs");
+        APKtableCollector collector = new APKtableCollector(logs, LOGTIME);
+        collector.addRow("first,row");
+        collector.addRow("second,row");
+        //the log folder is a plain file, so the write fails
+        try {
+            collector.flush();
+            org.junit.Assert.fail("expected the write to fail");
+        } catch (IOException err) {
+            org.junit.Assert.assertEquals(2, collector.getWaitingRows());
+        }
+        org.junit.Assert.assertEquals(true, logs.delete() && logs.mkdir());
+        collector.addRow("third,row");
+        collector.flush();
+        org.junit.Assert.assertEquals(0, collector.getWaitingRows());
+        List<String> lines = readTable(logs);
+        org.junit.Assert.assertEquals(4, lines.size());
+        org.junit.Assert.assertEquals("first,row", lines.get(1));
+        org.junit.Assert.assertEquals("third,row", lines.get(3));
+    }
+    @Test
+    public void testActionsHeldUntilRowsWritten() throws IOException {
+        final File logs = folder.newFile("Logs");
+        APKtableCollector collector = new APKtableCollector(logs, LOGTIME);
+        final List<Integer> rowsAtAction = new ArrayList<>();
+        APKtableCollector.RowsWritten action = new APKtableCollector.RowsWritten() {
+            @Override
+            public void rowsWritten() throws IOException {
+                rowsAtAction.add(readTable(logs).size());
+            }
+        };
+        collector.addRow("first,row");
+        collector.runAfterRowsWritten(action);
+        org.junit.Assert.assertEquals(1, collector.getHeldActions());
+        //the action stays held while its rows cannot be written
+        try {
+            collector.flush();
+            org.junit.Assert.fail("expected the write to fail");
+        } catch (IOException err) {
+            org.junit.Assert.assertEquals(1, collector.getHeldActions());
+            org.junit.Assert.assertEquals(0, rowsAtAction.size());
+        }
+        org.junit.Assert.assertEquals(true, logs.delete() && logs.mkdir());
+        collector.addRow("second,row");
+        collector.runAfterRowsWritten(action);
+        collector.flush();
+        org.junit.Assert.assertEquals(0, collector.getHeldActions());
+        //both actions ran after the header and both rows were in the file
+        org.junit.Assert.assertEquals(Arrays.asList(3, 3), rowsAtAction);
+        //an action without rows of its own is still run by the next flush
+        collector.runAfterRowsWritten(action);
+        collector.flush();
+        org.junit.Assert.assertEquals(3, rowsAtAction.size());
+    }
+}
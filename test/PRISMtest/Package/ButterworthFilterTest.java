@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Name: Java class ButterworthFilterTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmProcessing.ButterworthFilter;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jmjones
+ */
+public class ButterworthFilterTest {
+    private static final double DTIME = 0.005;
+    private static final double TAPER = 2.0;
+    private final double[] accel;
+
+    public ButterworthFilterTest() {
+        Random rand = new Random(21);
+        accel = new double[12000];
+        for (int i = 0; i < accel.length; i++) {
+            accel[i] = rand.nextGaussian() * 10.0;
+        }
+    }
+    /**
+     * The filter as computed before the fused cascade, one second order section
+     * at a time over the whole array
+     */
+    private static void referenceFilter(double[] array, ButterworthFilter filter,
+                                            int nroll, boolean backward) {
+        double[] fact = filter.getFact();
+        double[] b1 = filter.getB1();
+        double[] b2 = filter.getB2();
+        int np2 = array.length;
+        for (int k = 0; k < 2*nroll; k++) {
+            double x1 = 0.0;
+            double x2 = 0.0;
+            double y1 = 0.0;
+            double y2 = 0.0;
+            for (int j = 0; j < np2; j++) {
+                int idx = (backward) ? (np2 - j - 1) : j;
+                double xp = array[idx];
+                double yp = fact[k] * (xp - x2) - (b1[k] * y1) - (b2[k] * y2);
+                array[idx] = yp;
+                y2 = y1;
+                y1 = yp;
+                x2 = x1;
+                x1 = xp;
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesCascade() {
+        for (int nroll = 1; nroll <= 4; nroll++) {
+            for (boolean acausal : new boolean[]{true, false}) {
+                ButterworthFilter filter = new ButterworthFilter();
+                org.junit.Assert.assertEquals(true, 
+                    filter.calculateCoefficients(0.1, 20.0, DTIME, nroll, acausal));
+                double[] array = accel.clone();
+                double[] padded = filter.applyFilter(array, TAPER, 100);
+
+                //the same taper and pads, filtered one section at a time
+                double[] expected = accel.clone();
+                int taper = (int)((2.0 * TAPER) / DTIME);
+                int pad = 0;
+                if (acausal) {
+                    filter.applyCosineTaper(expected, taper, taper);
+                    pad = filter.getPadLength();
+                }
+                double[] refpad = new double[padded.length];
+                System.arraycopy(expected, 0, refpad, pad, expected.length);
+                referenceFilter(refpad, filter, nroll, false);
+                if (acausal) {
+                    referenceFilter(refpad, filter, nroll, true);
+                }
+                org.junit.Assert.assertArrayEquals(refpad, padded, 0.0);
+                for (int i = 0; i < array.length; i++) {
+                    org.junit.Assert.assertEquals(refpad[i + pad], array[i], 0.0);
+                }
+            }
+        }
+    }
+    @Test
+    public void testPadBuffer() {
+        ButterworthFilter filter = new ButterworthFilter();
+        filter.calculateCoefficients(0.1, 20.0, DTIME, 2, true);
+        double[] first = accel.clone();
+        double[] padded = filter.applyFilter(first, TAPER, 100);
+        
+        //a buffer of the right length is reused, and stale values are cleared
+        double[] buffer = new double[padded.length];
+        Arrays.fill(buffer, 1.0e10);
+        double[] second = accel.clone();
+        double[] reused = filter.applyFilter(second, TAPER, 100, buffer);
+        org.junit.Assert.assertEquals(true, reused == buffer);
+        org.junit.Assert.assertArrayEquals(padded, reused, 0.0);
+        org.junit.Assert.assertArrayEquals(first, second, 0.0);
+
+        //a buffer of the wrong length is not used
+        double[] other = filter.applyFilter(accel.clone(), TAPER, 100, new double[10]);
+        org.junit.Assert.assertEquals(padded.length, other.length);
+    }
+    @Test
+    public void testCachedCoefficients() {
+        ButterworthFilter first = new ButterworthFilter();
+        ButterworthFilter second = new ButterworthFilter();
+        first.calculateCoefficients(0.1, 20.0, DTIME, 2, true);
+        second.calculateCoefficients(0.1, 20.0, DTIME, 2, true);
+        org.junit.Assert.assertArrayEquals(first.getFact(), second.getFact(), 0.0);
+        org.junit.Assert.assertArrayEquals(first.getB1(), second.getB1(), 0.0);
+        org.junit.Assert.assertArrayEquals(first.getB2(), second.getB2(), 0.0);
+        
+        //the getters return copies, so the cached values cannot be changed
+        double gain = first.getFact()[0];
+        first.getFact()[0] = 0.0;
+        org.junit.Assert.assertEquals(gain, second.getFact()[0], 0.0);
+        org.junit.Assert.assertEquals(true, gain != 0.0);
+        
+        org.junit.Assert.assertEquals(false, 
+                        first.calculateCoefficients(0.0, 20.0, DTIME, 2, true));
+        org.junit.Assert.assertEquals(false, 
+                        first.calculateCoefficients(0.1, 20.0, DTIME, 9, true));
+    }
+    @Test
+    public void testForwardPrefix() {
+        int shared = 3000;
+        ButterworthFilter.ForwardPrefix prefix = 
+                new ButterworthFilter.ForwardPrefix(Arrays.copyOf(accel, shared));
+        org.junit.Assert.assertEquals(shared, prefix.getLength());
+        Random rand = new Random(25);
+        for (boolean acausal : new boolean[]{true, false}) {
+            for (double taper : new double[]{TAPER, 1.0}) {
+                for (int trial = 0; trial < 3; trial++) {
+                    //arrays with the same start and different values after it
+                    double[] array = accel.clone();
+                    for (int i = shared; i < array.length; i++) {
+                        array[i] += rand.nextGaussian();
+                    }
+                    ButterworthFilter filter = new ButterworthFilter();
+                    filter.calculateCoefficients(0.1, 20.0, DTIME, 2, acausal);
+                    double[] expected = array.clone();
+                    double[] exppad = filter.applyFilter(expected, taper, 100);
+                    double[] actual = array.clone();
+                    double[] actpad = filter.applyFilter(actual, taper, 100, null, prefix);
+                    org.junit.Assert.assertArrayEquals(exppad, actpad, 0.0);
+                    org.junit.Assert.assertArrayEquals(expected, actual, 0.0);
+                }
+            }
+        }
+        //an array that does not start with the prefix values is filtered whole
+        ButterworthFilter filter = new ButterworthFilter();
+        filter.calculateCoefficients(0.1, 20.0, DTIME, 2, true);
+        double[] array = accel.clone();
+        array[shared / 2] += 1.0;
+        double[] expected = array.clone();
+        double[] exppad = filter.applyFilter(expected, TAPER, 100);
+        double[] actpad = filter.applyFilter(array, TAPER, 100, null, prefix);
+        org.junit.Assert.assertArrayEquals(exppad, actpad, 0.0);
+        org.junit.Assert.assertArrayEquals(expected, array, 0.0);
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Name: Java class COSMOSheaderLexerTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import COSMOSformat.COSMOSheaderLexer;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ *
+ * @author jmjones
+ */
+public class COSMOSheaderLexerTest {
+
+    public COSMOSheaderLexerTest() {
+    }
+
+    @Test
+    public void testTextHeaderCount() {
+        org.junit.Assert.assertEquals(13, COSMOSheaderLexer.findTextHeaderCount(
+            "Raw acceleration counts   (Format v01.20 with 13 text lines) Src: 921az039.evt"));
+        org.junit.Assert.assertEquals(25, COSMOSheaderLexer.findTextHeaderCount(
+            "Corrected accel.   (Format v01.20 WITH 25 Text Lines)"));
+        org.junit.Assert.assertEquals(-1, COSMOSheaderLexer.findTextHeaderCount(
+            "Raw acceleration counts   (Format v01.20 with 3 text lines)"));
+        org.junit.Assert.assertEquals(-1, COSMOSheaderLexer.findTextHeaderCount(""));
+    }
+
+    @Test
+    public void testLeadingCount() {
+        org.junit.Assert.assertEquals(100, COSMOSheaderLexer.findLeadingCount(
+            " 100 Integer-header values follow on  10 lines, Format= (10I8)"));
+        org.junit.Assert.assertEquals(1, COSMOSheaderLexer.findLeadingCount(
+            "   1 Comment line(s) follow, each starting with a \"|\":"));
+        org.junit.Assert.assertEquals(-1, COSMOSheaderLexer.findLeadingCount(
+            "   Comment line(s) follow"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testLeadingCountTooLarge() {
+        COSMOSheaderLexer.findLeadingCount("  99999999999 values");
+    }
+
+    @Test
+    public void testCommentAndEndOfData() {
+        org.junit.Assert.assertEquals(true, COSMOSheaderLexer.isCommentLine(
+            "   1 Comment line(s) follow, each starting with a \"|\":"));
+        org.junit.Assert.assertEquals(false, COSMOSheaderLexer.isCommentLine(
+            "   1 Commen line(s) follow"));
+        org.junit.Assert.assertEquals(true, COSMOSheaderLexer.isEndOfData(
+            "End-of-data for Chan  1 acceleration"));
+        org.junit.Assert.assertEquals(true, COSMOSheaderLexer.isEndOfData(
+            "  end-of-DATA"));
+        org.junit.Assert.assertEquals(false, COSMOSheaderLexer.isEndOfData(
+            "x End-of-data"));
+        org.junit.Assert.assertEquals("End-of-data for Chan  1", 
+            COSMOSheaderLexer.findEndOfDataLabel("End-of-data for Chan  1 acceleration"));
+        org.junit.Assert.assertEquals("End-of-data for HNZ.--", 
+            COSMOSheaderLexer.findEndOfDataLabel("End-of-data for HNZ.-- acceleration"));
+        org.junit.Assert.assertEquals(null, 
+            COSMOSheaderLexer.findEndOfDataLabel("End-of-data"));
+    }
+
+    @Test
+    public void testNumberFormat() {
+        org.junit.Assert.assertEquals("(10I8)", COSMOSheaderLexer.findNumberFormat(
+            " 100 Integer-header values follow on  10 lines, Format= (10I8)"));
+        org.junit.Assert.assertEquals("(8F10.3)", COSMOSheaderLexer.findNumberFormat(
+            "   11200 acceleration pts, approx  56 secs, units=cm/sec2 (04),Format=(8F10.3)"));
+        org.junit.Assert.assertEquals("(6F13.6)", COSMOSheaderLexer.findNumberFormat(
+            " 100 Real-header values (units) follow, Format= (6F13.6)"));
+        org.junit.Assert.assertEquals(null, COSMOSheaderLexer.findNumberFormat(
+            " 100 Real-header values follow, Format= (F13.6)"));
+        org.junit.Assert.assertEquals(Arrays.asList("8", "10", "3"),
+            COSMOSheaderLexer.findFormatFields("(8F10.3)"));
+        org.junit.Assert.assertEquals(Arrays.asList("10", "8"),
+            COSMOSheaderLexer.findFormatFields("(10I8)"));
+    }
+
+    @Test
+    public void testTags() {
+        org.junit.Assert.assertEquals(true, COSMOSheaderLexer.isSeeComment(" see comment"));
+        org.junit.Assert.assertEquals(true, COSMOSheaderLexer.isSeeComment("(See Cmnt)"));
+        org.junit.Assert.assertEquals(false, COSMOSheaderLexer.isSeeComment("CI.14383980"));
+        org.junit.Assert.assertEquals("CE.13095.HNZ.--", COSMOSheaderLexer.findSCNLcode(
+            " <SCNL>CE.13095.HNZ.--    <AUTH> 2014/03/29 04:09:42.000"));
+        org.junit.Assert.assertEquals(null, COSMOSheaderLexer.findSCNLcode(
+            " <AUTH> 2014/03/29 04:09:42.000"));
+        org.junit.Assert.assertEquals(true, COSMOSheaderLexer.containsIgnoreCase(
+            "Velocity data            (Format v01.20 with 13 text lines)", "velocity"));
+        org.junit.Assert.assertEquals(false, COSMOSheaderLexer.containsIgnoreCase(
+            "Corrected accel.", "displace"));
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Name: Java class FFTPlanTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmProcessing.FFTPlan;
+import SmProcessing.FFourierTransform;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.junit.Test;
+
+/**
+ *
+ * @author jmjones
+ */
+public class FFTPlanTest {
+    private static final double EPSILON = 1.0e-7;
+    private final FastFourierTransformer reference;
+
+    public FFTPlanTest() {
+        reference = new FastFourierTransformer(DftNormalization.STANDARD);
+    }
+    private static double[] makeArray(int len, long seed) {
+        Random rand = new Random(seed);
+        double[] array = new double[len];
+        for (int i = 0; i < len; i++) {
+            array[i] = rand.nextGaussian() * 100.0;
+        }
+        return array;
+    }
+
+    @Test
+    public void testComplexTransforms() {
+        for (int len = 1; len <= 4096; len *= 2) {
+            double[] real = makeArray(len, len);
+            double[] imag = makeArray(len, len + 1);
+            Complex[] input = new Complex[len];
+            for (int i = 0; i < len; i++) {
+                input[i] = new Complex(real[i], imag[i]);
+            }
+            Complex[] expfwd = reference.transform(input, TransformType.FORWARD);
+            Complex[] expinv = reference.transform(input, TransformType.INVERSE);
+
+            FFTPlan plan = FFTPlan.getPlan(len);
+            double[] fre = real.clone();
+            double[] fim = imag.clone();
+            plan.forward(fre, fim);
+            double[] ire = real.clone();
+            double[] iim = imag.clone();
+            plan.inverse(ire, iim);
+            for (int i = 0; i < len; i++) {
+                org.junit.Assert.assertEquals(expfwd[i].getReal(), fre[i], EPSILON);
+                org.junit.Assert.assertEquals(expfwd[i].getImaginary(), fim[i], EPSILON);
+                org.junit.Assert.assertEquals(expinv[i].getReal(), ire[i], EPSILON);
+                org.junit.Assert.assertEquals(expinv[i].getImaginary(), iim[i], EPSILON);
+            }
+        }
+    }
+    @Test
+    public void testRealForward() {
+        for (int len = 1; len <= 4096; len *= 2) {
+            double[] input = makeArray(len, 3 * len);
+            Complex[] expected = reference.transform(input, TransformType.FORWARD);
+            double[] real = new double[len / 2 + 1];
+            double[] imag = new double[len / 2 + 1];
+            FFTPlan.getPlan(len).realForward(input, real, imag);
+            for (int i = 0; i < real.length; i++) {
+                org.junit.Assert.assertEquals(expected[i].getReal(), real[i], EPSILON);
+                org.junit.Assert.assertEquals(expected[i].getImaginary(), imag[i], EPSILON);
+            }
+        }
+    }
+    @Test
+    public void testFFourierTransform() {
+        double[] input = makeArray(3000, 11);
+        FFourierTransform fft = new FFourierTransform();
+        double[] padded = new double[4096];
+        System.arraycopy(input, 0, padded, 0, input.length);
+        Complex[] expected = reference.transform(padded, TransformType.FORWARD);
+
+        double[] mags = fft.calculateFFT(input);
+        org.junit.Assert.assertEquals(4096, fft.getPowerLength());
+        org.junit.Assert.assertEquals(2049, mags.length);
+        for (int i = 0; i < mags.length; i++) {
+            org.junit.Assert.assertEquals(expected[i].abs(), mags[i], EPSILON);
+        }
+        //the complex transform pads at the start and fills in both halves
+        double[][] spectrum = fft.calculateFFTComplex(input);
+        System.arraycopy(input, 0, padded, 4096 - input.length, input.length);
+        Arrays.fill(padded, 0, 4096 - input.length, 0.0);
+        expected = reference.transform(padded, TransformType.FORWARD);
+        for (int i = 0; i < 4096; i++) {
+            org.junit.Assert.assertEquals(expected[i].getReal(), spectrum[0][i], EPSILON);
+            org.junit.Assert.assertEquals(expected[i].getImaginary(), spectrum[1][i], EPSILON);
+        }
+        double[] inverse = fft.inverseFFTComplex(spectrum[0], spectrum[1]);
+        for (int i = 0; i < 4096; i++) {
+            org.junit.Assert.assertEquals(padded[i], inverse[i], EPSILON);
+        }
+    }
+    @Test
+    public void testPlanCache() {
+        org.junit.Assert.assertEquals(true, FFTPlan.getPlan(1024) == FFTPlan.getPlan(1024));
+        org.junit.Assert.assertEquals(1024, FFTPlan.getPlan(1024).getLength());
+    }
+    @Test
+    public void testPlanCacheBounded() {
+        for (int len = 2; len <= (1 << 16); len *= 2) {
+            FFTPlan.getPlan(len);
+        }
+        org.junit.Assert.assertEquals(true, FFTPlan.getCacheCount() <= FFTPlan.CACHE_SIZE);
+        FFTPlan recent = FFTPlan.getPlan(1 << 16);
+        org.junit.Assert.assertEquals(true, recent == FFTPlan.getPlan(1 << 16));
+        org.junit.Assert.assertEquals(2, FFTPlan.getPlan(2).getLength());
+    }
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() {
+        FFTPlan.getPlan(1000);
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Name: Java class HeaderParseBenchmark.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import COSMOSformat.COSMOSheaderLexer;
+import COSMOSformat.V0Component;
+import static SmConstants.VFileConstants.RAWACC;
+import SmException.FormatException;
+import SmException.SmException;
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark for reading the headers of many small COSMOS files.  It first
+ * times the header lines of a small V0 record, recognized with regular
+ * expressions compiled for each line, as was done before, and then with
+ * COSMOSheaderLexer.  It then times loadComponent on the whole record, which
+ * is the work done per channel on a many-small-file workload.  The benchmark
+ * is not run with the unit tests; run it from the test classpath with:
+ * java PRISMtest.Package.HeaderParseBenchmark [records] [datavalues]
+ * @author jmjones
+ */
+public class HeaderParseBenchmark {
+    private static final int WARMUP = 20000;
+
+    public static void main(String[] args) throws FormatException, SmException {
+        int records = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+        int datavals = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        String[] record = makeRecord(datavals);
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += scanWithRegex(record) + scanWithLexer(record);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            sink += scanWithRegex(record);
+        }
+        double regexRate = rate(records, start);
+        start = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            sink += scanWithLexer(record);
+        }
+        double lexerRate = rate(records, start);
+        for (int i = 0; i < WARMUP / 10; i++) {
+            new V0Component(RAWACC).loadComponent(0, record);
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            V0Component v0 = new V0Component(RAWACC);
+            sink += v0.loadComponent(0, record);
+        }
+        double loadRate = rate(records, start);
+
+        System.out.println(String.format("header lines:  regex %10.0f records/sec, "
+                + "lexer %10.0f records/sec, speedup %.2f", regexRate, lexerRate, 
+                                                        lexerRate / regexRate));
+        System.out.println(String.format("loadComponent: %10.0f records/sec "
+                + "(%d data values per record)", loadRate, datavals));
+        System.out.println("(checksum " + sink + ")");
+    }
+    /**
+     * Recognizes the header pieces of the record with the regular expressions
+     * used before the header lexer, compiling each one for each line
+     * @param rec the record lines
+     * @return a checksum of the values found
+     */
+    private static long scanWithRegex(String[] rec) {
+        long sum = 0;
+        Matcher m = Pattern.compile("(?i)(with \\d\\d text lines)").matcher(rec[0]);
+        if (m.find()) {
+            sum += Integer.parseInt(m.group().split(" ")[1]);
+        }
+        int[] formatLines = {13, 24, 44};
+        for (int line : formatLines) {
+            m = Pattern.compile("^((\\s*)(\\d+))").matcher(rec[line]);
+            if (m.find(0)) {
+                sum += Integer.parseInt(m.group().trim());
+            }
+            m = Pattern.compile("\\((\\d+)([A-Za-z]+)(\\d+)(\\.*)(\\d*)\\)").matcher(rec[line]);
+            if (m.find(0)) {
+                Matcher f = Pattern.compile("(\\d+)").matcher(m.group().trim());
+                ArrayList<String> fields = new ArrayList<>();
+                while (f.find()) {
+                    fields.add(f.group());
+                }
+                sum += fields.size();
+            }
+        }
+        if (rec[42].matches("(?i).*comment.*")) {
+            m = Pattern.compile("^((\\s*)(\\d+))").matcher(rec[42]);
+            if (m.find(0)) {
+                sum += Integer.parseInt(m.group().trim());
+            }
+        }
+        m = Pattern.compile("(RcrdId:)").matcher(rec[7]);
+        String id = (m.find()) ? rec[7].substring(m.end()) : "";
+        sum += Pattern.compile("(?i)(see co??m??me??nt)").matcher(id).find() ? 1 : 0;
+        m = Pattern.compile("(<SCNL>)(\\S+)").matcher(rec[43]);
+        sum += (m.find()) ? m.group(2).length() : 0;
+        m = Pattern.compile("^((\\s*)(?i)(End-of-data))").matcher(rec[rec.length - 1]);
+        sum += (m.find(0)) ? 1 : 0;
+        return sum;
+    }
+    /**
+     * Recognizes the header pieces of the record with the header lexer
+     * @param rec the record lines
+     * @return a checksum of the values found
+     */
+    private static long scanWithLexer(String[] rec) {
+        long sum = COSMOSheaderLexer.findTextHeaderCount(rec[0]);
+        int[] formatLines = {13, 24, 44};
+        for (int line : formatLines) {
+            sum += COSMOSheaderLexer.findLeadingCount(rec[line]);
+            String format = COSMOSheaderLexer.findNumberFormat(rec[line]);
+            if (format != null) {
+                sum += COSMOSheaderLexer.findFormatFields(format).size();
+            }
+        }
+        if (COSMOSheaderLexer.isCommentLine(rec[42])) {
+            sum += COSMOSheaderLexer.findLeadingCount(rec[42]);
+        }
+        int found = rec[7].indexOf("RcrdId:");
+        String id = (found >= 0) ? rec[7].substring(found + 7) : "";
+        sum += COSMOSheaderLexer.isSeeComment(id) ? 1 : 0;
+        String code = COSMOSheaderLexer.findSCNLcode(rec[43]);
+        sum += (code != null) ? code.length() : 0;
+        sum += COSMOSheaderLexer.isEndOfData(rec[rec.length - 1]) ? 1 : 0;
+        return sum;
+    }
+    /**
+     * Builds a small V0 record with the given number of data values
+     * @param datavals number of data values
+     * @return the record lines
+     */
+    private static String[] makeRecord(int datavals) {
+        ArrayList<String> rec = new ArrayList<>();
+        rec.add("Raw acceleration counts   (Format v01.20 with 13 text lines) Src: 921az039.evt");
+        rec.add("Rcrd of Wed Jan 15, 2014 01:35:00.0 PST");
+        rec.add("Hypocenter: To be determined    H=   km       ML=     Mw= ");
+        rec.add("Origin: To be determined ");
+        rec.add("Statn No: 05- 13921 Code:CE-13921  CGS  Riverside - Limonite & Downey");
+        rec.add("Coords: 33.975  -117.487   Site geology:  ");
+        rec.add("Recorder: Etna   s/n 1614 ( 3 Chns of   3 at Sta) Sensor: FBA ");
+        rec.add("Rcrd start time: 1/15/2014, 09:35:  .0 UTC (Q=5) RcrdId: CI.14383980.CE.13921.HNZ.--");
+        rec.add("Sta Chan  1: 360 deg (Rcrdr Chan  1)");
+        rec.add("Raw record length =  56.000 sec, Uncor max =    20108 counts, at   25.205 sec.");
+        rec.add("Processed: 01/15/14  (k2vol0 v0.1 CSMIP)");
+        rec.add("Record not filtered.");
+        rec.add("Values used when parameter or data value is unknown/unspecified:   -999, -999.0");
+        rec.add(" 100 Integer-header values follow on  10 lines, Format= (10I8)");
+        for (int i = 0; i < 10; i++) {
+            rec.add("       0       1      50     120       1    -999    -999   13921    -999    -999");
+        }
+        rec.add(" 100 Real-header values follow on  17 lines, Format= (6F13.6)");
+        for (int i = 0; i < 16; i++) {
+            rec.add("    33.975300  -117.486500   213.000000   371.000000  -999.000000  -999.000000");
+        }
+        rec.add("  -999.000000  -999.000000  -999.000000  -999.000000");
+        rec.add("   1 Comment line(s) follow, each starting with a \"|\":");
+        rec.add("| <SCNL>CE.13921.HNZ.--    <AUTH> 2014/01/15 09:35:00.000");
+        rec.add(String.format("%8d acceleration pts, approx  56 secs, units=counts (50),Format=(10I8)", 
+                                                                        datavals));
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < datavals; i++) {
+            line.append(String.format("%8d", 3200 + (i * 37) % 200));
+            if ((i % 10 == 9) || (i == datavals - 1)) {
+                rec.add(line.toString());
+                line.setLength(0);
+            }
+        }
+        rec.add("End-of-data for Chan  1 acceleration");
+        return rec.toArray(new String[rec.size()]);
+    }
+    private static double rate(int records, long start) {
+        double secs = (System.nanoTime() - start) * 1.0e-9;
+        return records / secs;
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Name: Java class NumericParseBenchmark.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import COSMOSformat.VIntArray;
+import COSMOSformat.VRealArray;
+import SmException.FormatException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Benchmark for parsing the numeric blocks of COSMOS files.  It times the
+ * conversion of a V0 size integer data block and a V1 size real data block,
+ * first by extracting each value as a string and converting it, as was done
+ * before, and then with parseValues, which converts each field in place.  The
+ * benchmark is not run with the unit tests; run it from the test classpath
+ * with: java PRISMtest.Package.NumericParseBenchmark [values] [repeats]
+ * @author jmjones
+ */
+public class NumericParseBenchmark {
+    private static final int WARMUP = 20;
+
+    public static void main(String[] args) throws FormatException {
+        int numvals = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+        Random rand = new Random(2026);
+
+        String[] intText = makeBlock(numvals, 10, "I8", rand, true);
+        String[] realText = makeBlock(numvals, 8, "F10.3", rand, false);
+
+        VIntArray ints = new VIntArray();
+        VRealArray reals = new VRealArray();
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += parseIntsAsStrings(ints, intText) + parseRealsAsStrings(reals, realText);
+            ints.parseValues(0, intText);
+            reals.parseValues(0, realText);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            sink += parseIntsAsStrings(ints, intText);
+        }
+        double intOld = rate(numvals, repeats, start);
+        start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            ints.parseValues(0, intText);
+            sink += ints.getIntValue(0);
+        }
+        double intNew = rate(numvals, repeats, start);
+        start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            sink += parseRealsAsStrings(reals, realText);
+        }
+        double realOld = rate(numvals, repeats, start);
+        start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            reals.parseValues(0, realText);
+            sink += (long)reals.getRealValue(0);
+        }
+        double realNew = rate(numvals, repeats, start);
+
+        System.out.println(String.format("integer (10I8):  strings %8.2f Mvals/sec, "
+                + "in place %8.2f Mvals/sec, speedup %.2f", intOld, intNew, intNew / intOld));
+        System.out.println(String.format("real (8F10.3):   strings %8.2f Mvals/sec, "
+                + "in place %8.2f Mvals/sec, speedup %.2f", realOld, realNew, realNew / realOld));
+        System.out.println("(checksum " + sink + ")");
+    }
+    /**
+     * Builds a numeric block with its format line
+     * @param numvals number of values
+     * @param perline number of values per line
+     * @param format the COSMOS number format
+     * @param rand random number generator for the values
+     * @param integer true for integer values, false for reals
+     * @return the text lines of the block
+     */
+    private static String[] makeBlock(int numvals, int perline, String format,
+                                            Random rand, boolean integer) {
+        int numlines = (numvals + perline - 1) / perline;
+        String[] text = new String[numlines + 1];
+        text[0] = String.format("%8d values, Format=(%d%s)", numvals, perline, format);
+        StringBuilder line = new StringBuilder();
+        int next = 0;
+        for (int i = 1; i <= numlines; i++) {
+            line.setLength(0);
+            for (int j = 0; (j < perline) && (next < numvals); j++, next++) {
+                if (integer) {
+                    line.append(String.format("%8d", rand.nextInt(20000) - 10000));
+                } else {
+                    line.append(String.format("%10.3f", rand.nextGaussian() * 100.0));
+                }
+            }
+            text[i] = line.toString();
+        }
+        return text;
+    }
+    private static long parseIntsAsStrings(VIntArray array, String[] text)
+                                                        throws FormatException {
+        array.parseNumberFormatLine(text[0]);
+        ArrayList<String> hold = array.extractNumericVals(0, text);
+        int[] vals = new int[hold.size()];
+        int next = 0;
+        for (String each : hold) {
+            vals[next++] = Integer.parseInt(each);
+        }
+        return vals[0];
+    }
+    private static long parseRealsAsStrings(VRealArray array, String[] text)
+                                                        throws FormatException {
+        array.parseNumberFormatLine(text[0]);
+        ArrayList<String> hold = array.extractNumericVals(0, text);
+        double[] vals = new double[hold.size()];
+        int next = 0;
+        for (String each : hold) {
+            vals[next++] = Double.parseDouble(each);
+        }
+        return (long)vals[0];
+    }
+    private static double rate(int numvals, int repeats, long start) {
+        double secs = (System.nanoTime() - start) * 1.0e-9;
+        return (double)numvals * repeats / secs / 1.0e6;
+    }
+}
@@ -66,6 +66,13 @@ public class PrismXMLReaderTest {
         org.junit.Assert.assertEquals("2", config.getConfigValue("PRISM/AdaptiveBaselineCorrection/FirstPolyOrder/UpperLimit"));
         org.junit.Assert.assertEquals("1", config.getConfigValue("PRISM/AdaptiveBaselineCorrection/ThirdPolyOrder/LowerLimit"));
         org.junit.Assert.assertEquals("3", config.getConfigValue("PRISM/AdaptiveBaselineCorrection/ThirdPolyOrder/UpperLimit"));    
+        org.junit.Assert.assertEquals("Exhaustive", config.getConfigValue("PRISM/AdaptiveBaselineCorrection/SearchMode"));
+        org.junit.Assert.assertEquals("1", config.getConfigValue("PRISM/NumberOfWorkers"));
+        org.junit.Assert.assertEquals("1", config.getConfigValue("PRISM/PipelineStages/ReaderThreads"));
+        org.junit.Assert.assertEquals("1", config.getConfigValue("PRISM/PipelineStages/WriterThreads"));
+        org.junit.Assert.assertEquals("4", config.getConfigValue("PRISM/PipelineStages/QueueSize"));
+        org.junit.Assert.assertEquals("Blocked", config.getConfigValue("PRISM/ResponseSpectraEngine"));
+        org.junit.Assert.assertEquals("FFT", config.getConfigValue("PRISM/ResamplingMode"));
     }
     
     @Rule public ExpectedException expectedEx = ExpectedException.none();
@@ -16,13 +16,16 @@
  */
 package PRISMtest.Package;
 
+import SmConstants.VFileConstants.ResamplingMode;
 import SmException.SmException;
+import SmProcessing.PolyphaseInterpolator;
 import SmProcessing.Resampling;
 import SmUtilities.TextFileReader;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Random;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -39,6 +42,7 @@ public class ResamplingTest {
     static String[] filecontents;
     static int SPS = 100;
     static double EPSILON = 0.000001;
+    static double INTERP_EPSILON = 0.0001;
     
     public ResamplingTest() {
     }
@@ -77,6 +81,11 @@ public class ResamplingTest {
         Resampling resamp = new Resampling();
         org.junit.Assert.assertEquals(true,resamp.needsResampling(100));
         org.junit.Assert.assertEquals(false,resamp.needsResampling(200));
+        //records are kept at their own rate in native mode
+        Resampling nativerate = new Resampling(ResamplingMode.NATIVE);
+        org.junit.Assert.assertEquals(false,nativerate.needsResampling(100));
+        org.junit.Assert.assertEquals(false,nativerate.needsResampling(40));
+        org.junit.Assert.assertEquals(-1,nativerate.calcNewSamplingRate(100));
     }
     @Test
     public void testCalcResamplingRate() {
@@ -93,4 +102,109 @@ public class ResamplingTest {
         double[] yptest = resamp.resampleArray(yarray, SPS);
         org.junit.Assert.assertArrayEquals(yptest, yparray, EPSILON);
     }
+    /**
+     * Builds a tapered record from random sinusoids below the given fraction
+     * of the Nyquist frequency, sampled at the rate times the factor
+     */
+    private static double[] makeSignal(int sps, int factor, double band, int seconds) {
+        Random rand = new Random(sps);
+        int nfreq = 50;
+        double[] freq = new double[nfreq];
+        double[] phase = new double[nfreq];
+        double[] amp = new double[nfreq];
+        for (int j = 0; j < nfreq; j++) {
+            freq[j] = rand.nextDouble() * band * sps / 2.0;
+            phase[j] = rand.nextDouble() * 2.0 * Math.PI;
+            amp[j] = rand.nextGaussian();
+        }
+        int len = sps * seconds * factor;
+        double rate = sps * factor;
+        double end = (sps * seconds - 1.0) / sps;
+        double[] signal = new double[len];
+        for (int i = 0; i < len; i++) {
+            double t = i / rate;
+            for (int j = 0; j < nfreq; j++) {
+                signal[i] += amp[j] * Math.sin(2.0 * Math.PI * freq[j] * t + phase[j]);
+            }
+            double edge = Math.max(Math.min(t, end - t), 0.0) / 2.0;
+            if (edge < 1.0) {
+                signal[i] *= 0.5 - 0.5 * Math.cos(Math.PI * edge);
+            }
+        }
+        return signal;
+    }
+    private static double[] decimate(double[] signal, int factor) {
+        double[] out = new double[signal.length / factor];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = signal[i * factor];
+        }
+        return out;
+    }
+    private static double relativeRMS(double[] expected, double[] actual) {
+        double diff = 0.0;
+        double sum = 0.0;
+        for (int i = 0; i < expected.length; i++) {
+            diff += (expected[i] - actual[i]) * (expected[i] - actual[i]);
+            sum += expected[i] * expected[i];
+        }
+        return Math.sqrt(diff / sum);
+    }
+    @Test
+    public void testPolyphaseAgainstFFT() throws SmException {
+        for (int sps : new int[]{100, 50}) {
+            double[] input = makeSignal(sps, 1, 0.8, 60);
+            double[] fft = new Resampling().resampleArray(input, sps);
+            Resampling resamp = new Resampling(ResamplingMode.POLYPHASE);
+            double[] poly = resamp.resampleArray(input, sps);
+            org.junit.Assert.assertEquals(fft.length, poly.length);
+            org.junit.Assert.assertEquals(input.length * resamp.getFactor(), poly.length);
+            org.junit.Assert.assertEquals(true, relativeRMS(fft, poly) < INTERP_EPSILON);
+            //the original samples are kept
+            for (int i = 0; i < input.length; i++) {
+                org.junit.Assert.assertEquals(input[i], poly[i * resamp.getFactor()], 0.0);
+            }
+        }
+    }
+    @Test
+    public void testPolyphaseAccuracy() throws SmException {
+        //against the record sampled directly at the new rate, including
+        //increases in rate that are not a power of 2
+        for (int sps : new int[]{100, 80, 50, 40}) {
+            Resampling resamp = new Resampling();
+            resamp.calcNewSamplingRate(sps);
+            int factor = resamp.getFactor();
+            double[] truth = makeSignal(sps, factor, 0.8, 30);
+            double[] input = decimate(truth, factor);
+            double[] poly = new Resampling(ResamplingMode.POLYPHASE).resampleArray(input, sps);
+            org.junit.Assert.assertEquals(true, relativeRMS(truth, poly) < INTERP_EPSILON);
+            double[] fft = resamp.resampleArray(input, sps);
+            org.junit.Assert.assertEquals(true, relativeRMS(truth, fft) < INTERP_EPSILON);
+        }
+    }
+    @Test
+    public void testPolyphaseChunks() throws SmException {
+        double[] input = makeSignal(50, 1, 0.5, 20);
+        double[] whole = new Resampling(ResamplingMode.POLYPHASE).resampleArray(input, 50);
+        PolyphaseInterpolator interp = new PolyphaseInterpolator(4);
+        double[] chunked = new double[whole.length];
+        int outnext = 0;
+        int start = 0;
+        int len = 1;
+        while (start < input.length) {
+            len = Math.min(len, input.length - start);
+            outnext += interp.process(input, start, len, chunked, outnext);
+            start += len;
+            len = len * 3 + 1;
+        }
+        outnext += interp.flush(chunked, outnext);
+        org.junit.Assert.assertEquals(whole.length, outnext);
+        org.junit.Assert.assertArrayEquals(whole, chunked, 0.0);
+        //a record shorter than the filter half length
+        double[] shortrec = {1.0, 2.0, 3.0};
+        double[] out = new double[12];
+        int count = interp.process(shortrec, 0, 3, out, 0);
+        count += interp.flush(out, count);
+        org.junit.Assert.assertEquals(12, count);
+        org.junit.Assert.assertEquals(2.0, out[4], 0.0);
+    }
 }
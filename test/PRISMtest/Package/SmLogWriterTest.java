@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Name: Java class SmLogWriterTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmUtilities.SmLogWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author jmjones
+ */
+public class SmLogWriterTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    static final int THREADS = 4;
+    static final int MESSAGES = 500;
+
+    public SmLogWriterTest() {
+    }
+
+    @Test
+    public void testConcurrentMessages() throws IOException, InterruptedException {
+        final Path logfile = new File(folder.getRoot(), "PrismLog.txt").toPath();
+        Thread[] workers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < MESSAGES; i++) {
+                        String[] msg = {"start " + id + " " + i, "\tend " + id + " " + i};
+                        try {
+                            SmLogWriter.INSTANCE.append(logfile, msg);
+                        } catch (IOException err) {
+                            throw new IllegalStateException(err);
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread each : workers) {
+            each.join();
+        }
+        SmLogWriter.INSTANCE.flush();
+        
+        //each list of messages is written out together, in order per thread
+        List<String> lines = Files.readAllLines(logfile, StandardCharsets.UTF_8);
+        org.junit.Assert.assertEquals(THREADS * MESSAGES * 2, lines.size());
+        int[] next = new int[THREADS];
+        for (int i = 0; i < lines.size(); i += 2) {
+            String[] parts = lines.get(i).split(" ");
+            int id = Integer.parseInt(parts[1]);
+            org.junit.Assert.assertEquals("start " + id + " " + next[id], lines.get(i));
+            org.junit.Assert.assertEquals("\tend " + id + " " + next[id], lines.get(i + 1));
+            next[id]++;
+        }
+    }
+    @Test
+    public void testAppendAcrossFlushes() throws IOException {
+        Path logfile = new File(folder.getRoot(), "DebugLog.txt").toPath();
+        SmLogWriter.INSTANCE.append(logfile, new String[]{"first"});
+        SmLogWriter.INSTANCE.flush();
+        org.junit.Assert.assertEquals(1, Files.readAllLines(logfile, StandardCharsets.UTF_8).size());
+        SmLogWriter.INSTANCE.append(logfile, new String[]{"second", "third"});
+        SmLogWriter.INSTANCE.flush();
+        List<String> lines = Files.readAllLines(logfile, StandardCharsets.UTF_8);
+        org.junit.Assert.assertEquals(3, lines.size());
+        org.junit.Assert.assertEquals("third", lines.get(2));
+    }
+    @Test
+    public void testCloseAndReopen() throws IOException {
+        Path logfile = new File(folder.getRoot(), "ClosedLog.txt").toPath();
+        Path moved = new File(folder.getRoot(), "MovedLog.txt").toPath();
+        SmLogWriter.INSTANCE.append(logfile, new String[]{"first"});
+        SmLogWriter.INSTANCE.close();
+        //once closed, the log file can be moved and is opened again on next use
+        Files.move(logfile, moved);
+        SmLogWriter.INSTANCE.append(logfile, new String[]{"second"});
+        SmLogWriter.INSTANCE.flush();
+        List<String> lines = Files.readAllLines(logfile, StandardCharsets.UTF_8);
+        org.junit.Assert.assertEquals(1, lines.size());
+        org.junit.Assert.assertEquals("second", lines.get(0));
+        lines = Files.readAllLines(moved, StandardCharsets.UTF_8);
+        org.junit.Assert.assertEquals(1, lines.size());
+        org.junit.Assert.assertEquals("first", lines.get(0));
+    }
+    @Test
+    public void testWriteArrayCopy() throws IOException {
+        Path outfile = new File(folder.getRoot(), "array.txt").toPath();
+        double[] array = {1.5, -2.25, 0.0};
+        SmLogWriter.INSTANCE.writeArray(outfile, array);
+        //later changes to the array are not written out
+        array[0] = 99.0;
+        SmLogWriter.INSTANCE.flush();
+        List<String> lines = Files.readAllLines(outfile, StandardCharsets.UTF_8);
+        org.junit.Assert.assertEquals(3, lines.size());
+        org.junit.Assert.assertEquals("1.5", lines.get(0));
+        org.junit.Assert.assertEquals("-2.25", lines.get(1));
+    }
+}
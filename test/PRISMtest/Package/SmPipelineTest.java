@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Name: Java class SmPipelineTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmControl.SmFileJob;
+import SmControl.SmPipeline;
+import SmException.SmException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ *
+ * @author jmjones
+ */
+public class SmPipelineTest {
+    private final Set<String> written = Collections.synchronizedSet(new HashSet<String>());
+    private final Set<String> failed = Collections.synchronizedSet(new HashSet<String>());
+
+    public SmPipelineTest() {
+    }
+
+    private File[] makeFiles(int count) {
+        File[] files = new File[count];
+        for (int i = 0; i < count; i++) {
+            files[i] = new File("file" + i + ".v0");
+        }
+        return files;
+    }
+
+    private SmPipeline makePipeline(File[] files, int readers, int workers,
+                                final String failName, final String failStep,
+                                final Throwable failErr) {
+        return new SmPipeline(files, null, null, null, readers, workers, 1, 2,
+                                                                    null, null) {
+            @Override
+            protected SmFileJob createJob(File file) {
+                return new TestJob(file, file.getName().equals(failName) ? 
+                                                failStep : "", failErr);
+            }
+        };
+    }
+
+    @Test
+    public void testStageReport() throws Exception {
+        SmPipeline pipeline = makePipeline(makeFiles(6), 2, 2, null, null, null);
+        pipeline.run();
+        org.junit.Assert.assertEquals(6, written.size());
+        String[] report = pipeline.getStageReport();
+        org.junit.Assert.assertEquals(3, report.length);
+        String[] names = {"read", "process", "write"};
+        for (int i = 0; i < report.length; i++) {
+            SmPipeline.PipelineStage stage = pipeline.getStages()[i];
+            org.junit.Assert.assertEquals(names[i], stage.getName());
+            org.junit.Assert.assertEquals(6, stage.getFilesDone());
+            org.junit.Assert.assertEquals(0, stage.getQueueDepth());
+            org.junit.Assert.assertEquals(true, report[i].startsWith(
+                        "Pipeline stage " + names[i] + ": threads "
+                        + stage.getThreads() + ", files 6, max queue depth "));
+        }
+        //all the files wait for the read stage from the start, while the write
+        //stage holds at most its queue size plus one file from each worker
+        org.junit.Assert.assertEquals(6, pipeline.getStages()[0].getMaxQueueDepth());
+        org.junit.Assert.assertEquals(true, 
+                        pipeline.getStages()[2].getMaxQueueDepth() <= 2 + 2);
+    }
+
+    @Test
+    public void testFileProblemIsLogged() throws Exception {
+        SmPipeline pipeline = makePipeline(makeFiles(5), 1, 2, "file2.v0", 
+                        "process", new SmException("Invalid header value"));
+        pipeline.run();
+        org.junit.Assert.assertEquals(1, failed.size());
+        org.junit.Assert.assertEquals(true, failed.contains("file2.v0"));
+        org.junit.Assert.assertEquals(4, written.size());
+        org.junit.Assert.assertEquals(false, written.contains("file2.v0"));
+        org.junit.Assert.assertEquals(5, pipeline.getStages()[1].getFilesDone());
+        org.junit.Assert.assertEquals(4, pipeline.getStages()[2].getFilesDone());
+    }
+
+    @Test
+    public void testUnexpectedErrorDrainsFiles() throws Exception {
+        IllegalStateException unexpected = new IllegalStateException("unexpected");
+        SmPipeline pipeline = makePipeline(makeFiles(20), 1, 1, "file0.v0", 
+                                                    "read", unexpected);
+        try {
+            pipeline.run();
+            org.junit.Assert.fail("expected the unexpected error to be passed on");
+        } catch (IllegalStateException err) {
+            org.junit.Assert.assertEquals(true, err == unexpected);
+        }
+        //the remaining files are drained from the queues without processing
+        org.junit.Assert.assertEquals(1, pipeline.getStages()[0].getFilesDone());
+        org.junit.Assert.assertEquals(0, pipeline.getStages()[1].getFilesDone());
+        org.junit.Assert.assertEquals(0, pipeline.getStages()[2].getFilesDone());
+        org.junit.Assert.assertEquals(0, pipeline.getStages()[0].getQueueDepth());
+        org.junit.Assert.assertEquals(0, written.size());
+        org.junit.Assert.assertEquals(0, failed.size());
+    }
+
+    @Test
+    public void testErrorInStageDrainsFiles() throws Exception {
+        StackOverflowError overflow = new StackOverflowError("overflow");
+        //more files than the write queue holds, so a stopped write stage
+        //would leave the process stage waiting on the full queue
+        SmPipeline pipeline = makePipeline(makeFiles(20), 1, 1, "file0.v0", 
+                                                    "write", overflow);
+        try {
+            pipeline.run();
+            org.junit.Assert.fail("expected the error to be passed on");
+        } catch (StackOverflowError err) {
+            org.junit.Assert.assertEquals(true, err == overflow);
+        }
+        org.junit.Assert.assertEquals(1, pipeline.getStages()[2].getFilesDone());
+        org.junit.Assert.assertEquals(0, pipeline.getStages()[2].getQueueDepth());
+        org.junit.Assert.assertEquals(0, written.size());
+    }
+
+    private class TestJob extends SmFileJob {
+        private final String failStep;
+        private final Throwable failErr;
+
+        private TestJob(File inFile, String failStep, Throwable failErr) {
+            super(inFile, null, null, null, null, null);
+            this.failStep = failStep;
+            this.failErr = failErr;
+        }
+
+        private void step(String name) throws Exception {
+            if (!failStep.equals(name)) {
+                return;
+            }
+            if (failErr instanceof Error) {
+                throw (Error)failErr;
+            }
+            throw (Exception)failErr;
+        }
+
+        @Override
+        public void read() throws SmException {
+            try {
+                step("read");
+            } catch (RuntimeException | SmException err) {
+                throw err;
+            } catch (Exception err) {
+                throw new SmException(err.getMessage());
+            }
+        }
+
+        @Override
+        public void process() throws Exception {
+            step("process");
+        }
+
+        @Override
+        public void write() throws IOException {
+            try {
+                step("write");
+            } catch (IOException | RuntimeException err) {
+                throw err;
+            } catch (Exception err) {
+                throw new IOException(err);
+            }
+            written.add(getInFile().getName());
+        }
+
+        @Override
+        public void logFailure(Exception err) {
+            failed.add(getInFile().getName());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Name: Java class SmProductTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmConstants.VFileConstants.V2Status;
+import SmControl.SmProduct;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author jmjones
+ */
+public class SmProductTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private static final String RCID = "CI.14383980.CE.13095.HNZ.--";
+    private static final String EVENT_MARKER = "2014-03-29-0409";
+
+    public SmProductTest() {
+    }
+
+    @Test
+    public void testSetDirectories() throws Exception {
+        File out = folder.newFolder("out");
+        SmProduct product = new SmProduct(out.toString());
+        product.setDirectories(RCID, "CE", EVENT_MARKER, V2Status.GOOD);
+        File station = new File(new File(out, "CI.14383980"), "CE.13095");
+        org.junit.Assert.assertEquals(station, product.getStationDir());
+        org.junit.Assert.assertEquals(true, new File(out, "Logs").isDirectory());
+        for (String dir : new String[]{"V0", "V1", "V2", "V3"}) {
+            org.junit.Assert.assertEquals(true, new File(station, dir).isDirectory());
+        }
+        
+        product.setDirectories(RCID, "CE", EVENT_MARKER, V2Status.FAILQC);
+        File trouble = new File(station, "Trouble");
+        org.junit.Assert.assertEquals(trouble, product.getStationDir());
+        org.junit.Assert.assertEquals(true, new File(trouble, "V2").isDirectory());
+        org.junit.Assert.assertEquals(false, new File(trouble, "V3").exists());
+        
+        product.setDirectories(RCID, "", EVENT_MARKER, V2Status.NOABC);
+        File orphan = new File(new File(new File(out, "Orphan"), EVENT_MARKER), "Trouble");
+        org.junit.Assert.assertEquals(orphan, product.getStationDir());
+        org.junit.Assert.assertEquals(true, new File(orphan, "V1").isDirectory());
+        org.junit.Assert.assertEquals(false, new File(orphan, "V2").exists());
+    }
+
+    @Test
+    public void testRemovedDirectories() throws Exception {
+        File out = folder.newFolder("out");
+        SmProduct product = new SmProduct(out.toString());
+        product.setDirectories(RCID, "CE", EVENT_MARKER, V2Status.GOOD);
+        File event = new File(out, "CI.14383980");
+        for (String dir : new String[]{"V0", "V1", "V2", "V3", ""}) {
+            new File(new File(event, "CE.13095"), dir).delete();
+        }
+        event.delete();
+        org.junit.Assert.assertEquals(false, event.exists());
+        
+        //a remembered layout is created again once its directories are gone
+        product.setDirectories(RCID, "CE", EVENT_MARKER, V2Status.GOOD);
+        org.junit.Assert.assertEquals(true, 
+                        new File(product.getStationDir(), "V3").isDirectory());
+    }
+
+    @Test
+    public void testConcurrentSetDirectories() throws Exception {
+        final File out = folder.newFolder("out");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<File>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                final String rcid = "CI.14383980.CE.1309" + (i % 4) + ".HNZ.--";
+                results.add(pool.submit(new Callable<File>() {
+                    @Override
+                    public File call() {
+                        SmProduct product = new SmProduct(out.toString());
+                        product.setDirectories(rcid, "CE", EVENT_MARKER, V2Status.GOOD);
+                        return product.getStationDir();
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                File station = results.get(i).get();
+                org.junit.Assert.assertEquals("CE.1309" + (i % 4), station.getName());
+                org.junit.Assert.assertEquals(true, new File(station, "V3").isDirectory());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Name: Java class SmRunJournalTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmUtilities.SmRunJournal;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author jmjones
+ */
+public class SmRunJournalTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    public SmRunJournalTest() {
+    }
+
+    private File makeInput(String name, String text) throws IOException {
+        File infile = folder.newFile(name);
+        try (FileOutputStream out = new FileOutputStream(infile)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return infile;
+    }
+
+    @Test
+    public void testCompletedFiles() throws IOException {
+        File logs = folder.newFolder("Logs");
+        File done = makeInput("done.v0", "processed");
+        File failed = makeInput("failed.v0", "not processed");
+        File pending = makeInput("pending.v0", "waiting");
+
+        SmRunJournal journal = new SmRunJournal(logs);
+        journal.open("2026-10-01 00:00:00 GMT");
+        journal.recordDone(done, done.length(), done.lastModified());
+        journal.recordFailed(failed, "Unexpected end-of-file at line 40");
+        journal.close();
+        org.junit.Assert.assertEquals(true, journal.isCompleted(done));
+
+        //a new run reads the completed files from the existing journal
+        SmRunJournal resumed = new SmRunJournal(logs);
+        org.junit.Assert.assertEquals(true, resumed.isCompleted(done));
+        org.junit.Assert.assertEquals(false, resumed.isCompleted(failed));
+        org.junit.Assert.assertEquals(false, resumed.isCompleted(pending));
+    }
+
+    @Test
+    public void testChangedFile() throws IOException {
+        File logs = folder.newFolder("Logs");
+        File infile = makeInput("replaced.v0", "first contents");
+
+        SmRunJournal journal = new SmRunJournal(logs);
+        journal.open("2026-10-01 00:00:00 GMT");
+        journal.recordDone(infile, infile.length(), infile.lastModified());
+        journal.close();
+
+        //a file replaced with new contents under the same name is not complete
+        try (FileOutputStream out = new FileOutputStream(infile)) {
+            out.write("second, longer contents".getBytes(StandardCharsets.UTF_8));
+        }
+        SmRunJournal resumed = new SmRunJournal(logs);
+        org.junit.Assert.assertEquals(false, resumed.isCompleted(infile));
+    }
+
+    @Test
+    public void testIncompleteLastLine() throws IOException {
+        File logs = folder.newFolder("Logs");
+        File infile = makeInput("partial.v0", "processed");
+
+        //simulate a run stopped in the middle of writing the DONE entry
+        File journalFile = new File(logs, SmRunJournal.JOURNAL_NAME);
+        String entry = "DONE\t" + infile.getAbsolutePath() + "\t"
+                                + infile.length() + "\t" + infile.lastModified();
+        try (FileOutputStream out = new FileOutputStream(journalFile)) {
+            out.write(("BEGIN\t2026-10-01 00:00:00 GMT\n" + entry)
+                                        .getBytes(StandardCharsets.UTF_8));
+        }
+        SmRunJournal journal = new SmRunJournal(logs);
+        org.junit.Assert.assertEquals(false, journal.isCompleted(infile));
+
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write("\n".getBytes(StandardCharsets.UTF_8));
+        }
+        journal = new SmRunJournal(logs);
+        org.junit.Assert.assertEquals(true, journal.isCompleted(infile));
+    }
+}
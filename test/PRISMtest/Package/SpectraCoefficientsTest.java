@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Name: Java class SpectraCoefficientsTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
+import static SmConstants.VFileConstants.V3_SAMPLING_RATES;
+import SmException.FormatException;
+import SmProcessing.SpectraCoefficients;
+import SmProcessing.SpectraResources;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ *
+ * @author jmjones
+ */
+public class SpectraCoefficientsTest {
+    //the coefficient tables are written with 12 decimal places, from values
+    //computed with slightly less precision
+    private static final double TABLE_EPSILON = 1.0e-9;
+    //the table rows for the 8.5 second period hold the coefficients for a
+    //period of about 8.12 seconds
+    private static final double TABLE_ROW_MISMATCH = 8.5;
+    private final SpectraResources spec;
+    private final double[] periods;
+
+    public SpectraCoefficientsTest() throws IOException, FormatException {
+        spec = new SpectraResources();
+        periods = spec.getTperiods();
+    }
+    
+    @Rule public ExpectedException expectedEx = ExpectedException.none();
+
+    @Test
+    public void testMatchesTables() throws FormatException {
+        for (double rate : V3_SAMPLING_RATES) {
+            for (double damping : V3_DAMPING_VALUES) {
+                double[][] table = spec.getCoefArray(rate, damping);
+                double[][] computed = SpectraCoefficients.getCoefArray(1.0 / rate, 
+                                                                damping, periods);
+                for (int p = 0; p < periods.length; p++) {
+                    if (Math.abs(periods[p] - TABLE_ROW_MISMATCH) < 1.0e-6) {
+                        continue;
+                    }
+                    org.junit.Assert.assertArrayEquals(table[p], computed[p], TABLE_EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOtherRates() throws FormatException {
+        //rates and dampings without a table are computed
+        double[][] coefs = spec.getCoefArray(250.0, 0.05);
+        double[][] expected = SpectraCoefficients.getCoefArray(0.004, 0.05, periods);
+        for (int p = 0; p < periods.length; p++) {
+            org.junit.Assert.assertArrayEquals(expected[p], coefs[p], 0.0);
+        }
+        coefs = spec.getCoefArray(100.0, 0.07);
+        expected = SpectraCoefficients.getCoefArray(0.01, 0.07, periods);
+        org.junit.Assert.assertArrayEquals(expected[10], coefs[10], 0.0);
+        //an undamped oscillator is a pure rotation of the state
+        double[] c = SpectraCoefficients.computeCoefficients(0.01, 0.0, 1.0);
+        double omega = 2.0 * Math.PI;
+        org.junit.Assert.assertEquals(Math.cos(omega * 0.01), c[0], 1.0e-15);
+        org.junit.Assert.assertEquals(c[0], c[3], 1.0e-15);
+        org.junit.Assert.assertEquals(1.0, c[0] * c[3] - c[1] * c[2], 1.0e-12);
+    }
+
+    @Test
+    public void testCache() {
+        double[] first = SpectraCoefficients.getCoefficients(0.003, 0.05, 0.5);
+        first[0] = -1.0;
+        double[] second = SpectraCoefficients.getCoefficients(0.003, 0.05, 0.5);
+        org.junit.Assert.assertArrayEquals(
+                SpectraCoefficients.computeCoefficients(0.003, 0.05, 0.5), second, 0.0);
+        for (int i = 0; i < SpectraCoefficients.CACHE_SIZE + 100; i++) {
+            SpectraCoefficients.getCoefficients(0.002, 0.05, 0.1 + i * 0.001);
+        }
+        org.junit.Assert.assertEquals(SpectraCoefficients.CACHE_SIZE, 
+                                        SpectraCoefficients.getCacheCount());
+    }
+
+    @Test
+    public void testInvalidDamping() throws FormatException {
+        expectedEx.expect(FormatException.class);
+        expectedEx.expectMessage("Unable to compute spectra coefficients");
+        spec.getCoefArray(250.0, 1.5);
+    }
+}
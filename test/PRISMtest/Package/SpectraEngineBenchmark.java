@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Name: Java class SpectraEngineBenchmark.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
+import static SmConstants.VFileConstants.V3_SAMPLING_RATES;
+import SmException.FormatException;
+import SmProcessing.SpectraKernel;
+import SmProcessing.SpectraResources;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Benchmark for the response spectra engines.  For records at each of the
+ * 50, 100, 200, and 500 samples per second coefficient tables, it times the
+ * 455 oscillators of the V3 spectra on a single thread, first one oscillator
+ * at a time with the scalar engine and then in blocks with the blocked engine,
+ * and checks that both give the same peaks.  The benchmark is not run with
+ * the unit tests; run it from the test classpath with:
+ * java PRISMtest.Package.SpectraEngineBenchmark [seconds] [repeats]
+ * @author jmjones
+ */
+public class SpectraEngineBenchmark {
+    private static final int WARMUP = 3;
+
+    public static void main(String[] args) throws IOException, FormatException {
+        int seconds = (args.length > 0) ? Integer.parseInt(args[0]) : 60;
+        int repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        SpectraResources spec = new SpectraResources();
+        long sink = 0;
+        
+        for (double rate : V3_SAMPLING_RATES) {
+            double[][] rows = new double[V3_DAMPING_VALUES.length * spec.getTperiods().length][];
+            int next = 0;
+            for (double damping : V3_DAMPING_VALUES) {
+                for (double[] row : spec.getCoefArray(rate, damping)) {
+                    rows[next++] = row;
+                }
+            }
+            double[] accel = makeAccel((int)(rate * seconds), new Random(2026));
+            double[] scalar = new double[rows.length];
+            double[] blocked = new double[rows.length];
+            for (int i = 0; i < WARMUP; i++) {
+                runScalar(accel, rows, scalar);
+                SpectraKernel.peakDisplacements(accel, rows, blocked);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < repeats; i++) {
+                runScalar(accel, rows, scalar);
+            }
+            double scalarMs = (System.nanoTime() - start) * 1.0e-6 / repeats;
+            start = System.nanoTime();
+            for (int i = 0; i < repeats; i++) {
+                SpectraKernel.peakDisplacements(accel, rows, blocked);
+            }
+            double blockedMs = (System.nanoTime() - start) * 1.0e-6 / repeats;
+            boolean same = true;
+            for (int i = 0; i < rows.length; i++) {
+                same &= (Double.doubleToLongBits(scalar[i]) == 
+                                            Double.doubleToLongBits(blocked[i]));
+                sink += Double.doubleToLongBits(blocked[i]) & 0xff;
+            }
+            System.out.println(String.format("%3.0f sps, %7d samples: scalar %8.2f ms, "
+                    + "blocked %8.2f ms, speedup %.2f, same peaks %b", rate, 
+                    accel.length, scalarMs, blockedMs, scalarMs / blockedMs, same));
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+    private static void runScalar(double[] accel, double[][] rows, double[] peaks) {
+        for (int i = 0; i < rows.length; i++) {
+            peaks[i] = SpectraKernel.peakDisplacement(accel, rows[i]);
+        }
+    }
+    private static double[] makeAccel(int len, Random rand) {
+        double[] accel = new double[len];
+        for (int i = 0; i < len; i++) {
+            accel[i] = rand.nextGaussian() * 50.0 * Math.exp(-i * 4.0 / len);
+        }
+        return accel;
+    }
+}
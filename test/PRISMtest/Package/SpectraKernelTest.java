@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Name: Java class SpectraKernelTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import static SmConstants.VFileConstants.V3_DAMPING_VALUES;
+import SmConstants.VFileConstants.SpectraEngine;
+import SmException.FormatException;
+import SmProcessing.ArrayStats;
+import SmProcessing.SpectraKernel;
+import SmProcessing.SpectraResources;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jmjones
+ */
+public class SpectraKernelTest {
+    private final double[] periods;
+    private final double[][][] coefs;
+
+    public SpectraKernelTest() throws IOException, FormatException {
+        SpectraResources spec = new SpectraResources();
+        periods = spec.getTperiods();
+        coefs = new double[V3_DAMPING_VALUES.length][][];
+        for (int i = 0; i < V3_DAMPING_VALUES.length; i++) {
+            coefs[i] = spec.getCoefArray(100.0, V3_DAMPING_VALUES[i]);
+        }
+    }
+    /**
+     * The recursion as computed before the kernel, with the state history
+     * kept in arrays and the peak found with ArrayStats
+     */
+    private static double referencePeak(double[] accel, double[] c) {
+        int len = accel.length;
+        double[][] y = new double[2][len];
+        y[0][0] = 0.0;
+        y[1][0] = 0.0;
+        for (int k = 1; k < len; k++) {
+            y[0][k] = c[0] * y[0][k-1] + c[1] * y[1][k-1] + c[4] * accel[k];
+            y[1][k] = c[2] * y[0][k-1] + c[3] * y[1][k-1] + c[5] * accel[k];
+        }
+        return Math.abs(new ArrayStats(y[0]).getPeakVal());
+    }
+    private static double[] makeAccel(int len, long seed) {
+        Random rand = new Random(seed);
+        double[] accel = new double[len];
+        for (int i = 0; i < len; i++) {
+            accel[i] = rand.nextGaussian() * 50.0 * Math.sin(i * 0.003);
+        }
+        return accel;
+    }
+
+    @Test
+    public void testPeakDisplacement() {
+        double[] accel = makeAccel(3000, 1);
+        for (double[][] table : coefs) {
+            for (double[] row : table) {
+                org.junit.Assert.assertEquals(
+                        Double.doubleToLongBits(referencePeak(accel, row)),
+                        Double.doubleToLongBits(SpectraKernel.peakDisplacement(accel, row)));
+            }
+        }
+        //an all zero record keeps the starting values of the peak search
+        double[] zeros = new double[100];
+        org.junit.Assert.assertEquals(
+                        Double.doubleToLongBits(referencePeak(zeros, coefs[0][0])),
+                        Double.doubleToLongBits(SpectraKernel.peakDisplacement(zeros, coefs[0][0])));
+    }
+
+    @Test
+    public void testPeakDisplacements() {
+        double[] accel = makeAccel(2500, 3);
+        //a count that is not a multiple of the block size
+        double[][] rows = new double[SpectraKernel.LANES * 2 + 3][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = coefs[i % coefs.length][(i * 7) % periods.length];
+        }
+        double[] peaks = new double[rows.length];
+        SpectraKernel.peakDisplacements(accel, rows, peaks);
+        for (int i = 0; i < rows.length; i++) {
+            org.junit.Assert.assertEquals(
+                        Double.doubleToLongBits(referencePeak(accel, rows[i])),
+                        Double.doubleToLongBits(peaks[i]));
+        }
+        double[] zeros = new double[10];
+        SpectraKernel.peakDisplacements(zeros, rows, peaks);
+        org.junit.Assert.assertEquals(
+                        Double.doubleToLongBits(referencePeak(zeros, rows[0])),
+                        Double.doubleToLongBits(peaks[0]));
+    }
+
+    @Test
+    public void testComputeSpectra() {
+        checkComputeSpectra(SpectraEngine.SCALAR);
+    }
+
+    @Test
+    public void testComputeSpectraBlocked() {
+        checkComputeSpectra(SpectraEngine.BLOCKED);
+    }
+
+    private void checkComputeSpectra(SpectraEngine engine) {
+        //long enough for the grid to be split over the pool
+        double[] accel = makeAccel(20000, 2);
+        int numD = coefs.length;
+        double[][] sd = new double[numD][periods.length];
+        double[][] sv = new double[numD][periods.length];
+        double[][] sa = new double[numD][periods.length];
+        SpectraKernel.computeSpectra(accel, coefs, periods, sd, sv, sa, engine);
+        for (int d = 0; d < numD; d++) {
+            for (int p = 0; p < periods.length; p++) {
+                double omega = (2.0 * Math.PI) / periods[p];
+                double expsd = referencePeak(accel, coefs[d][p]);
+                org.junit.Assert.assertEquals(Double.doubleToLongBits(expsd),
+                                            Double.doubleToLongBits(sd[d][p]));
+                org.junit.Assert.assertEquals(Double.doubleToLongBits(expsd * omega),
+                                            Double.doubleToLongBits(sv[d][p]));
+                org.junit.Assert.assertEquals(Double.doubleToLongBits(expsd * omega * omega),
+                                            Double.doubleToLongBits(sa[d][p]));
+            }
+        }
+    }
+}
@@ -136,6 +136,20 @@ public class SpectraResourcesTest {
         }
     }
     @Test
+    public void checkSharedTables() throws IOException, FormatException {
+        SpectraResources other = new SpectraResources();
+        double[][] first = spec.getCoefArray(V3_SAMPLING_RATES[1], V3_DAMPING_VALUES[2]);
+        double[] periods = spec.getTperiods();
+        first[0][0] = -1.0;
+        periods[0] = -1.0;
+        //changes to a returned array are not seen by other instances
+        double[][] second = other.getCoefArray(V3_SAMPLING_RATES[1], V3_DAMPING_VALUES[2]);
+        org.junit.Assert.assertEquals(Double.parseDouble(
+                    coeftext[7][0].trim().split("\\s+")[0]), second[0][0], EPSILON);
+        org.junit.Assert.assertEquals(Double.parseDouble(PeriodsText[0]), 
+                                            other.getTperiods()[0], EPSILON);
+    }
+    @Test
     public void checkV3Logic() throws IOException, FormatException {
         double[][][] spectra;
         double[] T_periods;
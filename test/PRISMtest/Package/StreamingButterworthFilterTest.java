@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Name: Java class StreamingButterworthFilterTest.java
+ * Project: PRISM strong motion record processing using COSMOS data format
+ * Written by: Jeanne Jones, USGS, jmjones@usgs.gov
+ *
+ * This software is in the public domain because it contains materials that
+ * originally came from the United States Geological Survey, an agency of the
+ * United States Department of Interior. For more information, see the official
+ * USGS copyright policy at
+ * http://www.usgs.gov/visual-id/credit_usgs.html#copyright
+ *
+ * Date: first release date Oct. 2026
+ ******************************************************************************/
+
+package PRISMtest.Package;
+
+import SmException.SmException;
+import SmProcessing.ButterworthFilter;
+import SmProcessing.StreamingButterworthFilter;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jmjones
+ */
+public class StreamingButterworthFilterTest {
+    private static final double DTIME = 0.01;
+    private final double[] accel;
+    private final double[] expected;
+
+    public StreamingButterworthFilterTest() {
+        Random rand = new Random(22);
+        accel = new double[20000];
+        for (int i = 0; i < accel.length; i++) {
+            accel[i] = rand.nextGaussian() * 10.0 + 0.001 * i;
+        }
+        //a single causal run over the whole record
+        ButterworthFilter filter = new ButterworthFilter();
+        filter.calculateCoefficients(0.1, 20.0, DTIME, 2, false);
+        expected = accel.clone();
+        filter.applyFilter(expected, 2.0, 0);
+    }
+
+    @Test
+    public void testChunks() throws SmException {
+        StreamingButterworthFilter stream = new StreamingButterworthFilter(0.1, 20.0, DTIME, 2);
+        double[] output = new double[accel.length];
+        int start = 0;
+        int len = 1;
+        while (start < accel.length) {
+            len = Math.min(len, accel.length - start);
+            stream.filter(accel, start, len, output, start);
+            start += len;
+            len = 2 * len + 3;
+        }
+        org.junit.Assert.assertArrayEquals(expected, output, 0.0);
+        org.junit.Assert.assertEquals(accel.length, stream.getCount());
+    }
+    @Test
+    public void testReset() throws SmException {
+        StreamingButterworthFilter stream = new StreamingButterworthFilter(0.1, 20.0, DTIME, 2);
+        double[] first = accel.clone();
+        stream.filter(first);
+        org.junit.Assert.assertArrayEquals(expected, first, 0.0);
+        
+        stream.reset();
+        org.junit.Assert.assertEquals(0, stream.getCount());
+        double[] second = accel.clone();
+        for (int i = 0; i < second.length; i += 1000) {
+            stream.filter(second, i, 1000);
+        }
+        org.junit.Assert.assertArrayEquals(expected, second, 0.0);
+    }
+    @Test(expected = SmException.class)
+    public void testInvalidParameters() throws SmException {
+        new StreamingButterworthFilter(0.1, 0.1, DTIME, 2);
+    }
+}
@@ -133,6 +133,22 @@ public class V0ComponentTest {
         int lineNum = v0.loadComponent(0, infile);
     }
     @Test
+    public void testParseHeaderFormatErrorWithOffset() throws FormatException, SmException {
+        expectedEx.expect(FormatException.class);
+        expectedEx.expectMessage("Unable to find number of text header lines at line 201");
+        infile[0] = "Raw acceleration counts   (Format v01.20 with text lines) Src: 921az039.evt";
+        v0.setLineOffset(200);
+        int lineNum = v0.loadComponent(0, infile);
+    }
+    @Test
+    public void testParseDataErrorWithOffset() throws FormatException, SmException {
+        expectedEx.expect(FormatException.class);
+        expectedEx.expectMessage("Unable to convert text to numeric at line 213");
+        infile[15]= "       5       5       5       5    -999       1    -999    -999       x     360";
+        v0.setLineOffset(200);
+        int lineNum = v0.loadComponent(0, infile);
+    }
+    @Test
     public void testParseHeaderNumberError() throws FormatException, SmException {
         expectedEx.expect(FormatException.class);
         expectedEx.expectMessage("Unable to extract NoData values at line 13");
@@ -325,4 +341,15 @@ public class V0ComponentTest {
         org.junit.Assert.assertEquals(infile[0], textout[0]);
         org.junit.Assert.assertEquals(infile[47], textout[47]);
     }
+    @Test
+    public void testWriteVrec() throws FormatException, SmException, java.io.IOException {
+        v0.loadComponent(0, infile);
+        java.io.StringWriter out = new java.io.StringWriter();
+        v0.writeVrec(out);
+        StringBuilder expect = new StringBuilder();
+        for (String line : v0.VrecToText()) {
+            expect.append(line).append(System.lineSeparator());
+        }
+        org.junit.Assert.assertEquals(expect.toString(), out.toString());
+    }
 }
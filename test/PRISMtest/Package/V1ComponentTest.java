@@ -224,7 +224,7 @@ public class V1ComponentTest {
     }
     
     @Test
-    public void V1toTextTest() throws SmException, FormatException {
+    public void V1toTextTest() throws SmException, FormatException, IOException {
         V1Process v1val = new V1Process(v0);
         v1val.processV1Data();
         V1Component v1rec = new V1Component( UNCORACC, v0);
@@ -234,6 +234,14 @@ public class V1ComponentTest {
         org.junit.Assert.assertEquals(v0file[17],text[17]);
         org.junit.Assert.assertEquals(true, text[0].startsWith(UNCORACC));
         org.junit.Assert.assertEquals(v0file[v0file.length-1],text[text.length-1]);
+        
+        java.io.StringWriter out = new java.io.StringWriter();
+        v1rec.writeVrec(out);
+        StringBuilder expect = new StringBuilder();
+        for (String line : text) {
+            expect.append(line).append(System.lineSeparator());
+        }
+        org.junit.Assert.assertEquals(expect.toString(), out.toString());
     }
     
     @Test
@@ -215,4 +215,33 @@ public class VIntArrayTest {
         expectedEx.expectMessage("Unexpected EOF encountered at line 6");        
         di.parseValues(6, data);
     }
+    @Test
+    public void testParseMatchesJava() throws FormatException {
+        String[] text = new String[3];
+        text[0] = "  10 Integer values follow on  2 lines, Format= (5I12)";
+        text[1] = "           0          +7          -0  2147483647 -2147483648";
+        text[2] = "       -2048       00013    -0000999          -1           1";
+        hi.parseValues(0, text);
+        int[] expect = {0, 7, 0, 2147483647, -2147483648, -2048, 13, -999, -1, 1};
+        org.junit.Assert.assertArrayEquals(expect, hi.getIntArray());
+    }
+    @Test
+    public void testOverflowValue() throws FormatException {
+        String[] text = new String[2];
+        text[0] = "  2 Integer values follow on  1 lines, Format= (2I12)";
+        text[1] = "           1  2147483648";
+        expectedEx.expect(FormatException.class);
+        expectedEx.expectMessage("Unable to convert text to numeric at line 0");
+        hi.parseValues(0, text);
+    }
+    @Test
+    public void testBlankValue() throws FormatException {
+        //blank fields are counted but hold no value
+        String[] text = new String[2];
+        text[0] = "  3 Integer values follow on  1 lines, Format= (3I8)";
+        text[1] = "       5               6";
+        expectedEx.expect(FormatException.class);
+        expectedEx.expectMessage("Expected 3 values in array but found 2");
+        hi.parseValues(0, text);
+    }
 }
@@ -15,6 +15,7 @@
 package PRISMtest.Package;
 
 import COSMOSformat.VRealArray;
+import SmConstants.VFileConstants.SmArrayStyle;
 import SmException.FormatException;
 import java.util.ArrayList;
 import org.junit.Before;
@@ -207,5 +208,84 @@ public class VRealArrayTest {
         expectedEx.expectMessage("Unexpected EOF encountered at line 6");        
         di.parseValues(6, data);
     }
-    
+    @Test
+    public void testParseMatchesJava() throws FormatException {
+        String[] fields = {"0.298023", "-999.000000", "+2.5", ".5", "-.125",
+            "7.", "-0.000", "1.234567E+02", "-9.876543e-05", "1E3",
+            "123456789012345678901234", "0.1234567890123456789", "4.9e-324",
+            "1.7976931348623157E308", "Infinity", "-NaN", "2.5d", "0x1.8p1"};
+        String[] values = new String[fields.length + 1];
+        values[0] = "  " + fields.length + " real values, Format=(1F25.6)";
+        for (int i = 0; i < fields.length; i++) {
+            values[i + 1] = String.format("%25s", fields[i]);
+        }
+        java.util.Random rand = new java.util.Random(2026);
+        String[] random = new String[1001];
+        random[0] = "  1000 real values, Format=(1F15.6)";
+        for (int i = 1; i < random.length; i++) {
+            double val = rand.nextGaussian() * Math.pow(10.0, rand.nextInt(12) - 6);
+            random[i] = String.format(((i % 2) == 0) ? "%15.6f" : "%15.6e", val);
+        }
+        for (String[] text : new String[][]{values, random}) {
+            VRealArray test = new VRealArray();
+            test.parseValues(0, text);
+            for (int i = 1; i < text.length; i++) {
+                double expect = Double.parseDouble(text[i].trim());
+                org.junit.Assert.assertEquals(Double.doubleToRawLongBits(expect),
+                        Double.doubleToRawLongBits(test.getRealValue(i - 1)));
+            }
+        }
+    }
+    @Test
+    public void testFormatMatchesJava() throws FormatException {
+        java.util.Random rand = new java.util.Random(2026);
+        double[] vals = new double[2000];
+        for (int i = 0; i < vals.length; i++) {
+            vals[i] = rand.nextGaussian() * Math.pow(10.0, rand.nextInt(16) - 8);
+        }
+        vals[0] = -0.0;
+        vals[1] = -0.0000001;
+        vals[2] = 0.0005;
+        vals[3] = 2.5e-7;
+        vals[4] = 9.9999995;
+        vals[5] = 1.0e300;
+        vals[6] = Double.NaN;
+        for (String type : new String[]{"F", "E"}) {
+            VRealArray test = new VRealArray();
+            test.setRealArray(vals);
+            test.setNumVals(vals.length);
+            test.setDisplayType(type);
+            test.setFormatLine("format line");
+            test.buildArrayParams(SmArrayStyle.PACKED);
+            String fmt = "%15.6" + type.toLowerCase();
+            String[] text = test.numberSectionToText();
+            org.junit.Assert.assertEquals(401, text.length);
+            for (int line = 1; line < text.length; line++) {
+                StringBuilder expect = new StringBuilder();
+                for (int i = (line - 1) * 5; i < line * 5; i++) {
+                    expect.append(String.format(fmt, vals[i]));
+                }
+                org.junit.Assert.assertEquals(expect.toString(), text[line]);
+            }
+        }
+    }
+    @Test
+    public void testWriteNumberSection() throws FormatException, java.io.IOException {
+        di.parseValues(0, data);
+        java.io.StringWriter out = new java.io.StringWriter();
+        di.writeNumberSection(out);
+        StringBuilder expect = new StringBuilder();
+        for (String line : data) {
+            expect.append(line).append(System.lineSeparator());
+        }
+        org.junit.Assert.assertEquals(expect.toString(), out.toString());
+    }
+    @Test
+    public void testBadValueBeforeCount() throws FormatException {
+        //a value count problem is reported before a bad value
+        badData[0] = "       7 uncor. accel. pts, approx  500 secs, units=cm/sec2(04), Format=(8F10.3)";
+        expectedEx.expect(FormatException.class);
+        expectedEx.expectMessage("Expected 7 values in array but found 8");
+        di.parseValues(0, badData);
+    }
 }